@@ -16,6 +16,12 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // How long cached restaurant details are served before being refreshed in the background
+        buildConfigField("long", "RESTAURANT_CACHE_TTL_MILLIS", "86400000L")
+
+        // Root URL of the restaurant server; left empty, the app runs on the built-in fake API
+        buildConfigField("String", "API_BASE_URL", "\"\"")
     }
 
     buildTypes {
@@ -34,6 +40,12 @@ android {
 
     buildFeatures {
         viewBinding = true
+        buildConfig = true
+    }
+
+    testOptions {
+        // Android calls made by the code under test, such as logging a discarded snapshot, do nothing in unit tests
+        unitTests.isReturnDefaultValues = true
     }
 
 
@@ -43,6 +55,11 @@ dependencies {
 
 
     implementation ("com.github.bumptech.glide:glide:4.12.0")
+    annotationProcessor ("com.github.bumptech.glide:compiler:4.12.0")
+    implementation ("com.github.bumptech.glide:recyclerview-integration:4.12.0") {
+        // Only the preloader is needed; the app already declares its own Glide and RecyclerView versions
+        isTransitive = false
+    }
 
     implementation ("androidx.appcompat:appcompat:1.7.0")
 
@@ -51,8 +68,12 @@ dependencies {
 
     implementation("androidx.work:work-runtime:2.10.0")
     implementation("androidx.legacy:legacy-support-v4:1.0.0")
+    implementation("androidx.asynclayoutinflater:asynclayoutinflater:1.0.0")
     implementation("androidx.lifecycle:lifecycle-livedata-ktx:2.8.7")
     implementation("androidx.lifecycle:lifecycle-viewmodel-ktx:2.8.7")
+    implementation("androidx.collection:collection:1.4.0")
+    // Streaming JSON reader; android.util.JsonReader is not available to local unit tests
+    implementation("com.google.code.gson:gson:2.11.0")
 
 
 
@@ -72,4 +93,28 @@ dependencies {
     testImplementation ("androidx.arch.core:core-testing:2.2.0")// For LiveData testing
     testImplementation ("org.mockito:mockito-core:4.2.0")
     testImplementation ("org.mockito:mockito-inline:4.2.0")
+    testImplementation("org.openjdk.jmh:jmh-core:1.37")
+    testAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+    // SQLite for the benchmarks of the review store queries, as android.database is not available on the JVM
+    testImplementation("org.xerial:sqlite-jdbc:3.46.1.3")
+}
+
+// Runs the JMH benchmarks of the unit test sources and writes their results as JSON.
+// Usage: ./gradlew :app:jmh [-Pjmh.include=<benchmark regex>]
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH benchmarks and writes build/reports/jmh/results.json."
+    dependsOn("compileDebugUnitTestJavaWithJavac")
+
+    val resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    mainClass.set("org.openjdk.jmh.Main")
+    classpath = files(provider { tasks.named<Test>("testDebugUnitTest").get().classpath })
+    args = listOfNotNull(
+        findProperty("jmh.include")?.toString(),
+        "-rf", "json",
+        "-rff", resultsFile.get().asFile.absolutePath
+    )
+    doFirst {
+        resultsFile.get().asFile.parentFile.mkdirs()
+    }
 }
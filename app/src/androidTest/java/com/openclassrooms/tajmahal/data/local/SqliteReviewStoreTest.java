@@ -0,0 +1,128 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Instrumented tests of {@link SqliteReviewStore}, run against a database kept in memory.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SqliteReviewStoreTest {
+
+    private static final String RESTAURANT_ID = "restaurant";
+    private static final String DATABASE_FILE = "reviews-test.db";
+
+    private Context context;
+    private SqliteReviewStore store;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        store = new SqliteReviewStore(context, null);
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(DATABASE_FILE);
+    }
+
+    @Test
+    public void appendOldest_reviewShiftedToNextPage_shouldBeStoredOnce() {
+        // Given a first page imported from the API
+        Review newest = new Review("3", "Ranjit Singh", null, "Excellent.", 5, 3_000L);
+        Review shifted = new Review("2", "Martyna Siddeswara", null, "Un peu bruyant.", 3, 2_000L);
+        store.appendOldest(RESTAURANT_ID, Arrays.asList(newest, shifted));
+
+        // When a review written in the meantime pushes the last review of that page onto the next one
+        Review oldest = new Review("1", "Lucas Moreau", null, "Très bon accueil.", 4, 1_000L);
+        List<Review> appended = store.appendOldest(RESTAURANT_ID, Arrays.asList(shifted, oldest));
+
+        // Then the review already stored is skipped, and the rest of the page is still stored
+        assertEquals(Collections.singletonList(oldest), appended);
+        ReviewPage page = store.getPage(RESTAURANT_ID, null, 10);
+        assertEquals(Arrays.asList(newest, shifted, oldest), page.getReviews());
+        assertArrayEquals(new long[]{0, 0, 1, 1, 1}, store.getRatingCounts(RESTAURANT_ID));
+    }
+
+    @Test
+    public void search_shouldIgnoreAccentsAndOperators() {
+        Review delicious = new Review("2", "Ranjit Singh", null, "Délicieux, le naan au fromage.", 5, 2_000L);
+        Review spicy = new Review("1", "Lucas Moreau", null, "Curry trop épicé OR trop salé.", 2, 1_000L);
+        store.appendOldest(RESTAURANT_ID, Arrays.asList(delicious, spicy));
+
+        assertEquals(Collections.singletonList(delicious), store.search(RESTAURANT_ID, "delicieux", 10));
+        assertEquals(Collections.singletonList(spicy), store.search(RESTAURANT_ID, "EPICE", 10));
+        assertEquals(Collections.singletonList(delicious), store.search(RESTAURANT_ID, "\"nAAn\" fro", 10));
+        assertEquals(Collections.singletonList(spicy), store.search(RESTAURANT_ID, "curry OR", 10));
+        assertEquals(Collections.emptyList(), store.search(RESTAURANT_ID, "naan NEAR curry", 10));
+        assertEquals(Collections.emptyList(), store.search(RESTAURANT_ID, "-*\"", 10));
+    }
+
+    @Test
+    public void applyDelta_uploadedLocalReview_shouldBeAdoptedRatherThanDuplicated() {
+        // Given a review written on the device, newer than the imported ones
+        Review imported = new Review("1", "Lucas Moreau", null, "Très bon accueil.", 4, 1_000L);
+        store.appendOldest(RESTAURANT_ID, Collections.singletonList(imported));
+        Review written = new Review("Ranjit Singh", null, "Excellent.", 5, 2_000L);
+        store.insertNewest(RESTAURANT_ID, written);
+
+        // When a sync returns the copy the server stored once the review was uploaded
+        Review uploaded = new Review("42", "Ranjit Singh", null, "Excellent.", 5, 2_000L);
+        List<Review> replaced = store.applyDelta(RESTAURANT_ID, new ReviewDelta(Collections.singletonList(uploaded),
+                Collections.emptyList(), Collections.emptyList(), "1", false));
+
+        // Then the local review is replaced in place by the server copy, instead of being stored twice
+        assertEquals(Collections.singletonList(written), replaced);
+        assertEquals(Arrays.asList(uploaded, imported), store.getPage(RESTAURANT_ID, null, 10).getReviews());
+        assertArrayEquals(new long[]{0, 0, 0, 1, 1}, store.getRatingCounts(RESTAURANT_ID));
+
+        // And later changes to the server copy are matched through its identifier
+        Review edited = new Review("42", "Ranjit Singh", null, "Excellent, comme toujours.", 4, 2_000L);
+        replaced = store.applyDelta(RESTAURANT_ID, new ReviewDelta(Collections.emptyList(),
+                Collections.singletonList(edited), Collections.emptyList(), "2", false));
+        assertEquals(Collections.singletonList(uploaded), replaced);
+        assertEquals(Arrays.asList(edited, imported), store.getPage(RESTAURANT_ID, null, 10).getReviews());
+    }
+
+    @Test
+    public void clearImported_uploadedReviewStillQueued_shouldRemoveItFromOutbox() {
+        // Given a review written on the device, still queued when the server copy is merged into it
+        SqliteReviewStore fileStore = new SqliteReviewStore(context, DATABASE_FILE);
+        Review written = new Review("Ranjit Singh", null, "Excellent.", 5, 1_000L);
+        fileStore.insertNewest(RESTAURANT_ID, written);
+        Review uploaded = new Review("42", "Ranjit Singh", null, "Excellent.", 5, 1_000L);
+        fileStore.applyDelta(RESTAURANT_ID, new ReviewDelta(Collections.singletonList(uploaded),
+                Collections.emptyList(), Collections.emptyList(), "1", false));
+
+        // When the imported reviews are cleared before a new import
+        fileStore.clearImported(RESTAURANT_ID);
+
+        // Then its upload entry is deleted with it
+        assertEquals(0, fileStore.getPendingUploads(10).size());
+        ReviewDatabaseHelper helper = new ReviewDatabaseHelper(context, DATABASE_FILE);
+        try {
+            assertEquals(0, DatabaseUtils.queryNumEntries(helper.getReadableDatabase(), ReviewDatabaseHelper.TABLE_OUTBOX));
+        } finally {
+            helper.close();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.openclassrooms.tajmahal.ui.Review;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.bumptech.glide.Glide;
+import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.util.AvatarLoader;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Instrumented tests of {@link ReviewListAdapter}, binding rows outside of any RecyclerView layout.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReviewListAdapterTest {
+
+    private Context context;
+    private RecyclerView parent;
+    private ReviewRowPool rowPool;
+
+    @Before
+    public void setUp() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            context = new ContextThemeWrapper(InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                    R.style.Theme_TajMahal);
+            parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+            rowPool = new ReviewRowPool(context);
+        });
+    }
+
+    @Test
+    public void onBindViewHolder_rowCreatedByPreviousScreen_shouldShowItsOwnComment() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            // Given a row created and bound by the adapter of a previous review screen
+            ReviewListAdapter previousAdapter = newAdapter();
+            previousAdapter.submitList(Collections.singletonList(
+                    new Review("1", "Lucas Moreau", null, "Très bon accueil.", 4, 1_000L)));
+            ReviewListAdapter.MyViewHolder row = previousAdapter.onCreateViewHolder(parent, 0);
+            previousAdapter.onBindViewHolder(row, 0);
+
+            // When the adapter of a new screen, which never created a row, binds it through the shared pool
+            ReviewListAdapter adapter = newAdapter();
+            assertNull(adapter.getAvatarPreloadSize());
+            adapter.submitList(Collections.singletonList(
+                    new Review("2", "Ranjit Singh", null, "Excellent.", 5, 2_000L)));
+            adapter.onBindViewHolder(row, 0);
+            row.itemView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+
+            // Then the row shows the review of the new screen, and avatars are preloaded at its size
+            assertEquals("Excellent.", row.commentTextView.getText().toString());
+            assertEquals("Ranjit Singh", row.userInList.getText().toString());
+            assertNotNull(adapter.getAvatarPreloadSize());
+        });
+    }
+
+    @Test
+    public void onBindViewHolder_noComment_shouldClearPreviousComment() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            ReviewListAdapter adapter = newAdapter();
+            adapter.submitList(Collections.singletonList(
+                    new Review("1", "Lucas Moreau", null, "Très bon accueil.", 4, 1_000L)));
+            ReviewListAdapter.MyViewHolder row = adapter.onCreateViewHolder(parent, 0);
+            adapter.onBindViewHolder(row, 0);
+
+            ReviewListAdapter otherAdapter = newAdapter();
+            otherAdapter.submitList(Collections.singletonList(
+                    new Review("2", "Ranjit Singh", null, null, 5, 2_000L)));
+            otherAdapter.onBindViewHolder(row, 0);
+            row.itemView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED));
+
+            assertEquals("", row.commentTextView.getText().toString());
+        });
+    }
+
+    private ReviewListAdapter newAdapter() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        return new ReviewListAdapter(Glide.with(context.getApplicationContext()), new AvatarLoader(metrics),
+                Runnable::run, rowPool, metrics);
+    }
+}
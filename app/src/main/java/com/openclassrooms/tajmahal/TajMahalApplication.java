@@ -1,6 +1,16 @@
 package com.openclassrooms.tajmahal;
 
 import android.app.Application;
+import android.os.Trace;
+
+import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.data.repository.ReviewRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.upload.ReviewUploadScheduler;
+import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+import com.openclassrooms.tajmahal.util.StartupTimeline;
+
+import javax.inject.Inject;
 
 import dagger.hilt.android.HiltAndroidApp;
 
@@ -17,6 +27,12 @@ import dagger.hilt.android.HiltAndroidApp;
  * entire lifecycle of the application. Generally, this class should only be used for
  * app-wide configurations and initializations.
  * </p>
+ * <p>
+ * On startup, the details and the first page of reviews of the {@link #DEFAULT_RESTAURANT_ID default restaurant}
+ * start loading in parallel, on background threads, while the activity is being created. The first
+ * screen picks up these loads instead of starting its own, and the splash screen stays up until
+ * they deliver. The phases of the startup are recorded in the {@link StartupTimeline}.
+ * </p>
  *
  * <strong>Note for beginners:</strong> Hilt is a dependency injection library for Android
  * that reduces the boilerplate code to do manual dependency injection in your project.
@@ -27,4 +43,37 @@ import dagger.hilt.android.HiltAndroidApp;
  */
 @HiltAndroidApp
 public class TajMahalApplication extends Application {
+
+    /** Restaurant shown when the application starts. */
+    public static final String DEFAULT_RESTAURANT_ID = RestaurantFakeApi.TAJ_MAHAL_PARIS_ID;
+
+    @Inject
+    ReviewUploadScheduler reviewUploadScheduler; // Schedules the upload of the reviews written on the device
+
+    @Inject
+    RestaurantRepository restaurantRepository; // Loads the details shown by the first screen
+
+    @Inject
+    ReviewRepository reviewRepository; // Loads the reviews shown by the first screen
+
+    @Inject
+    StartupTimeline startupTimeline; // Records the phases of the startup
+
+    @Override
+    public void onCreate() {
+        Trace.beginSection("TajMahalApplication.onCreate");
+        try {
+            super.onCreate(); // Hilt injects the fields here
+
+            // Warm up the data of the first screen in parallel, without waiting for the activity
+            restaurantRepository.getRestaurant(DEFAULT_RESTAURANT_ID);
+            reviewRepository.prefetchFirstPage(DEFAULT_RESTAURANT_ID, ReviewViewModel.PAGE_SIZE);
+
+            // Send the reviews left in the upload queue by a previous run
+            reviewUploadScheduler.schedule();
+        } finally {
+            Trace.endSection();
+        }
+        startupTimeline.mark(StartupTimeline.Phase.APPLICATION_CREATE);
+    }
 }
@@ -0,0 +1,76 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of reviews of a restaurant written on one day, and the sum of their ratings,
+ * as counted by the {@link ReviewStore}. Instances are immutable.
+ * <p>
+ * Days are counted in UTC from the epoch, so that the store and the in-memory aggregates split
+ * reviews into the same days whatever the time zone of the device.
+ * </p>
+ */
+public class DailyRatings {
+
+    /** The length of a day in milliseconds. */
+    public static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** The day, in days since the epoch. */
+    private final long epochDay;
+
+    /** The number of reviews written on that day. */
+    private final long count;
+
+    /** The sum of the ratings of the reviews written on that day. */
+    private final long sum;
+
+    /**
+     * Constructs a new DailyRatings instance.
+     *
+     * @param epochDay the day, in days since the epoch
+     * @param count    the number of reviews written on that day
+     * @param sum      the sum of their ratings
+     */
+    public DailyRatings(long epochDay, long count, long sum) {
+        this.epochDay = epochDay;
+        this.count = count;
+        this.sum = sum;
+    }
+
+    /**
+     * Returns the day a time falls on.
+     *
+     * @param timeMillis a time in milliseconds since the epoch
+     * @return the day, in days since the epoch
+     */
+    public static long toEpochDay(long timeMillis) {
+        return Math.floorDiv(timeMillis, DAY_MILLIS);
+    }
+
+    /**
+     * Returns the day.
+     *
+     * @return the day, in days since the epoch
+     */
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Returns the number of reviews written on the day.
+     *
+     * @return the number of reviews
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the ratings of the reviews written on the day.
+     *
+     * @return the sum of the ratings
+     */
+    public long getSum() {
+        return sum;
+    }
+}
@@ -0,0 +1,59 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+/**
+ * A review written on the device and queued for upload in the {@link ReviewStore}.
+ * Instances are immutable.
+ */
+public class PendingUpload {
+
+    /** The position of the review in the upload queue. */
+    private final long id;
+
+    /** The identifier of the reviewed restaurant. */
+    private final String restaurantId;
+
+    /** The review to upload. */
+    private final Review review;
+
+    /**
+     * Constructs a new PendingUpload instance.
+     *
+     * @param id           the position of the review in the upload queue
+     * @param restaurantId the identifier of the reviewed restaurant
+     * @param review       the review to upload
+     */
+    public PendingUpload(long id, String restaurantId, Review review) {
+        this.id = id;
+        this.restaurantId = restaurantId;
+        this.review = review;
+    }
+
+    /**
+     * Returns the position of the review in the upload queue.
+     *
+     * @return the queue identifier, only meaningful to the store
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the identifier of the reviewed restaurant.
+     *
+     * @return the restaurant identifier
+     */
+    public String getRestaurantId() {
+        return restaurantId;
+    }
+
+    /**
+     * Returns the review to upload.
+     *
+     * @return the review
+     */
+    public Review getReview() {
+        return review;
+    }
+}
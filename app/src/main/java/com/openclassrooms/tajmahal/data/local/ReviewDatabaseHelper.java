@@ -0,0 +1,185 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+/**
+ * Creates and upgrades the SQLite database holding the on-device copy of the reviews.
+ * <p>
+ * Reviews are ordered per restaurant by a {@code sort_key} column, backed by a unique index on
+ * {@code (restaurant_id, sort_key)}, so that a page is read with a single index range scan whatever
+ * the number of stored reviews. An index on {@code (restaurant_id, rate, sort_key)} splits the
+ * reviews of a restaurant into one bucket per rating, ordered like the full list: it serves pages
+ * filtered or sorted by rating with the same range scans, and lets the rating counts be computed
+ * from the index alone.
+ * </p>
+ * <p>
+ * Comments are also indexed in an FTS4 full-text table, kept in sync with the reviews table by
+ * triggers. Its tokenizer folds case and removes accents, so that "delicieux" finds "Délicieux".
+ * </p>
+ * <p>
+ * Reviews written on the device are queued in an outbox table until they are uploaded, so that
+ * they are sent even if the app is closed or offline when they are written. Deleting a review
+ * removes it from the outbox through a trigger, so that no entry outlives its review.
+ * </p>
+ * <p>
+ * The creation time of the reviews is indexed per restaurant, so that the ratings of the last days
+ * are totalled from a range of the index rather than from every review.
+ * </p>
+ * <p>
+ * Reviews known to the server keep their server identifier, unique per restaurant, so that the
+ * changes fetched from the API are merged into the stored rows they apply to.
+ * </p>
+ */
+public class ReviewDatabaseHelper extends SQLiteOpenHelper {
+
+    static final String DATABASE_NAME = "reviews.db";
+    static final int DATABASE_VERSION = 9;
+
+    static final String TABLE_REVIEWS = "reviews";
+    static final String COLUMN_ID = "_id";
+    static final String COLUMN_USERNAME = "username";
+    static final String COLUMN_PICTURE = "picture";
+    static final String COLUMN_COMMENT = "comment";
+    static final String COLUMN_RATE = "rate";
+    static final String COLUMN_SORT_KEY = "sort_key";
+    static final String COLUMN_SOURCE = "source";
+    static final String COLUMN_RESTAURANT_ID = "restaurant_id";
+    static final String COLUMN_CREATED_AT = "created_at";
+    static final String COLUMN_REMOTE_ID = "remote_id";
+
+    static final String TABLE_REVIEWS_FTS = "reviews_fts";
+
+    static final String TABLE_OUTBOX = "review_outbox";
+    static final String COLUMN_REVIEW_ID = "review_id";
+
+    static final String TABLE_SYNC_STATE = "sync_state";
+    static final String COLUMN_KEY = "key";
+    static final String COLUMN_VALUE = "value";
+
+    /** Prefix of the {@link #TABLE_SYNC_STATE} key recording whether the reviews of a restaurant have been imported. */
+    static final String KEY_PRIMED_PREFIX = "primed:";
+
+    /** Prefix of the {@link #TABLE_SYNC_STATE} key recording the sync token of the reviews of a restaurant. */
+    static final String KEY_SYNC_TOKEN_PREFIX = "syncToken:";
+
+    /** Identifier of the restaurant owning the reviews stored before restaurants had identifiers. */
+    private static final String LEGACY_RESTAURANT_ID = "taj-mahal-paris";
+
+    /** Value of {@link #COLUMN_SOURCE} for a review imported from the API. */
+    static final int SOURCE_REMOTE = 0;
+
+    /** Value of {@link #COLUMN_SOURCE} for a review written on the device. */
+    static final int SOURCE_LOCAL = 1;
+
+    /**
+     * Constructs a new helper for the reviews database.
+     *
+     * @param context The context used to locate the database file.
+     */
+    public ReviewDatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * Constructs a new helper for a reviews database with the given name.
+     *
+     * @param context The context used to locate the database file.
+     * @param name    The name of the database file, or null for a database kept in memory.
+     */
+    ReviewDatabaseHelper(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        // Lets pages be read while an import is being written
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Creates the first version of the schema, then applies every migration, so that new
+     * installs and upgraded ones always end up with the same schema.
+     */
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_REVIEWS + " ("
+                + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COLUMN_USERNAME + " TEXT, "
+                + COLUMN_PICTURE + " TEXT, "
+                + COLUMN_COMMENT + " TEXT, "
+                + COLUMN_RATE + " INTEGER NOT NULL, "
+                + COLUMN_SORT_KEY + " INTEGER NOT NULL, "
+                + COLUMN_SOURCE + " INTEGER NOT NULL)");
+        db.execSQL("CREATE UNIQUE INDEX idx_reviews_sort_key ON " + TABLE_REVIEWS + " (" + COLUMN_SORT_KEY + ")");
+        db.execSQL("CREATE TABLE " + TABLE_SYNC_STATE + " ("
+                + COLUMN_KEY + " TEXT PRIMARY KEY, "
+                + COLUMN_VALUE + " TEXT)");
+        onUpgrade(db, 1, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("CREATE INDEX idx_reviews_rate ON " + TABLE_REVIEWS + " (" + COLUMN_RATE + ")");
+        }
+        if (oldVersion < 3) {
+            // Reviews stored before version 3 all belong to the only restaurant the app knew about
+            db.execSQL("ALTER TABLE " + TABLE_REVIEWS + " ADD COLUMN " + COLUMN_RESTAURANT_ID
+                    + " TEXT NOT NULL DEFAULT '" + LEGACY_RESTAURANT_ID + "'");
+            db.execSQL("DROP INDEX idx_reviews_sort_key");
+            db.execSQL("DROP INDEX idx_reviews_rate");
+            db.execSQL("CREATE UNIQUE INDEX idx_reviews_restaurant_sort_key ON " + TABLE_REVIEWS
+                    + " (" + COLUMN_RESTAURANT_ID + ", " + COLUMN_SORT_KEY + ")");
+            db.execSQL("CREATE INDEX idx_reviews_restaurant_rate ON " + TABLE_REVIEWS
+                    + " (" + COLUMN_RESTAURANT_ID + ", " + COLUMN_RATE + ")");
+            db.execSQL("UPDATE " + TABLE_SYNC_STATE + " SET " + COLUMN_KEY + " = '" + KEY_PRIMED_PREFIX
+                    + LEGACY_RESTAURANT_ID + "' WHERE " + COLUMN_KEY + " = 'primed'");
+        }
+        if (oldVersion < 4) {
+            // External content table: the index refers to the reviews rows by id instead of copying the comments
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_REVIEWS_FTS + " USING fts4(content=\"" + TABLE_REVIEWS + "\", "
+                    + COLUMN_COMMENT + ", tokenize=unicode61 \"remove_diacritics=1\", prefix=\"2,3\")");
+            db.execSQL("CREATE TRIGGER reviews_fts_after_insert AFTER INSERT ON " + TABLE_REVIEWS + " BEGIN "
+                    + "INSERT INTO " + TABLE_REVIEWS_FTS + " (docid, " + COLUMN_COMMENT + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_COMMENT + "); END");
+            db.execSQL("CREATE TRIGGER reviews_fts_before_delete BEFORE DELETE ON " + TABLE_REVIEWS + " BEGIN "
+                    + "DELETE FROM " + TABLE_REVIEWS_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+            db.execSQL("CREATE TRIGGER reviews_fts_before_update BEFORE UPDATE ON " + TABLE_REVIEWS + " BEGIN "
+                    + "DELETE FROM " + TABLE_REVIEWS_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+            db.execSQL("CREATE TRIGGER reviews_fts_after_update AFTER UPDATE ON " + TABLE_REVIEWS + " BEGIN "
+                    + "INSERT INTO " + TABLE_REVIEWS_FTS + " (docid, " + COLUMN_COMMENT + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_COMMENT + "); END");
+            // Index the reviews stored before version 4
+            db.execSQL("INSERT INTO " + TABLE_REVIEWS_FTS + " (" + TABLE_REVIEWS_FTS + ") VALUES ('rebuild')");
+        }
+        if (oldVersion < 5) {
+            // Extends the rating index with the sort key, so that each rating bucket is read newest first
+            db.execSQL("DROP INDEX idx_reviews_restaurant_rate");
+            db.execSQL("CREATE INDEX idx_reviews_restaurant_rate_sort_key ON " + TABLE_REVIEWS
+                    + " (" + COLUMN_RESTAURANT_ID + ", " + COLUMN_RATE + ", " + COLUMN_SORT_KEY + ")");
+        }
+        if (oldVersion < 6) {
+            db.execSQL("CREATE TABLE " + TABLE_OUTBOX + " ("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + COLUMN_REVIEW_ID + " INTEGER NOT NULL)");
+            // Reviews written before version 6 were never sent
+            db.execSQL("INSERT INTO " + TABLE_OUTBOX + " (" + COLUMN_REVIEW_ID + ") SELECT " + COLUMN_ID
+                    + " FROM " + TABLE_REVIEWS + " WHERE " + COLUMN_SOURCE + " = " + SOURCE_LOCAL + " ORDER BY " + COLUMN_ID);
+        }
+        if (oldVersion < 7) {
+            // The creation time of reviews stored before version 7 is unknown: they are left out of recent ratings
+            db.execSQL("ALTER TABLE " + TABLE_REVIEWS + " ADD COLUMN " + COLUMN_CREATED_AT + " INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("CREATE INDEX idx_reviews_restaurant_created_at ON " + TABLE_REVIEWS
+                    + " (" + COLUMN_RESTAURANT_ID + ", " + COLUMN_CREATED_AT + ", " + COLUMN_RATE + ")");
+        }
+        if (oldVersion < 8) {
+            // Reviews imported before version 8 have no identifier: without a sync token, they are imported again
+            db.execSQL("ALTER TABLE " + TABLE_REVIEWS + " ADD COLUMN " + COLUMN_REMOTE_ID + " TEXT");
+            db.execSQL("CREATE UNIQUE INDEX idx_reviews_restaurant_remote_id ON " + TABLE_REVIEWS
+                    + " (" + COLUMN_RESTAURANT_ID + ", " + COLUMN_REMOTE_ID + ")");
+        }
+        if (oldVersion < 9) {
+            // Reviews deleted before version 9 while queued left entries behind, which were never sent nor removed
+            db.execSQL("DELETE FROM " + TABLE_OUTBOX + " WHERE " + COLUMN_REVIEW_ID + " NOT IN (SELECT "
+                    + COLUMN_ID + " FROM " + TABLE_REVIEWS + ")");
+            db.execSQL("CREATE TRIGGER review_outbox_after_review_delete AFTER DELETE ON " + TABLE_REVIEWS + " BEGIN "
+                    + "DELETE FROM " + TABLE_OUTBOX + " WHERE " + COLUMN_REVIEW_ID + " = old." + COLUMN_ID + "; END");
+        }
+    }
+}
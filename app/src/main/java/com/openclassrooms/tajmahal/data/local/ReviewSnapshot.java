@@ -0,0 +1,295 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only snapshot of the first pages of reviews of a restaurant, in a compact binary format
+ * read in place from a memory-mapped file.
+ * <p>
+ * Only the requested page is decoded: the offset index gives the position of each of its reviews,
+ * and usernames and picture URLs, which repeat across reviews, are stored once in a string table
+ * and decoded on use. Reading the first page costs the same whatever the size of the file.
+ * </p>
+ * <p>
+ * Layout, big-endian, with every string stored as its UTF-8 length on 4 bytes followed by its bytes:
+ * </p>
+ * <pre>
+ * header        magic, version, page size, page count, review count, string count,
+ *               string index offset, review index offset   (8 ints)
+ * page table    cursor and next cursor of each page, as string ids, -1 for none
+ * string index  offset of each string of the string table
+ * review index  offset of each review
+ * data          strings, then reviews: username id, picture id, comment (length -1 when null), rate,
+ *               creation time (long), server identifier id
+ * </pre>
+ * <p>
+ * Pages are stored newest first and all hold {@link #getPageSize()} reviews, except possibly the last one.
+ * </p>
+ */
+public class ReviewSnapshot {
+
+    /** First bytes of every snapshot file, "TMRS". */
+    static final int MAGIC = 0x544D5253;
+
+    /** Version of the layout, to be incremented whenever it changes. Snapshots of other versions are ignored. */
+    static final int VERSION = 3;
+
+    private static final int HEADER_SIZE = 8 * Integer.BYTES;
+    private static final int NO_STRING = -1;
+
+    private final ByteBuffer buffer;
+    private final int pageSize;
+    private final int pageCount;
+    private final int reviewCount;
+    private final int stringCount;
+    private final int stringIndexOffset;
+    private final int reviewIndexOffset;
+
+    private ReviewSnapshot(ByteBuffer buffer, int pageSize, int pageCount, int reviewCount, int stringCount,
+                           int stringIndexOffset, int reviewIndexOffset) {
+        this.buffer = buffer;
+        this.pageSize = pageSize;
+        this.pageCount = pageCount;
+        this.reviewCount = reviewCount;
+        this.stringCount = stringCount;
+        this.stringIndexOffset = stringIndexOffset;
+        this.reviewIndexOffset = reviewIndexOffset;
+    }
+
+    /**
+     * Reads the header of a snapshot. The rest of the buffer is only read when pages are requested.
+     *
+     * @param buffer the content of a snapshot file, typically memory-mapped
+     * @return the snapshot
+     * @throws IOException if the buffer does not hold a snapshot of the current version
+     */
+    public static ReviewSnapshot read(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a review snapshot");
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported review snapshot version " + buffer.getInt(Integer.BYTES));
+        }
+        int pageSize = buffer.getInt(2 * Integer.BYTES);
+        int pageCount = buffer.getInt(3 * Integer.BYTES);
+        int reviewCount = buffer.getInt(4 * Integer.BYTES);
+        int stringCount = buffer.getInt(5 * Integer.BYTES);
+        int stringIndexOffset = buffer.getInt(6 * Integer.BYTES);
+        int reviewIndexOffset = buffer.getInt(7 * Integer.BYTES);
+        if (pageSize <= 0 || pageCount < 0 || reviewCount < 0 || stringCount < 0
+                || HEADER_SIZE + 2L * pageCount * Integer.BYTES > stringIndexOffset
+                || stringIndexOffset + (long) stringCount * Integer.BYTES > reviewIndexOffset
+                || reviewIndexOffset + (long) reviewCount * Integer.BYTES > buffer.limit()) {
+            throw new IOException("Corrupted review snapshot header");
+        }
+        return new ReviewSnapshot(buffer, pageSize, pageCount, reviewCount, stringCount,
+                stringIndexOffset, reviewIndexOffset);
+    }
+
+    /**
+     * Writes a snapshot of consecutive pages of reviews.
+     *
+     * @param pages    the pages, starting with the first one, each following the previous one
+     * @param pageSize the number of reviews requested per page
+     * @param output   receives the snapshot
+     * @throws IOException if the output cannot be written
+     */
+    public static void write(List<ReviewPage> pages, int pageSize, OutputStream output) throws IOException {
+        // Give an id to every distinct string first, so that the string table precedes the reviews
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] pageTable = new int[2 * pages.size()];
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            ReviewPage page = pages.get(i);
+            pageTable[2 * i] = stringId(page.getCursor(), stringIds, strings);
+            pageTable[2 * i + 1] = stringId(page.getNextCursor(), stringIds, strings);
+            reviews.addAll(page.getReviews());
+        }
+        int[] reviewStringIds = new int[3 * reviews.size()];
+        for (int i = 0; i < reviews.size(); i++) {
+            reviewStringIds[3 * i] = stringId(reviews.get(i).getUsername(), stringIds, strings);
+            reviewStringIds[3 * i + 1] = stringId(reviews.get(i).getPicture(), stringIds, strings);
+            reviewStringIds[3 * i + 2] = stringId(reviews.get(i).getId(), stringIds, strings);
+        }
+
+        // Data section, with offsets relative to its start until the indexes are sized
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOutput = new DataOutputStream(data);
+        int[] stringOffsets = new int[strings.size()];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = dataOutput.size();
+            writeBytes(dataOutput, strings.get(i));
+        }
+        int[] reviewOffsets = new int[reviews.size()];
+        for (int i = 0; i < reviews.size(); i++) {
+            reviewOffsets[i] = dataOutput.size();
+            dataOutput.writeInt(reviewStringIds[3 * i]);
+            dataOutput.writeInt(reviewStringIds[3 * i + 1]);
+            writeNullableString(dataOutput, reviews.get(i).getComment());
+            dataOutput.writeInt(reviews.get(i).getRate());
+            dataOutput.writeLong(reviews.get(i).getCreatedAt());
+            dataOutput.writeInt(reviewStringIds[3 * i + 2]);
+        }
+
+        int stringIndexOffset = HEADER_SIZE + pageTable.length * Integer.BYTES;
+        int reviewIndexOffset = stringIndexOffset + strings.size() * Integer.BYTES;
+        int dataOffset = reviewIndexOffset + reviews.size() * Integer.BYTES;
+
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(pageSize);
+        out.writeInt(pages.size());
+        out.writeInt(reviews.size());
+        out.writeInt(strings.size());
+        out.writeInt(stringIndexOffset);
+        out.writeInt(reviewIndexOffset);
+        for (int id : pageTable) {
+            out.writeInt(id);
+        }
+        for (int offset : stringOffsets) {
+            out.writeInt(dataOffset + offset);
+        }
+        for (int offset : reviewOffsets) {
+            out.writeInt(dataOffset + offset);
+        }
+        data.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Returns the number of reviews requested per page when the snapshot was written.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Returns the number of reviews in the snapshot.
+     *
+     * @return the review count
+     */
+    public int getReviewCount() {
+        return reviewCount;
+    }
+
+    /**
+     * Decodes the page loaded with the given cursor, if the snapshot holds it.
+     *
+     * @param cursor the cursor of the page, null for the first page, or the next cursor of a page of the snapshot
+     * @return the page, with the cursors it had when the snapshot was written, or null if the snapshot does not hold it
+     * @throws IOException if the snapshot is corrupted
+     */
+    public ReviewPage findPage(String cursor) throws IOException {
+        if (cursor == null) {
+            return pageCount == 0 ? null : readPage(0);
+        }
+        for (int page = 1; page < pageCount; page++) {
+            if (cursor.equals(readString(pageTableEntry(page - 1, 1)))) {
+                return readPage(page);
+            }
+        }
+        return null;
+    }
+
+    private ReviewPage readPage(int page) throws IOException {
+        int first = page * pageSize;
+        int end = Math.min(reviewCount, first + pageSize);
+        List<Review> reviews = new ArrayList<>(Math.max(0, end - first));
+        for (int i = first; i < end; i++) {
+            reviews.add(readReview(i));
+        }
+        return new ReviewPage(readString(pageTableEntry(page, 0)), reviews, readString(pageTableEntry(page, 1)));
+    }
+
+    private int pageTableEntry(int page, int column) {
+        return buffer.getInt(HEADER_SIZE + (2 * page + column) * Integer.BYTES);
+    }
+
+    private Review readReview(int index) throws IOException {
+        int offset = buffer.getInt(reviewIndexOffset + index * Integer.BYTES);
+        checkBounds(offset, 3 * Integer.BYTES);
+        String username = readString(buffer.getInt(offset));
+        String picture = readString(buffer.getInt(offset + Integer.BYTES));
+        int commentOffset = offset + 2 * Integer.BYTES;
+        String comment;
+        int rateOffset;
+        if (buffer.getInt(commentOffset) == NO_STRING) {
+            comment = null;
+            rateOffset = commentOffset + Integer.BYTES;
+        } else {
+            comment = readBytes(commentOffset);
+            rateOffset = commentOffset + Integer.BYTES + buffer.getInt(commentOffset);
+        }
+        checkBounds(rateOffset, 2 * Integer.BYTES + Long.BYTES);
+        String id = readString(buffer.getInt(rateOffset + Integer.BYTES + Long.BYTES));
+        return new Review(id, username, picture, comment, buffer.getInt(rateOffset), buffer.getLong(rateOffset + Integer.BYTES));
+    }
+
+    private String readString(int id) throws IOException {
+        if (id == NO_STRING) {
+            return null;
+        }
+        if (id < 0 || id >= stringCount) {
+            throw new IOException("Corrupted review snapshot string id " + id);
+        }
+        return readBytes(buffer.getInt(stringIndexOffset + id * Integer.BYTES));
+    }
+
+    private String readBytes(int offset) throws IOException {
+        checkBounds(offset, Integer.BYTES);
+        int length = buffer.getInt(offset);
+        checkBounds(offset + Integer.BYTES, length);
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(offset + Integer.BYTES);
+        bytes.limit(offset + Integer.BYTES + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    private void checkBounds(int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || (long) offset + length > buffer.limit()) {
+            throw new IOException("Corrupted review snapshot offset " + offset);
+        }
+    }
+
+    private static int stringId(String value, Map<String, Integer> stringIds, List<byte[]> strings) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    private static void writeNullableString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NO_STRING); // A length no string has, without any bytes
+        } else {
+            writeBytes(output, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
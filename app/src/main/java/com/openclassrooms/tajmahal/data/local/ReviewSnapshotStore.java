@@ -0,0 +1,127 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import android.util.Log;
+
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one {@link ReviewSnapshot} file per restaurant in a directory, holding the first pages of
+ * its reviews as they were last read from the {@link ReviewStore}.
+ * <p>
+ * Snapshots are memory-mapped when first read and kept mapped until replaced or deleted, so
+ * serving a page from a snapshot neither opens the database nor reads the whole file. Files are
+ * written to a temporary file first, then renamed, so a snapshot is never read half-written.
+ * A snapshot that cannot be read is deleted and treated as missing. Methods are synchronized, so a
+ * snapshot being replaced or deleted is never mapped again by a concurrent read.
+ * </p>
+ */
+public class ReviewSnapshotStore {
+
+    private static final String TAG = "ReviewSnapshotStore";
+    private static final String FILE_EXTENSION = ".snapshot";
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    private final File directory;
+
+    // Snapshots mapped so far, by restaurant identifier
+    private final Map<String, ReviewSnapshot> mappedSnapshots = new HashMap<>();
+
+    /**
+     * Constructs a new store keeping its snapshots in the given directory, created on first write.
+     *
+     * @param directory The directory holding the snapshot files.
+     */
+    public ReviewSnapshotStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the snapshot of a restaurant, mapping its file on first access.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return The snapshot, or null if there is none or it cannot be read.
+     */
+    public synchronized ReviewSnapshot read(String restaurantId) {
+        ReviewSnapshot snapshot = mappedSnapshots.get(restaurantId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        File file = fileOf(restaurantId);
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            // The mapping stays valid once the channel is closed
+            snapshot = ReviewSnapshot.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            Log.w(TAG, "Deleting unreadable review snapshot " + file, e);
+            delete(restaurantId);
+            return null;
+        }
+        mappedSnapshots.put(restaurantId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Replaces the snapshot of a restaurant. Failures are logged, leaving the restaurant without snapshot.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param pages        The first pages of reviews of the restaurant, in order.
+     * @param pageSize     The number of reviews requested per page.
+     */
+    public synchronized void write(String restaurantId, List<ReviewPage> pages, int pageSize) {
+        delete(restaurantId);
+        File file = fileOf(restaurantId);
+        File temporaryFile = new File(directory, file.getName() + TEMPORARY_FILE_EXTENSION);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create the review snapshot directory " + directory);
+            return;
+        }
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(temporaryFile))) {
+            ReviewSnapshot.write(pages, pageSize, output);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write the review snapshot " + temporaryFile, e);
+            temporaryFile.delete();
+            return;
+        }
+        if (!temporaryFile.renameTo(file)) {
+            Log.w(TAG, "Cannot rename the review snapshot " + temporaryFile);
+            temporaryFile.delete();
+        }
+    }
+
+    /**
+     * Deletes the snapshot of a restaurant, if any, for instance because its reviews changed.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     */
+    public synchronized void delete(String restaurantId) {
+        mappedSnapshots.remove(restaurantId);
+        File file = fileOf(restaurantId);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Cannot delete the review snapshot " + file);
+        }
+    }
+
+    private File fileOf(String restaurantId) {
+        try {
+            return new File(directory, URLEncoder.encode(restaurantId, "UTF-8") + FILE_EXTENSION);
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported
+        }
+    }
+}
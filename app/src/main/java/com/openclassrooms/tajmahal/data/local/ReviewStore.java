@@ -0,0 +1,168 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+
+import java.util.List;
+
+/**
+ * Interface for the on-device copy of the reviews.
+ * <p>
+ * The store keeps the reviews of each restaurant ordered newest first and serves them page by
+ * page, so that the review screen can be displayed without waiting for the network. Reviews
+ * imported from the API are appended after the oldest stored review of their restaurant, while
+ * reviews written on the device are inserted before the newest one.
+ * </p>
+ * <p>
+ * Implementations may block on disk I/O: callers are expected to run writes off the main thread.
+ * </p>
+ *
+ * @see SqliteReviewStore
+ */
+public interface ReviewStore {
+
+    /**
+     * Indicates whether the store holds a complete copy of the reviews of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return true once an import has completed for that restaurant, false otherwise.
+     */
+    boolean isPrimed(String restaurantId);
+
+    /**
+     * Marks the store as holding, or no longer holding, a complete copy of the reviews of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param primed       true once an import has completed.
+     */
+    void setPrimed(String restaurantId, boolean primed);
+
+    /**
+     * Retrieves one page of the stored reviews of a restaurant, newest first.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param cursor       The cursor returned with the previous page, or null for the first page.
+     * @param pageSize     The maximum number of reviews to return.
+     * @return The requested page, whose cursors can only be handed back to this store.
+     */
+    ReviewPage getPage(String restaurantId, String cursor, int pageSize);
+
+    /**
+     * Retrieves one page of the stored reviews of a restaurant matching a query, in the order of the query.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param query        The rating to keep, if any, and the order of the reviews.
+     * @param cursor       The cursor returned with the previous page of the same query, or null for the first page.
+     * @param pageSize     The maximum number of reviews to return.
+     * @return The requested page, whose cursors can only be handed back to this store with the same query.
+     */
+    ReviewPage getPage(String restaurantId, ReviewQuery query, String cursor, int pageSize);
+
+    /**
+     * Searches the comments of the stored reviews of a restaurant, newest first.
+     * <p>
+     * Matching ignores case and accents, and every word of the query matches the words it is a
+     * prefix of: "rapi" finds "Rapide". A review matches when its comment contains every word of the query.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param query        The words to look for, as typed by the user.
+     * @param limit        The maximum number of reviews to return.
+     * @return The matching reviews, or an empty list if the query holds no word.
+     */
+    List<Review> search(String restaurantId, String query, int limit);
+
+    /**
+     * Counts the stored reviews of a restaurant per rating.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return The number of reviews per rating, index 0 holding the 1-star reviews.
+     */
+    long[] getRatingCounts(String restaurantId);
+
+    /**
+     * Totals the ratings of the stored reviews of a restaurant written since a given time, per day.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param since        The earliest creation time to count, in milliseconds since the epoch.
+     * @return The number of reviews and the sum of their ratings for each day holding at least one review.
+     */
+    List<DailyRatings> getDailyRatings(String restaurantId, long since);
+
+    /**
+     * Stores a review written on the device before every other stored review of its restaurant,
+     * and queues it for upload in the same transaction.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param review       The review to store.
+     */
+    void insertNewest(String restaurantId, Review review);
+
+    /**
+     * Stores a batch of reviews imported from the API after every other stored review of
+     * their restaurant, keeping the order of the batch. The batch is written in a single transaction.
+     * A review whose identifier is already stored for the restaurant, such as one that moved to the
+     * next page while the import was running, is skipped.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param reviews      The reviews to store, newest first.
+     * @return The reviews that were stored, in the order of the batch.
+     */
+    List<Review> appendOldest(String restaurantId, List<Review> reviews);
+
+    /**
+     * Deletes every review of a restaurant previously imported from the API, keeping the
+     * reviews written on the device. Called before an import starts again from the first page.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     */
+    void clearImported(String restaurantId);
+
+    /**
+     * Returns the sync token recorded with the reviews of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return The token to request the changes following the stored reviews with, or null if none was recorded.
+     */
+    String getSyncToken(String restaurantId);
+
+    /**
+     * Records the sync token of the reviews of a restaurant, once they have all been imported.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param syncToken    The token returned by the API before the import started.
+     */
+    void setSyncToken(String restaurantId, String syncToken);
+
+    /**
+     * Merges changes fetched from the API into the stored reviews of a restaurant, and records
+     * the sync token of the delta, in a single transaction.
+     * <p>
+     * An inserted or updated review replaces the stored review with the same identifier, or else
+     * the review written on the device it was uploaded from. Reviews with no stored copy are
+     * stored before every other review, in the order of the delta. Deleted reviews are removed.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param delta        The changes to merge.
+     * @return The stored reviews replaced or removed by the changes, as they were before.
+     */
+    List<Review> applyDelta(String restaurantId, ReviewDelta delta);
+
+    /**
+     * Retrieves the oldest reviews queued for upload by {@link #insertNewest(String, Review)}.
+     *
+     * @param limit The maximum number of reviews to return.
+     * @return The queued reviews, oldest first, or an empty list if none is queued.
+     */
+    List<PendingUpload> getPendingUploads(int limit);
+
+    /**
+     * Removes uploaded reviews from the upload queue. The reviews themselves stay in the store.
+     *
+     * @param uploads The uploads returned by {@link #getPendingUploads(int)} that were sent.
+     */
+    void removePendingUploads(List<PendingUpload> uploads);
+}
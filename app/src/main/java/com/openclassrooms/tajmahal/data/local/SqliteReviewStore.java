@@ -0,0 +1,465 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.openclassrooms.tajmahal.data.local.ReviewDatabaseHelper.*;
+
+/**
+ * {@link ReviewStore} implementation backed by a SQLite database.
+ * <p>
+ * Pages are read with keyset pagination: the cursor of a page is the sort key of the last review
+ * of the previous page, so reading any page costs the same whatever its position in the list.
+ * Pages filtered or sorted by rating are read the same way from the bucket of each rating.
+ * </p>
+ * <p>
+ * Searches go through the full-text index of the comments, so their cost depends on the number
+ * of matching reviews rather than on the number of stored ones.
+ * </p>
+ * <p>
+ * Changes fetched from the API find the rows they apply to through the index of the server
+ * identifiers, so merging a delta costs the same whatever the number of stored reviews.
+ * </p>
+ */
+public class SqliteReviewStore implements ReviewStore {
+
+    // Separates the rating bucket from the sort key in the cursors of pages sorted by rating
+    private static final String BUCKET_CURSOR_SEPARATOR = ":";
+
+    private static final String[] REVIEW_COLUMNS = {
+            COLUMN_REMOTE_ID, COLUMN_USERNAME, COLUMN_PICTURE, COLUMN_COMMENT, COLUMN_RATE, COLUMN_CREATED_AT, COLUMN_SORT_KEY
+    };
+
+    // Columns of a stored review read before it is replaced by a change from the API
+    private static final String[] STORED_REVIEW_COLUMNS = {
+            COLUMN_ID, COLUMN_REMOTE_ID, COLUMN_USERNAME, COLUMN_PICTURE, COLUMN_COMMENT, COLUMN_RATE, COLUMN_CREATED_AT
+    };
+
+    private final ReviewDatabaseHelper databaseHelper;
+
+    // Cached values of the primed flags by restaurant, read from the database on first access
+    private final Map<String, Boolean> primed = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new store using the reviews database of the application.
+     *
+     * @param context The context used to open the database.
+     */
+    public SqliteReviewStore(Context context) {
+        this(context, ReviewDatabaseHelper.DATABASE_NAME);
+    }
+
+    /**
+     * Constructs a new store using the given database.
+     *
+     * @param context      The context used to open the database.
+     * @param databaseName The name of the database file, or null for a database kept in memory.
+     */
+    SqliteReviewStore(Context context, String databaseName) {
+        this.databaseHelper = new ReviewDatabaseHelper(context, databaseName);
+    }
+
+    @Override
+    public boolean isPrimed(String restaurantId) {
+        Boolean cached = primed.get(restaurantId);
+        if (cached == null) {
+            String value = DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(),
+                    "SELECT COALESCE((SELECT " + COLUMN_VALUE + " FROM " + TABLE_SYNC_STATE
+                            + " WHERE " + COLUMN_KEY + " = ?), 'false')",
+                    new String[]{KEY_PRIMED_PREFIX + restaurantId});
+            cached = Boolean.parseBoolean(value);
+            primed.put(restaurantId, cached);
+        }
+        return cached;
+    }
+
+    @Override
+    public void setPrimed(String restaurantId, boolean primed) {
+        writeSyncState(databaseHelper.getWritableDatabase(), KEY_PRIMED_PREFIX + restaurantId, String.valueOf(primed));
+        this.primed.put(restaurantId, primed);
+    }
+
+    @Override
+    public ReviewPage getPage(String restaurantId, String cursor, int pageSize) {
+        return getPage(restaurantId, ReviewQuery.ALL, cursor, pageSize);
+    }
+
+    @Override
+    public ReviewPage getPage(String restaurantId, ReviewQuery query, String cursor, int pageSize) {
+        List<Review> reviews = new ArrayList<>(pageSize);
+        if (query.getSort() == ReviewQuery.Sort.NEWEST || query.getRating() != null) {
+            // The whole list or a single rating bucket, both read newest first
+            String nextCursor = readNewestFirst(restaurantId, query.getRating(), cursor, pageSize, reviews);
+            return new ReviewPage(cursor, reviews, nextCursor);
+        }
+
+        // Sorted by rating: the rating buckets are read one after the other, each newest first,
+        // and the cursor records the bucket to resume from along with the sort key
+        int step = query.getSort() == ReviewQuery.Sort.HIGHEST ? -1 : 1;
+        int rate = step < 0 ? RatingSummary.MAX_RATING : 1;
+        String sortKey = null;
+        if (cursor != null) {
+            int separator = cursor.indexOf(BUCKET_CURSOR_SEPARATOR);
+            rate = Integer.parseInt(cursor.substring(0, separator));
+            sortKey = separator == cursor.length() - 1 ? null : cursor.substring(separator + 1);
+        }
+        for (; rate >= 1 && rate <= RatingSummary.MAX_RATING; rate += step) {
+            String nextSortKey = readNewestFirst(restaurantId, rate, sortKey, pageSize - reviews.size(), reviews);
+            if (nextSortKey != null) {
+                return new ReviewPage(cursor, reviews, rate + BUCKET_CURSOR_SEPARATOR + nextSortKey);
+            }
+            sortKey = null; // The following bucket is read from its newest review
+        }
+        return new ReviewPage(cursor, reviews, null);
+    }
+
+    /**
+     * Reads up to {@code limit} reviews of a restaurant older than a sort key, newest first,
+     * optionally only the ones giving a number of stars, and adds them to the given list.
+     *
+     * @return The sort key to resume from if older reviews remain, empty if they start at the
+     * newest review of the bucket, or null if none remain.
+     */
+    private String readNewestFirst(String restaurantId, Integer rate, String beforeSortKey, int limit, List<Review> reviews) {
+        StringBuilder selection = new StringBuilder(COLUMN_RESTAURANT_ID + " = ?");
+        List<String> selectionArgs = new ArrayList<>();
+        selectionArgs.add(restaurantId);
+        if (rate != null) {
+            selection.append(" AND " + COLUMN_RATE + " = ?");
+            selectionArgs.add(String.valueOf(rate));
+        }
+        if (beforeSortKey != null) {
+            selection.append(" AND " + COLUMN_SORT_KEY + " < ?");
+            selectionArgs.add(beforeSortKey);
+        }
+
+        // One extra row is read to know whether older reviews remain
+        int added = 0;
+        long lastSortKey = 0;
+        try (Cursor rows = databaseHelper.getReadableDatabase().query(TABLE_REVIEWS, REVIEW_COLUMNS,
+                selection.toString(), selectionArgs.toArray(new String[0]), null, null,
+                COLUMN_SORT_KEY + " DESC", String.valueOf(limit + 1))) {
+            while (rows.moveToNext()) {
+                if (added == limit) {
+                    if (added > 0) {
+                        return String.valueOf(lastSortKey);
+                    }
+                    return beforeSortKey == null ? "" : beforeSortKey;
+                }
+                reviews.add(new Review(rows.getString(0), rows.getString(1), rows.getString(2), rows.getString(3), rows.getInt(4), rows.getLong(5)));
+                lastSortKey = rows.getLong(6);
+                added++;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Review> search(String restaurantId, String query, int limit) {
+        String matchQuery = toMatchQuery(query);
+        if (matchQuery.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Review> reviews = new ArrayList<>();
+        try (Cursor rows = databaseHelper.getReadableDatabase().rawQuery("SELECT " + COLUMN_REMOTE_ID + ", " + COLUMN_USERNAME + ", "
+                + COLUMN_PICTURE + ", " + COLUMN_COMMENT + ", " + COLUMN_RATE + ", " + COLUMN_CREATED_AT + " FROM " + TABLE_REVIEWS
+                + " WHERE " + COLUMN_ID + " IN (SELECT docid FROM " + TABLE_REVIEWS_FTS + " WHERE " + TABLE_REVIEWS_FTS + " MATCH ?)"
+                + " AND " + COLUMN_RESTAURANT_ID + " = ? ORDER BY " + COLUMN_SORT_KEY + " DESC LIMIT ?",
+                new String[]{matchQuery, restaurantId, String.valueOf(limit)})) {
+            while (rows.moveToNext()) {
+                reviews.add(new Review(rows.getString(0), rows.getString(1), rows.getString(2), rows.getString(3), rows.getInt(4), rows.getLong(5)));
+            }
+        }
+        return reviews;
+    }
+
+    @Override
+    public long[] getRatingCounts(String restaurantId) {
+        long[] counts = new long[RatingSummary.MAX_RATING];
+        try (Cursor rows = databaseHelper.getReadableDatabase().rawQuery("SELECT " + COLUMN_RATE + ", COUNT(*) FROM "
+                + TABLE_REVIEWS + " WHERE " + COLUMN_RESTAURANT_ID + " = ? GROUP BY " + COLUMN_RATE,
+                new String[]{restaurantId})) {
+            while (rows.moveToNext()) {
+                int rate = Math.max(1, Math.min(RatingSummary.MAX_RATING, rows.getInt(0)));
+                counts[rate - 1] += rows.getLong(1);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<DailyRatings> getDailyRatings(String restaurantId, long since) {
+        List<DailyRatings> dailyRatings = new ArrayList<>();
+        // Ratings are clamped like in the rating counts, and the range is read from the creation time index
+        try (Cursor rows = databaseHelper.getReadableDatabase().rawQuery("SELECT " + COLUMN_CREATED_AT + " / "
+                + DailyRatings.DAY_MILLIS + " AS day, COUNT(*), SUM(MIN(MAX(" + COLUMN_RATE + ", 1), " + RatingSummary.MAX_RATING
+                + ")) FROM " + TABLE_REVIEWS + " WHERE " + COLUMN_RESTAURANT_ID + " = ? AND " + COLUMN_CREATED_AT + " >= ? GROUP BY day",
+                new String[]{restaurantId, String.valueOf(since)})) {
+            while (rows.moveToNext()) {
+                dailyRatings.add(new DailyRatings(rows.getLong(0), rows.getLong(1), rows.getLong(2)));
+            }
+        }
+        return dailyRatings;
+    }
+
+    @Override
+    public void insertNewest(String restaurantId, Review review) {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            long sortKey = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(" + COLUMN_SORT_KEY + "), 0) + 1 FROM "
+                    + TABLE_REVIEWS + " WHERE " + COLUMN_RESTAURANT_ID + " = ?", new String[]{restaurantId});
+            long reviewId = db.insertOrThrow(TABLE_REVIEWS, null, toContentValues(restaurantId, review, sortKey, SOURCE_LOCAL));
+            ContentValues upload = new ContentValues();
+            upload.put(COLUMN_REVIEW_ID, reviewId);
+            db.insertOrThrow(TABLE_OUTBOX, null, upload);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Override
+    public List<Review> appendOldest(String restaurantId, List<Review> reviews) {
+        List<Review> appended = new ArrayList<>(reviews.size());
+        if (reviews.isEmpty()) {
+            return appended;
+        }
+
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        // Ignored when the unique index on the server identifier already holds the review
+        try (SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_REVIEWS + " ("
+                + COLUMN_RESTAURANT_ID + ", " + COLUMN_USERNAME + ", " + COLUMN_PICTURE + ", " + COLUMN_COMMENT + ", "
+                + COLUMN_RATE + ", " + COLUMN_CREATED_AT + ", " + COLUMN_SORT_KEY + ", " + COLUMN_SOURCE + ", " + COLUMN_REMOTE_ID
+                + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            long sortKey = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MIN(" + COLUMN_SORT_KEY + "), 1) - 1 FROM "
+                    + TABLE_REVIEWS + " WHERE " + COLUMN_RESTAURANT_ID + " = ?", new String[]{restaurantId});
+            for (Review review : reviews) {
+                insert.bindString(1, restaurantId);
+                bindNullableString(insert, 2, review.getUsername());
+                bindNullableString(insert, 3, review.getPicture());
+                bindNullableString(insert, 4, review.getComment());
+                insert.bindLong(5, review.getRate());
+                insert.bindLong(6, review.getCreatedAt());
+                insert.bindLong(7, sortKey--);
+                insert.bindLong(8, SOURCE_REMOTE);
+                bindNullableString(insert, 9, review.getId());
+                if (insert.executeInsert() != -1) {
+                    appended.add(review);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return appended;
+    }
+
+    @Override
+    public void clearImported(String restaurantId) {
+        databaseHelper.getWritableDatabase().delete(TABLE_REVIEWS,
+                COLUMN_RESTAURANT_ID + " = ? AND " + COLUMN_SOURCE + " = ?",
+                new String[]{restaurantId, String.valueOf(SOURCE_REMOTE)});
+    }
+
+    @Override
+    public String getSyncToken(String restaurantId) {
+        return DatabaseUtils.stringForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT (SELECT " + COLUMN_VALUE + " FROM " + TABLE_SYNC_STATE + " WHERE " + COLUMN_KEY + " = ?)",
+                new String[]{KEY_SYNC_TOKEN_PREFIX + restaurantId});
+    }
+
+    @Override
+    public void setSyncToken(String restaurantId, String syncToken) {
+        writeSyncState(databaseHelper.getWritableDatabase(), KEY_SYNC_TOKEN_PREFIX + restaurantId, syncToken);
+    }
+
+    @Override
+    public List<Review> applyDelta(String restaurantId, ReviewDelta delta) {
+        List<Review> replaced = new ArrayList<>();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (String deletedId : delta.getDeletedIds()) {
+                long rowId = findStoredCopy(db, restaurantId, deletedId, null, replaced);
+                if (rowId != -1) {
+                    db.delete(TABLE_REVIEWS, COLUMN_ID + " = ?", new String[]{String.valueOf(rowId)});
+                }
+            }
+            for (Review review : delta.getUpdated()) {
+                upsert(db, restaurantId, review, replaced);
+            }
+            for (Review review : delta.getInserted()) {
+                upsert(db, restaurantId, review, replaced);
+            }
+            writeSyncState(db, KEY_SYNC_TOKEN_PREFIX + restaurantId, delta.getSyncToken());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return replaced;
+    }
+
+    /**
+     * Replaces the stored copy of a review fetched from the API, or stores the review before
+     * every other review of its restaurant if it has no stored copy.
+     */
+    private void upsert(SQLiteDatabase db, String restaurantId, Review review, List<Review> replaced) {
+        long rowId = findStoredCopy(db, restaurantId, review.getId(), review, replaced);
+        if (rowId != -1) {
+            // The review keeps its position in the list
+            ContentValues values = new ContentValues();
+            values.put(COLUMN_REMOTE_ID, review.getId());
+            values.put(COLUMN_USERNAME, review.getUsername());
+            values.put(COLUMN_PICTURE, review.getPicture());
+            values.put(COLUMN_COMMENT, review.getComment());
+            values.put(COLUMN_RATE, review.getRate());
+            values.put(COLUMN_CREATED_AT, review.getCreatedAt());
+            values.put(COLUMN_SOURCE, SOURCE_REMOTE); // Known to the server from now on
+            db.update(TABLE_REVIEWS, values, COLUMN_ID + " = ?", new String[]{String.valueOf(rowId)});
+            return;
+        }
+        long sortKey = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(" + COLUMN_SORT_KEY + "), 0) + 1 FROM "
+                + TABLE_REVIEWS + " WHERE " + COLUMN_RESTAURANT_ID + " = ?", new String[]{restaurantId});
+        db.insertOrThrow(TABLE_REVIEWS, null, toContentValues(restaurantId, review, sortKey, SOURCE_REMOTE));
+    }
+
+    /**
+     * Finds the stored copy of a review: the row with the given server identifier or, failing that,
+     * the review written on the device that was uploaded as the given review, if any.
+     * The stored copy is added to {@code replaced} as it was before the change.
+     *
+     * @return The row id of the stored copy, or -1 if there is none.
+     */
+    private long findStoredCopy(SQLiteDatabase db, String restaurantId, String remoteId, Review uploaded, List<Review> replaced) {
+        if (remoteId != null) {
+            try (Cursor rows = db.query(TABLE_REVIEWS, STORED_REVIEW_COLUMNS,
+                    COLUMN_RESTAURANT_ID + " = ? AND " + COLUMN_REMOTE_ID + " = ?",
+                    new String[]{restaurantId, remoteId}, null, null, null)) {
+                if (rows.moveToNext()) {
+                    return readStoredCopy(rows, replaced);
+                }
+            }
+        }
+        if (uploaded == null || uploaded.getUsername() == null || uploaded.getComment() == null) {
+            return -1;
+        }
+        // The server only learns about reviews written on the device through their upload, which
+        // returns no identifier: they are recognized by their author, comment and creation time
+        try (Cursor rows = db.query(TABLE_REVIEWS, STORED_REVIEW_COLUMNS,
+                COLUMN_RESTAURANT_ID + " = ? AND " + COLUMN_CREATED_AT + " = ? AND " + COLUMN_REMOTE_ID + " IS NULL AND "
+                        + COLUMN_SOURCE + " = " + SOURCE_LOCAL + " AND " + COLUMN_USERNAME + " = ? AND " + COLUMN_COMMENT + " = ?",
+                new String[]{restaurantId, String.valueOf(uploaded.getCreatedAt()), uploaded.getUsername(), uploaded.getComment()},
+                null, null, null, "1")) {
+            if (rows.moveToNext()) {
+                return readStoredCopy(rows, replaced);
+            }
+        }
+        return -1;
+    }
+
+    private static long readStoredCopy(Cursor rows, List<Review> replaced) {
+        replaced.add(new Review(rows.getString(1), rows.getString(2), rows.getString(3), rows.getString(4),
+                rows.getInt(5), rows.getLong(6)));
+        return rows.getLong(0);
+    }
+
+    @Override
+    public List<PendingUpload> getPendingUploads(int limit) {
+        List<PendingUpload> uploads = new ArrayList<>();
+        try (Cursor rows = databaseHelper.getReadableDatabase().rawQuery("SELECT o." + COLUMN_ID + ", r." + COLUMN_RESTAURANT_ID
+                + ", r." + COLUMN_USERNAME + ", r." + COLUMN_PICTURE + ", r." + COLUMN_COMMENT + ", r." + COLUMN_RATE
+                + ", r." + COLUMN_CREATED_AT + " FROM " + TABLE_OUTBOX + " o JOIN " + TABLE_REVIEWS + " r ON r." + COLUMN_ID + " = o." + COLUMN_REVIEW_ID
+                + " ORDER BY o." + COLUMN_ID + " LIMIT ?", new String[]{String.valueOf(limit)})) {
+            while (rows.moveToNext()) {
+                Review review = new Review(rows.getString(2), rows.getString(3), rows.getString(4), rows.getInt(5), rows.getLong(6));
+                uploads.add(new PendingUpload(rows.getLong(0), rows.getString(1), review));
+            }
+        }
+        return uploads;
+    }
+
+    @Override
+    public void removePendingUploads(List<PendingUpload> uploads) {
+        if (uploads.isEmpty()) {
+            return;
+        }
+
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransaction();
+        try (SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLE_OUTBOX + " WHERE " + COLUMN_ID + " = ?")) {
+            for (PendingUpload upload : uploads) {
+                delete.bindLong(1, upload.getId());
+                delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Turns a query typed by the user into an FTS query matching every word of the query as a prefix.
+     * Anything but letters and digits separates words, so the user cannot inject FTS operators.
+     */
+    static String toMatchQuery(String query) {
+        StringBuilder matchQuery = new StringBuilder();
+        // Lower case so that words such as OR and NOT are never read as operators
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) {
+                if (matchQuery.length() > 0) {
+                    matchQuery.append(' ');
+                }
+                matchQuery.append(word).append('*');
+            }
+        }
+        return matchQuery.toString();
+    }
+
+    private static void writeSyncState(SQLiteDatabase db, String key, String value) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_KEY, key);
+        values.put(COLUMN_VALUE, value);
+        db.insertWithOnConflict(TABLE_SYNC_STATE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static ContentValues toContentValues(String restaurantId, Review review, long sortKey, int source) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_RESTAURANT_ID, restaurantId);
+        values.put(COLUMN_REMOTE_ID, review.getId());
+        values.put(COLUMN_USERNAME, review.getUsername());
+        values.put(COLUMN_PICTURE, review.getPicture());
+        values.put(COLUMN_COMMENT, review.getComment());
+        values.put(COLUMN_RATE, review.getRate());
+        values.put(COLUMN_CREATED_AT, review.getCreatedAt());
+        values.put(COLUMN_SORT_KEY, sortKey);
+        values.put(COLUMN_SOURCE, source);
+        return values;
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+}
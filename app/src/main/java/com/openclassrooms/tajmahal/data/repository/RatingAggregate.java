@@ -0,0 +1,62 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+
+/**
+ * Running aggregate of review ratings: count, sum and number of reviews per rating.
+ * <p>
+ * Each added or removed review updates the aggregate in constant time, so the average rating
+ * never requires walking the review list. Ratings outside 1 to {@link RatingSummary#MAX_RATING}
+ * are clamped to the nearest bound.
+ * </p>
+ * <p>
+ * This class is not thread-safe: it is only updated from the executor writing to the review store.
+ * </p>
+ */
+public class RatingAggregate {
+
+    private final long[] histogram = new long[RatingSummary.MAX_RATING];
+
+    /**
+     * Records a review with the given rating.
+     *
+     * @param rating the rating of the added review
+     */
+    public void add(int rating) {
+        histogram[index(rating)]++;
+    }
+
+    /**
+     * Forgets a review with the given rating.
+     *
+     * @param rating the rating of the removed review
+     */
+    public void remove(int rating) {
+        int index = index(rating);
+        if (histogram[index] > 0) {
+            histogram[index]--;
+        }
+    }
+
+    /**
+     * Replaces the aggregate with the given number of reviews per rating.
+     *
+     * @param counts the number of reviews per rating, index 0 holding the 1-star reviews
+     */
+    public void reset(long[] counts) {
+        System.arraycopy(counts, 0, histogram, 0, histogram.length);
+    }
+
+    /**
+     * Returns an immutable snapshot of the aggregate.
+     *
+     * @return the current {@link RatingSummary}
+     */
+    public RatingSummary snapshot() {
+        return new RatingSummary(histogram);
+    }
+
+    private static int index(int rating) {
+        return Math.max(1, Math.min(RatingSummary.MAX_RATING, rating)) - 1;
+    }
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.data.local.DailyRatings;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rolling aggregate of the review ratings of the last {@link #DAYS} days, one bucket per day.
+ * <p>
+ * The buckets form a ring indexed by day: each added or removed review updates the bucket of its
+ * day in constant time, and a bucket still holding a day older than the ring is reset before
+ * being reused, so old reviews expire without ever being removed one by one. A {@link RatingTrend} is
+ * built by summing at most {@link #DAYS} buckets, whatever the number of reviews. Reviews older
+ * than the ring are ignored, and ratings are clamped like in {@link RatingAggregate}.
+ * </p>
+ * <p>
+ * This class is not thread-safe: it is only updated from the executor writing to the review store.
+ * </p>
+ */
+public class RatingTrendAggregate {
+
+    /** The number of days covered by the ring, enough for the longest {@link RatingTrend.Window}. */
+    public static final int DAYS = RatingTrend.Window.LAST_90_DAYS.getDays();
+
+    // Marks a bucket that never held any day, older than every day
+    private static final long NO_DAY = Long.MIN_VALUE;
+
+    private final long[] days = new long[DAYS];
+    private final long[] counts = new long[DAYS];
+    private final long[] sums = new long[DAYS];
+
+    /**
+     * Constructs an empty aggregate.
+     */
+    public RatingTrendAggregate() {
+        Arrays.fill(days, NO_DAY);
+    }
+
+    /**
+     * Records a review.
+     *
+     * @param rating    the rating of the added review
+     * @param createdAt the time the review was written, in milliseconds since the epoch
+     */
+    public void add(int rating, long createdAt) {
+        add(DailyRatings.toEpochDay(createdAt), 1, Math.max(1, Math.min(RatingSummary.MAX_RATING, rating)));
+    }
+
+    /**
+     * Forgets a review. Does nothing if its day is no longer covered by the ring.
+     *
+     * @param rating    the rating of the removed review
+     * @param createdAt the time the review was written, in milliseconds since the epoch
+     */
+    public void remove(int rating, long createdAt) {
+        long epochDay = DailyRatings.toEpochDay(createdAt);
+        int slot = (int) Math.floorMod(epochDay, (long) DAYS);
+        if (days[slot] == epochDay && counts[slot] > 0) {
+            counts[slot]--;
+            sums[slot] -= Math.max(1, Math.min(RatingSummary.MAX_RATING, rating));
+        }
+    }
+
+    /**
+     * Replaces the aggregate with the given daily totals.
+     *
+     * @param dailyRatings the number of reviews and the sum of their ratings per day
+     */
+    public void reset(List<DailyRatings> dailyRatings) {
+        Arrays.fill(days, NO_DAY);
+        for (DailyRatings day : dailyRatings) {
+            add(day.getEpochDay(), day.getCount(), day.getSum());
+        }
+    }
+
+    /**
+     * Returns an immutable snapshot of the aggregate, for windows ending on the day of the given time.
+     *
+     * @param now the current time, in milliseconds since the epoch
+     * @return the current {@link RatingTrend}
+     */
+    public RatingTrend snapshot(long now) {
+        long today = DailyRatings.toEpochDay(now);
+        RatingTrend.Window[] windows = RatingTrend.Window.values();
+        long[] windowCounts = new long[windows.length];
+        long[] windowSums = new long[windows.length];
+        for (int slot = 0; slot < DAYS; slot++) {
+            if (days[slot] == NO_DAY) {
+                continue;
+            }
+            long age = today - days[slot];
+            for (RatingTrend.Window window : windows) {
+                // Days after today, from a skewed clock, are not counted until they are reached
+                if (age >= 0 && age < window.getDays()) {
+                    windowCounts[window.ordinal()] += counts[slot];
+                    windowSums[window.ordinal()] += sums[slot];
+                }
+            }
+        }
+        return new RatingTrend(windowCounts, windowSums);
+    }
+
+    private void add(long epochDay, long count, long sum) {
+        int slot = (int) Math.floorMod(epochDay, (long) DAYS);
+        if (days[slot] != epochDay) {
+            if (days[slot] > epochDay) {
+                return; // The bucket holds a newer day: this one is older than the ring
+            }
+            days[slot] = epochDay;
+            counts[slot] = 0;
+            sums[slot] = 0;
+        }
+        counts[slot] += count;
+        sums[slot] += sum;
+    }
+}
@@ -1,12 +1,27 @@
 package com.openclassrooms.tajmahal.data.repository;
 
+import android.os.SystemClock;
+
+import androidx.collection.LruCache;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.data.service.AsyncRestaurantApi;
 import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.di.AppModule;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 
@@ -17,38 +32,231 @@ import javax.inject.Singleton;
  * Typically in an Android app built with architecture components, the repository will handle
  * the logic for deciding whether to fetch data from a network source or use data from a local cache.
  *
+ * Requests go through the {@link AsyncRestaurantApi}, so they never block the calling thread:
+ * results are posted into LiveData once available, and the progress of the requests for each
+ * restaurant is reported through {@link #getLoadState(String)}.
+ *
+ * The details of the most recently opened restaurants are kept in a size-bounded LRU cache keyed
+ * by restaurant identifier, and served stale-while-revalidate: a cached restaurant is emitted
+ * immediately, and once it is older than the configured time to live it is also fetched again in
+ * the background. The refreshed restaurant is only emitted if it differs from the cached one.
+ *
+ * Fetches go through a {@link SingleFlight} keyed by restaurant identifier: whether a restaurant
+ * is missing from the cache or being revalidated, requests made while it is being fetched share
+ * that call, so screens requesting the same restaurant at the same time never send duplicate calls.
+ *
+ * The time taken by {@link #getRestaurant(String)} itself, the duration of the API calls and their
+ * failures are recorded in the {@link MetricsRegistry}, next to the hit and miss counts of the cache
+ * and the number of requests that shared a running call.
  *
  * @see Restaurant
  * @see RestaurantApi
+ * @see AsyncRestaurantApi
  */
 @Singleton
 public class RestaurantRepository {
 
-    // The API interface instance that will be used for network requests related to restaurant data.
-    private final RestaurantApi restaurantApi;
+    /** Number of restaurants whose details are kept in memory. */
+    static final int RESTAURANT_CACHE_SIZE = 16;
+
+    // Names of the metrics recorded by the repository
+    static final String METRIC_GET = "restaurant.get";
+    static final String METRIC_FETCH = "restaurant.fetch";
+    static final String METRIC_FETCH_ERRORS = "restaurant.fetch.errors";
+    static final String METRIC_CACHE_HITS = "restaurant.cache.hits";
+    static final String METRIC_CACHE_MISSES = "restaurant.cache.misses";
+    static final String METRIC_FETCH_COALESCED = "restaurant.fetch.coalesced";
+
+    // The asynchronous API interface instance that will be used for network requests related to restaurant data.
+    private final AsyncRestaurantApi restaurantApi;
+
+    // The state of the latest request, by restaurant identifier.
+    private final Map<String, MutableLiveData<LoadState>> loadStates = new ConcurrentHashMap<>();
+
+    // Details of the most recently opened restaurants, by restaurant identifier.
+    private final LruCache<String, CachedRestaurant> restaurantCache = new LruCache<>(RESTAURANT_CACHE_SIZE);
+
+    // Restaurants being fetched, by restaurant identifier.
+    private final SingleFlight<String, Restaurant> fetches;
+
+    // Time, in milliseconds, during which a cached restaurant is served without being refreshed.
+    private final long cacheTtlMillis;
+
+    // Clock the age of cached restaurants is measured with, in milliseconds.
+    private final LongSupplier clock;
+
+    // Time spent in getRestaurant, duration of the API calls, and failed API calls.
+    private final LatencyHistogram getLatency;
+    private final LatencyHistogram fetchLatency;
+    private final Counter fetchErrors;
 
     /**
-     * Constructs a new instance of {@link RestaurantRepository} with the given {@link RestaurantApi}.
+     * Constructs a new instance of {@link RestaurantRepository} with the given {@link AsyncRestaurantApi}.
      *
-     * @param restaurantApi The network API interface for fetching restaurant data.
+     * @param restaurantApi  The asynchronous network API interface for fetching restaurant data.
+     * @param cacheTtlMillis The time, in milliseconds, during which cached restaurant details are considered fresh.
+     * @param metrics        The registry recording the performance metrics of the repository.
      */
     @Inject
-    public RestaurantRepository(RestaurantApi restaurantApi) {
+    public RestaurantRepository(AsyncRestaurantApi restaurantApi,
+                                @Named(AppModule.RESTAURANT_CACHE_TTL) long cacheTtlMillis,
+                                MetricsRegistry metrics) {
+        this(restaurantApi, cacheTtlMillis, metrics, SystemClock::elapsedRealtime);
+    }
+
+    /**
+     * Constructs a new instance of {@link RestaurantRepository} measuring the age of cached
+     * restaurants with the given clock.
+     *
+     * @param restaurantApi  The asynchronous network API interface for fetching restaurant data.
+     * @param cacheTtlMillis The time, in milliseconds, during which cached restaurant details are considered fresh.
+     * @param metrics        The registry recording the performance metrics of the repository.
+     * @param clock          Returns the current time in milliseconds, on a clock that never goes back.
+     */
+    RestaurantRepository(AsyncRestaurantApi restaurantApi, long cacheTtlMillis, MetricsRegistry metrics, LongSupplier clock) {
         this.restaurantApi = restaurantApi;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.clock = clock;
+        this.getLatency = metrics.histogram(METRIC_GET);
+        this.fetchLatency = metrics.histogram(METRIC_FETCH);
+        this.fetchErrors = metrics.counter(METRIC_FETCH_ERRORS);
+        this.fetches = new SingleFlight<>(metrics.counter(METRIC_FETCH_COALESCED));
+        metrics.gauge(METRIC_CACHE_HITS, restaurantCache::hitCount);
+        metrics.gauge(METRIC_CACHE_MISSES, restaurantCache::missCount);
     }
 
     /**
-     * Fetches the restaurant details.
+     * Fetches the details of a restaurant.
      *
-     * This method will make a network call using the provided {@link RestaurantApi} instance
-     * to fetch restaurant data. Note that error handling and any transformations on the data
-     * would need to be managed.
+     * If the restaurant is in the cache, the returned LiveData holds it immediately. If the cached
+     * copy is older than the time to live, it is also fetched again in the background, and the
+     * returned LiveData receives the new copy only if it differs from the cached one.
      *
+     * Otherwise this method starts a network call using the provided {@link AsyncRestaurantApi}
+     * instance and returns immediately. The returned LiveData receives the restaurant once the call
+     * succeeds; if it fails, the error is reported through {@link #getLoadState(String)}.
      *
+     * While a restaurant is being fetched, requests for it wait for that call instead of starting
+     * another one, so the restaurant can be requested ahead of time, for instance at startup.
+     *
+     * @param restaurantId The identifier of the restaurant.
      * @return LiveData holding the restaurant details.
      */
-    public LiveData<Restaurant> getRestaurant() {
-        return new MutableLiveData<>(restaurantApi.getRestaurant());
+    public LiveData<Restaurant> getRestaurant(String restaurantId) {
+        long startNanos = System.nanoTime();
+        CachedRestaurant cached = restaurantCache.get(restaurantId);
+        MutableLiveData<LoadState> loadState = getLoadStateLiveData(restaurantId);
+        if (cached == null) {
+            MutableLiveData<Restaurant> restaurant = new MutableLiveData<>();
+            loadState.postValue(LoadState.loading());
+            fetchRestaurant(restaurantId, restaurant, null);
+            getLatency.recordSince(startNanos);
+            return restaurant;
+        }
+
+        MutableLiveData<Restaurant> restaurant = new MutableLiveData<>(cached.restaurant);
+        loadState.postValue(LoadState.success());
+        if (clock.getAsLong() - cached.fetchedAt >= cacheTtlMillis) {
+            // Serve the stale copy and revalidate it in the background
+            fetchRestaurant(restaurantId, restaurant, cached.restaurant);
+        }
+        getLatency.recordSince(startNanos);
+        return restaurant;
+    }
+
+    /**
+     * Fetches a restaurant from the API, or waits for the running fetch of the same restaurant,
+     * and posts it unless it equals the copy already emitted.
+     *
+     * @param staleRestaurant The copy already emitted by the LiveData, or null if there is none.
+     */
+    private void fetchRestaurant(String restaurantId, MutableLiveData<Restaurant> restaurant, Restaurant staleRestaurant) {
+        MutableLiveData<LoadState> loadState = getLoadStateLiveData(restaurantId);
+        fetches.load(restaurantId, new ApiCallback<Restaurant>() {
+            @Override
+            public void onSuccess(Restaurant result) {
+                if (!result.equals(staleRestaurant)) {
+                    restaurant.postValue(result);
+                }
+                loadState.postValue(LoadState.success());
+            }
+
+            @Override
+            public void onError(Exception error) {
+                // A failed refresh keeps the stale copy on screen, so it is only reported when nothing is shown
+                if (staleRestaurant == null) {
+                    loadState.postValue(LoadState.error(error));
+                }
+            }
+        }, callback -> callApi(restaurantId, callback));
+    }
+
+    /**
+     * Calls the API for a restaurant, and caches the result before handing it to the callback.
+     */
+    private void callApi(String restaurantId, ApiCallback<Restaurant> callback) {
+        long startNanos = System.nanoTime();
+        restaurantApi.getRestaurant(restaurantId, new ApiCallback<Restaurant>() {
+            @Override
+            public void onSuccess(Restaurant result) {
+                fetchLatency.recordSince(startNanos);
+                restaurantCache.put(restaurantId, new CachedRestaurant(result, clock.getAsLong()));
+                callback.onSuccess(result);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                fetchLatency.recordSince(startNanos);
+                fetchErrors.increment();
+                callback.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Returns the state of the latest request for a restaurant. Requests for other restaurants
+     * do not change it.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return LiveData holding whether the restaurant is loading, loaded, or failed to load.
+     */
+    public LiveData<LoadState> getLoadState(String restaurantId) {
+        return getLoadStateLiveData(restaurantId);
+    }
+
+    private MutableLiveData<LoadState> getLoadStateLiveData(String restaurantId) {
+        return loadStates.computeIfAbsent(restaurantId, id -> new MutableLiveData<>());
+    }
+
+    /**
+     * Returns how many restaurant requests were served from the cache.
+     *
+     * @return The number of cache hits since the repository was created.
+     */
+    public int getCacheHitCount() {
+        return restaurantCache.hitCount();
+    }
+
+    /**
+     * Returns how many restaurant requests had to go to the network.
+     *
+     * @return The number of cache misses since the repository was created.
+     */
+    public int getCacheMissCount() {
+        return restaurantCache.missCount();
+    }
+
+    /**
+     * A cached restaurant and the time it was fetched at, on the clock of the repository.
+     */
+    private static class CachedRestaurant {
+        final Restaurant restaurant;
+        final long fetchedAt;
+
+        CachedRestaurant(Restaurant restaurant, long fetchedAt) {
+            this.restaurant = restaurant;
+            this.fetchedAt = fetchedAt;
+        }
     }
 
 }
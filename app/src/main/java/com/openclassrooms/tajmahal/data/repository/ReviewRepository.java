@@ -1,28 +1,752 @@
 package com.openclassrooms.tajmahal.data.repository;
 
+import android.util.Log;
+
+import androidx.collection.LruCache;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 
-import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.local.DailyRatings;
+import com.openclassrooms.tajmahal.data.local.ReviewSnapshot;
+import com.openclassrooms.tajmahal.data.local.ReviewSnapshotStore;
+import com.openclassrooms.tajmahal.data.local.ReviewStore;
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.data.upload.ReviewUploadScheduler;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.StringPool;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
-import javax.inject.Inject;  // Add this to inject dependencies
+import javax.inject.Inject;
+import javax.inject.Singleton;
 
 /**
  * Repository class for managing review data.
+ * <p>
+ * Reviews are served page by page so that restaurants with a large review history never
+ * have to be loaded in a single request. The local {@link ReviewStore} is read first: once it
+ * holds a complete copy of the reviews of a restaurant, pages are served from disk and the
+ * network is not involved. Until then, pages are fetched from the API while the whole review
+ * list is imported into the store in the background, one transaction per batch.
+ * </p>
+ * <p>
+ * Pages are read on the background executor and delivered on the main thread, while every
+ * write to the store runs on the single-threaded disk executor, in submission order. The first
+ * page of the most recently opened restaurants is kept in a size-bounded LRU cache, so going
+ * back to a restaurant does not read it again. Requests for a first page that is already being
+ * loaded wait for that load instead of starting another one, so the first page can be
+ * {@link #prefetchFirstPage(String, int) prefetched} at startup and picked up by the first screen.
+ * </p>
+ * <p>
+ * Once the first page of a restaurant has been read from the store, its first
+ * {@link #SNAPSHOT_PAGE_COUNT} pages are also written to a {@link ReviewSnapshot}. On the next cold
+ * start these pages are read from the memory-mapped snapshot, without opening the database. The
+ * snapshot is deleted whenever the stored reviews of the restaurant change.
+ * </p>
+ * <p>
+ * The usernames and picture URLs of every review entering the repository, whether from the API,
+ * the store, a snapshot or {@link #addReview(String, Review)}, are replaced by their instance in the
+ * shared {@link StringPool}, so that long review lists keep a single copy of each repeated value.
+ * </p>
+ * <p>
+ * Reviews filtered or sorted by rating are read from the per-rating buckets of the store, already
+ * in their final order, so switching the filter never scans or sorts the reviews in memory.
+ * </p>
+ * <p>
+ * The repository also keeps a running {@link RatingAggregate} of the stored reviews of each
+ * restaurant, updated in constant time for every review written to the store, and publishes it
+ * as a {@link RatingSummary}. Next to it, a {@link RatingTrendAggregate} keeps the ratings of the
+ * last days in daily buckets, updated the same way and published as a {@link RatingTrend}.
+ * </p>
+ * <p>
+ * Once the store holds every review of a restaurant, opening the restaurant fetches only the reviews
+ * changed since the previous sync as a {@link ReviewDelta}, merged into the store and the rating
+ * aggregates in place, instead of the whole list.
+ * </p>
+ * <p>
+ * Pages are loaded through a {@link SingleFlight}: a page requested while the same page, with the
+ * same query and page size, is being loaded waits for that load instead of reading it again.
+ * </p>
+ * <p>
+ * The duration of {@link #getReviews(String)} and the number of reviews it returns are recorded in
+ * the {@link MetricsRegistry}, next to the hit and miss counts of the first-page cache and the
+ * number of page requests that shared a running load.
+ * </p>
+ *
+ * @see RestaurantApi
+ * @see ReviewStore
+ * @see ReviewPage
  */
+@Singleton
 public class ReviewRepository {
 
+    private static final String TAG = "ReviewRepository";
+    private static final String IMPORT_FAILED_MESSAGE = "Review import failed, it will be retried on the next first page request";
+    private static final String SYNC_FAILED_MESSAGE = "Review sync failed, it will be retried the next time the restaurant is opened";
+
+    /** Number of reviews fetched from the API and written to the store per transaction during an import. */
+    static final int IMPORT_BATCH_SIZE = 500;
+
+    /** Number of restaurants whose first page of reviews is kept in memory. */
+    static final int FIRST_PAGE_CACHE_SIZE = 8;
+
+    /** Number of pages of reviews of a restaurant kept in its snapshot. */
+    static final int SNAPSHOT_PAGE_COUNT = 5;
+
+    // Names of the metrics recorded by the repository
+    static final String METRIC_GET = "reviews.get";
+    static final String METRIC_GET_REVIEWS = "reviews.get.reviews";
+    static final String METRIC_FIRST_PAGE_CACHE_HITS = "reviews.firstPageCache.hits";
+    static final String METRIC_FIRST_PAGE_CACHE_MISSES = "reviews.firstPageCache.misses";
+    static final String METRIC_SNAPSHOT_PAGES = "reviews.snapshot.pages";
+    static final String METRIC_SYNC = "reviews.sync";
+    static final String METRIC_SYNC_CHANGES = "reviews.sync.changes";
+    static final String METRIC_PAGE_COALESCED = "reviews.page.coalesced";
+
+    // Cursor prefixes recording which data source produced a page, so that following pages come from the same one
+    private static final String LOCAL_CURSOR_PREFIX = "local:";
+    private static final String REMOTE_CURSOR_PREFIX = "remote:";
+
+    // The API interface instance that will be used for network requests related to reviews.
+    private final RestaurantApi restaurantApi;
+
+    // The on-device copy of the reviews.
+    private final ReviewStore reviewStore;
+
+    // Snapshots of the first pages of reviews, read without opening the store.
+    private final ReviewSnapshotStore snapshotStore;
+
+    // Executors running reads, writes to the store, and callbacks.
+    private final AppExecutors appExecutors;
+
+    // Schedules the upload of the reviews written on the device.
+    private final ReviewUploadScheduler uploadScheduler;
+
+    // Shares one instance of the usernames and picture URLs repeated across reviews.
+    private final StringPool stringPool;
+
+    // Identifiers of the restaurants whose reviews are being imported.
+    private final Set<String> runningImports = ConcurrentHashMap.newKeySet();
+
+    // Identifiers of the restaurants whose reviews are being synced.
+    private final Set<String> runningSyncs = ConcurrentHashMap.newKeySet();
+
+    // First page of reviews of the most recently opened restaurants, by restaurant identifier.
+    private final LruCache<String, ReviewPage> firstPageCache = new LruCache<>(FIRST_PAGE_CACHE_SIZE);
+
+    // Pages being loaded, by request.
+    private final SingleFlight<PageRequest, ReviewPage> pageLoads;
+
+    // Rating aggregate of each restaurant, by restaurant identifier.
+    private final Map<String, RatingState> ratingStates = new ConcurrentHashMap<>();
+
+    // Duration of getReviews, and number of reviews it returned.
+    private final LatencyHistogram getLatency;
+    private final Counter getReviewCount;
+
+    // Number of pages served from snapshots.
+    private final Counter snapshotPages;
+
+    // Duration of a sync, and number of changed reviews it merged.
+    private final LatencyHistogram syncLatency;
+    private final Counter syncChanges;
+
     /**
-     * Retrieves a list of reviews.
-     * This should be replaced with actual data fetching logic (e.g., from a database or API).
+     * Constructs a new instance of {@link ReviewRepository} with the given data sources.
      *
+     * @param restaurantApi   The network API interface for fetching reviews.
+     * @param reviewStore     The local store holding the on-device copy of the reviews.
+     * @param snapshotStore   The snapshots of the first pages of reviews of each restaurant.
+     * @param appExecutors    The executors running reads, writes to the store, and callbacks.
+     * @param uploadScheduler The scheduler of the upload of the reviews written on the device.
+     * @param stringPool      The pool sharing the values repeated across reviews.
+     * @param metrics         The registry recording the performance metrics of the repository.
+     */
+    @Inject
+    public ReviewRepository(RestaurantApi restaurantApi, ReviewStore reviewStore, ReviewSnapshotStore snapshotStore,
+                            AppExecutors appExecutors, ReviewUploadScheduler uploadScheduler, StringPool stringPool,
+                            MetricsRegistry metrics) {
+        this.restaurantApi = restaurantApi;
+        this.reviewStore = reviewStore;
+        this.snapshotStore = snapshotStore;
+        this.appExecutors = appExecutors;
+        this.uploadScheduler = uploadScheduler;
+        this.stringPool = stringPool;
+        this.getLatency = metrics.histogram(METRIC_GET);
+        this.getReviewCount = metrics.counter(METRIC_GET_REVIEWS);
+        this.snapshotPages = metrics.counter(METRIC_SNAPSHOT_PAGES);
+        this.syncLatency = metrics.histogram(METRIC_SYNC);
+        this.syncChanges = metrics.counter(METRIC_SYNC_CHANGES);
+        this.pageLoads = new SingleFlight<>(metrics.counter(METRIC_PAGE_COALESCED));
+        metrics.gauge(METRIC_FIRST_PAGE_CACHE_HITS, firstPageCache::hitCount);
+        metrics.gauge(METRIC_FIRST_PAGE_CACHE_MISSES, firstPageCache::missCount);
+    }
+
+    /**
+     * Retrieves the whole list of reviews of a restaurant from the API.
+     * Prefer {@link #loadReviewPage(String, ReviewQuery, String, int, ApiCallback)} for anything displayed in a list.
+     *
+     * @param restaurantId The identifier of the restaurant.
      * @return A list of reviews.
      */
-    public List<Review> getReviews() {
-        // Replace with actual implementation, such as fetching from a database or network.
-        return (List<Review>) new RestaurantFakeApi().getReviews(); // Use your fake API or actual data source
+    public List<Review> getReviews(String restaurantId) {
+        long startNanos = System.nanoTime();
+        List<Review> reviews = internFields(restaurantApi.getReviews(restaurantId));
+        getLatency.recordSince(startNanos);
+        getReviewCount.add(reviews.size());
+        return reviews;
     }
-}
 
+    /**
+     * Loads one page of reviews of a restaurant, newest first, off the main thread.
+     * <p>
+     * The first page is served from memory if the restaurant was opened recently. Otherwise it is
+     * read from the local store if the store holds a complete copy of the reviews, and from the
+     * API if it does not. Following pages always come from the same source as the first one.
+     * </p>
+     * <p>
+     * Pages filtered or sorted by rating are always read from the local store, as the API only
+     * lists reviews newest first. They hold every review once the store is complete.
+     * </p>
+     * <p>
+     * A page requested while the same page is being loaded is not read again: the callback
+     * receives the outcome of the running load.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param query        The rating to keep, if any, and the order of the reviews.
+     * @param cursor       The cursor of the page to fetch, or null for the first page.
+     * @param pageSize     The maximum number of reviews in the page.
+     * @param callback     Receives the requested page, or the error, on the main thread.
+     */
+    public void loadReviewPage(String restaurantId, ReviewQuery query, String cursor, int pageSize, ApiCallback<ReviewPage> callback) {
+        if (cursor == null && query.equals(ReviewQuery.ALL)) {
+            ReviewPage cachedPage = firstPageCache.get(restaurantId);
+            // A page cached for another page size would shift the cursors of the following pages
+            if (cachedPage != null && (cachedPage.getReviews().size() == pageSize || !cachedPage.hasNext())) {
+                appExecutors.mainThread().execute(() -> callback.onSuccess(cachedPage));
+                return;
+            }
+        }
+
+        pageLoads.load(new PageRequest(restaurantId, query, cursor, pageSize), callback, loaded ->
+                appExecutors.background().execute(() -> {
+                    ReviewPage page;
+                    try {
+                        page = readPage(restaurantId, query, cursor, pageSize);
+                    } catch (RuntimeException e) {
+                        appExecutors.mainThread().execute(() -> loaded.onError(e));
+                        return;
+                    }
+                    appExecutors.mainThread().execute(() -> loaded.onSuccess(page));
+                }));
+    }
+
+    /**
+     * Starts loading the first page of reviews of a restaurant, newest first, so that it is in
+     * memory when the restaurant is opened. A screen requesting the same page while it is still
+     * loading receives it once loaded. Errors are ignored, as the page is loaded again when requested.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param pageSize     The number of reviews per page of the screen that will show them.
+     */
+    public void prefetchFirstPage(String restaurantId, int pageSize) {
+        loadReviewPage(restaurantId, ReviewQuery.ALL, null, pageSize, new ApiCallback<ReviewPage>() {
+            @Override
+            public void onSuccess(ReviewPage page) {
+            }
+
+            @Override
+            public void onError(Exception error) {
+                Log.w(TAG, "Prefetching the first page of reviews failed", error);
+            }
+        });
+    }
+
+    /**
+     * Reads one page of reviews, blocking the calling thread, and caches it if it is the first page newest first.
+     */
+    private ReviewPage readPage(String restaurantId, ReviewQuery query, String cursor, int pageSize) {
+        if (!query.equals(ReviewQuery.ALL)) {
+            if (cursor == null && !reviewStore.isPrimed(restaurantId)) {
+                importReviews(restaurantId);
+            }
+            return internFields(reviewStore.getPage(restaurantId, query, cursor, pageSize));
+        }
+        ReviewPage page = getReviewPage(restaurantId, cursor, pageSize);
+        if (cursor == null) {
+            firstPageCache.put(restaurantId, page);
+        }
+        return page;
+    }
+
+    /**
+     * Searches the stored reviews of a restaurant whose comment contains every word of a query, off the main thread.
+     * <p>
+     * Case and accents are ignored and words match as prefixes. Only stored reviews are searched,
+     * so results are partial until the reviews of the restaurant have been imported.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param query        The words to look for.
+     * @param limit        The maximum number of reviews to return.
+     * @param callback     Receives the matching reviews, newest first, or the error, on the main thread.
+     */
+    public void searchReviews(String restaurantId, String query, int limit, ApiCallback<List<Review>> callback) {
+        appExecutors.background().execute(() -> {
+            List<Review> reviews;
+            try {
+                reviews = internFields(reviewStore.search(restaurantId, query, limit));
+            } catch (RuntimeException e) {
+                appExecutors.mainThread().execute(() -> callback.onError(e));
+                return;
+            }
+            appExecutors.mainThread().execute(() -> callback.onSuccess(reviews));
+        });
+    }
+
+    /**
+     * Returns how many first pages were served from the in-memory cache.
+     *
+     * @return The number of cache hits since the repository was created.
+     */
+    public int getFirstPageCacheHitCount() {
+        return firstPageCache.hitCount();
+    }
+
+    /**
+     * Returns how many first pages had to be read from the store or the API.
+     *
+     * @return The number of cache misses since the repository was created.
+     */
+    public int getFirstPageCacheMissCount() {
+        return firstPageCache.missCount();
+    }
+
+    /**
+     * Retrieves one page of reviews, blocking the calling thread.
+     */
+    private ReviewPage getReviewPage(String restaurantId, String cursor, int pageSize) {
+        if (cursor == null || cursor.startsWith(LOCAL_CURSOR_PREFIX)) {
+            ReviewPage snapshotPage = getSnapshotPage(restaurantId, cursor, pageSize);
+            if (snapshotPage != null) {
+                if (cursor == null) {
+                    syncReviews(restaurantId);
+                }
+                return snapshotPage;
+            }
+        }
+        if (cursor == null) {
+            if (reviewStore.isPrimed(restaurantId)) {
+                ReviewPage page = getLocalPage(restaurantId, null, pageSize);
+                writeSnapshot(restaurantId, pageSize);
+                syncReviews(restaurantId);
+                return page;
+            }
+            ReviewPage page = getRemotePage(restaurantId, null, pageSize);
+            importReviews(restaurantId);
+            return page;
+        }
+        if (cursor.startsWith(LOCAL_CURSOR_PREFIX)) {
+            return getLocalPage(restaurantId, unwrapCursor(cursor, LOCAL_CURSOR_PREFIX), pageSize);
+        }
+        return getRemotePage(restaurantId, unwrapCursor(cursor, REMOTE_CURSOR_PREFIX), pageSize);
+    }
+
+    /**
+     * Retrieves the aggregated ratings of the stored reviews of a restaurant.
+     * <p>
+     * The aggregate is read from the store once, then kept up to date as reviews are written,
+     * so observers never need to walk the review list.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return LiveData holding the current {@link RatingSummary}.
+     */
+    public LiveData<RatingSummary> getRatingSummary(String restaurantId) {
+        return getRatingState(restaurantId).liveData;
+    }
+
+    /**
+     * Retrieves the aggregated ratings of the reviews of a restaurant written during the last days.
+     * <p>
+     * Like {@link #getRatingSummary(String)}, the daily totals are read from the store once, then
+     * kept up to date as reviews are written.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return LiveData holding the current {@link RatingTrend}.
+     */
+    public LiveData<RatingTrend> getRatingTrend(String restaurantId) {
+        return getRatingState(restaurantId).trendLiveData;
+    }
+
+    /**
+     * Saves a review written on the device into the local store, off the calling thread, and
+     * queues it for upload. The upload is batched with the other queued reviews and retried until
+     * it succeeds, even if the app is closed in the meantime.
+     *
+     * @param restaurantId The identifier of the reviewed restaurant.
+     * @param review       The review to save.
+     */
+    public void addReview(String restaurantId, Review review) {
+        internFields(review);
+        // The cached first page no longer starts with the newest review
+        firstPageCache.remove(restaurantId);
+        RatingState ratingState = getRatingState(restaurantId);
+        appExecutors.diskIO().execute(() -> {
+            snapshotStore.delete(restaurantId); // Its pages no longer start with the newest review
+            reviewStore.insertNewest(restaurantId, review);
+            ratingState.add(review);
+            ratingState.publish();
+            uploadScheduler.schedule(); // Scheduled once the review is queued, so that the upload finds it
+        });
+    }
+
+    /**
+     * Returns the rating state of a restaurant, scheduling its initial read from the store on first access.
+     */
+    private RatingState getRatingState(String restaurantId) {
+        RatingState created = new RatingState();
+        RatingState existing = ratingStates.putIfAbsent(restaurantId, created);
+        if (existing != null) {
+            return existing;
+        }
+        appExecutors.diskIO().execute(() -> {
+            created.reset(reviewStore, restaurantId);
+            created.publish();
+        });
+        return created;
+    }
+
+    /**
+     * Imports every review of a restaurant from the API into the local store in the background,
+     * unless an import is already running for that restaurant.
+     * <p>
+     * Batches are fetched on the background executor, and only their writes are posted to the disk
+     * executor, so that a slow network does not hold up the reads and writes of other restaurants.
+     * The import ends, and can be started again, once its last write has run.
+     * </p>
+     */
+    private void importReviews(String restaurantId) {
+        if (!runningImports.add(restaurantId)) {
+            return;
+        }
+        RatingState ratingState = getRatingState(restaurantId);
+        AtomicBoolean failed = new AtomicBoolean();
+        appExecutors.background().execute(() -> {
+            try {
+                // Taken before the first page, so that the changes made during the import are fetched by the next sync
+                String syncToken = restaurantApi.getReviewsSince(restaurantId, null, 0).getSyncToken();
+                writeUnlessFailed(failed, IMPORT_FAILED_MESSAGE, () -> {
+                    snapshotStore.delete(restaurantId);
+                    reviewStore.clearImported(restaurantId);
+                    ratingState.reset(reviewStore, restaurantId);
+                });
+                String cursor = null;
+                do {
+                    ReviewPage page = restaurantApi.getReviews(restaurantId, cursor, IMPORT_BATCH_SIZE);
+                    writeUnlessFailed(failed, IMPORT_FAILED_MESSAGE, () -> {
+                        for (Review review : reviewStore.appendOldest(restaurantId, page.getReviews())) {
+                            ratingState.add(review);
+                        }
+                        ratingState.publish();
+                    });
+                    cursor = page.getNextCursor();
+                } while (cursor != null && !failed.get());
+                writeUnlessFailed(failed, IMPORT_FAILED_MESSAGE, () -> {
+                    reviewStore.setSyncToken(restaurantId, syncToken);
+                    reviewStore.setPrimed(restaurantId, true);
+                });
+            } catch (RuntimeException e) {
+                Log.w(TAG, IMPORT_FAILED_MESSAGE, e);
+            } finally {
+                // Posted after the writes of the import, so that no sync or import overlaps them
+                appExecutors.diskIO().execute(() -> runningImports.remove(restaurantId));
+            }
+        });
+    }
+
+    /**
+     * Fetches the changes made to the reviews of a restaurant since its last sync and merges them
+     * into the store in the background, unless a sync or an import is already running for that
+     * restaurant. Changes are fetched and merged in batches of {@link #IMPORT_BATCH_SIZE}, and the
+     * rating aggregates are updated with the replaced, removed and new reviews only.
+     * <p>
+     * Like an import, the batches are fetched on the background executor, and only their merges are
+     * posted to the disk executor. The sync ends, and can be started again, once its last merge has run.
+     * </p>
+     */
+    private void syncReviews(String restaurantId) {
+        if (runningImports.contains(restaurantId) || !runningSyncs.add(restaurantId)) {
+            return;
+        }
+        RatingState ratingState = getRatingState(restaurantId);
+        appExecutors.diskIO().execute(() -> {
+            long startNanos = System.nanoTime();
+            String syncToken;
+            try {
+                if (!reviewStore.isPrimed(restaurantId)) {
+                    runningSyncs.remove(restaurantId);
+                    return; // An import started in the meantime
+                }
+                syncToken = reviewStore.getSyncToken(restaurantId);
+                if (syncToken == null) {
+                    // Imported before reviews had identifiers: the changes could not be matched to them
+                    reviewStore.setPrimed(restaurantId, false);
+                    runningSyncs.remove(restaurantId);
+                    importReviews(restaurantId);
+                    return;
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, SYNC_FAILED_MESSAGE, e);
+                runningSyncs.remove(restaurantId);
+                return;
+            }
+            appExecutors.background().execute(() -> fetchChanges(restaurantId, syncToken, ratingState, startNanos));
+        });
+    }
+
+    /**
+     * Fetches the changes of a sync in batches, posting the merge of each batch to the disk executor,
+     * then releases the sync once the last merge has run. Runs on the background executor.
+     */
+    private void fetchChanges(String restaurantId, String syncToken, RatingState ratingState, long startNanos) {
+        AtomicBoolean failed = new AtomicBoolean();
+        AtomicLong changedReviews = new AtomicLong();
+        try {
+            String nextSyncToken = syncToken;
+            ReviewDelta delta;
+            do {
+                delta = restaurantApi.getReviewsSince(restaurantId, nextSyncToken, IMPORT_BATCH_SIZE);
+                internFields(delta.getInserted());
+                internFields(delta.getUpdated());
+                ReviewDelta batch = delta;
+                writeUnlessFailed(failed, SYNC_FAILED_MESSAGE, () -> {
+                    for (Review replaced : reviewStore.applyDelta(restaurantId, batch)) {
+                        ratingState.remove(replaced);
+                    }
+                    for (Review review : batch.getUpdated()) {
+                        ratingState.add(review);
+                    }
+                    for (Review review : batch.getInserted()) {
+                        ratingState.add(review);
+                    }
+                    changedReviews.addAndGet(batch.getInserted().size() + batch.getUpdated().size()
+                            + batch.getDeletedIds().size());
+                });
+                nextSyncToken = delta.getSyncToken();
+            } while (delta.hasMore() && !failed.get());
+        } catch (RuntimeException e) {
+            failed.set(true);
+            Log.w(TAG, SYNC_FAILED_MESSAGE, e);
+        } finally {
+            // Posted after the merges of the sync, so that no sync or import overlaps them
+            appExecutors.diskIO().execute(() -> {
+                try {
+                    if (changedReviews.get() > 0) {
+                        // The first pages in memory and in the snapshot may no longer match the store
+                        firstPageCache.remove(restaurantId);
+                        snapshotStore.delete(restaurantId);
+                        ratingState.publish();
+                    }
+                    if (!failed.get()) {
+                        syncChanges.add(changedReviews.get());
+                        syncLatency.recordSince(startNanos);
+                    }
+                } finally {
+                    runningSyncs.remove(restaurantId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Posts a write of an import or a sync to the disk executor. Once a write has failed, the
+     * following writes of the same import or sync are skipped.
+     */
+    private void writeUnlessFailed(AtomicBoolean failed, String failureMessage, Runnable write) {
+        appExecutors.diskIO().execute(() -> {
+            if (failed.get()) {
+                return;
+            }
+            try {
+                write.run();
+            } catch (RuntimeException e) {
+                failed.set(true);
+                Log.w(TAG, failureMessage, e);
+            }
+        });
+    }
+
+    /**
+     * Reads a page from the snapshot of a restaurant, if it holds the page for that page size.
+     *
+     * @return The page, or null if it must be read from the store.
+     */
+    private ReviewPage getSnapshotPage(String restaurantId, String cursor, int pageSize) {
+        ReviewSnapshot snapshot = snapshotStore.read(restaurantId);
+        if (snapshot == null || snapshot.getPageSize() != pageSize) {
+            return null;
+        }
+        ReviewPage page;
+        try {
+            page = snapshot.findPage(cursor);
+        } catch (IOException e) {
+            Log.w(TAG, "Deleting corrupted review snapshot", e);
+            snapshotStore.delete(restaurantId);
+            return null;
+        }
+        if (page != null) {
+            snapshotPages.increment();
+        }
+        return internFields(page);
+    }
+
+    /**
+     * Replaces the snapshot of a restaurant with its first pages read from the store, on the disk executor,
+     * so that it is ordered with the writes that delete it.
+     */
+    private void writeSnapshot(String restaurantId, int pageSize) {
+        appExecutors.diskIO().execute(() -> {
+            try {
+                if (!reviewStore.isPrimed(restaurantId)) {
+                    return; // An import started in the meantime
+                }
+                List<ReviewPage> pages = new ArrayList<>(SNAPSHOT_PAGE_COUNT);
+                String cursor = null;
+                do {
+                    ReviewPage page = reviewStore.getPage(restaurantId, cursor, pageSize);
+                    pages.add(wrapCursors(page, LOCAL_CURSOR_PREFIX));
+                    cursor = page.getNextCursor();
+                } while (cursor != null && pages.size() < SNAPSHOT_PAGE_COUNT);
+                snapshotStore.write(restaurantId, pages, pageSize);
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Review snapshot not written, pages will be read from the store", e);
+            }
+        });
+    }
+
+    private ReviewPage getLocalPage(String restaurantId, String cursor, int pageSize) {
+        return internFields(wrapCursors(reviewStore.getPage(restaurantId, cursor, pageSize), LOCAL_CURSOR_PREFIX));
+    }
+
+    private ReviewPage getRemotePage(String restaurantId, String cursor, int pageSize) {
+        return internFields(wrapCursors(restaurantApi.getReviews(restaurantId, cursor, pageSize), REMOTE_CURSOR_PREFIX));
+    }
+
+    /**
+     * Replaces the username and picture URL of a review by their pooled instances.
+     */
+    private void internFields(Review review) {
+        review.setUsername(stringPool.intern(review.getUsername()));
+        review.setPicture(stringPool.intern(review.getPicture()));
+    }
+
+    private List<Review> internFields(List<Review> reviews) {
+        for (Review review : reviews) {
+            internFields(review);
+        }
+        return reviews;
+    }
+
+    private ReviewPage internFields(ReviewPage page) {
+        if (page != null) {
+            internFields(page.getReviews());
+        }
+        return page;
+    }
+
+    private static ReviewPage wrapCursors(ReviewPage page, String prefix) {
+        String cursor = prefix + (page.getCursor() == null ? "" : page.getCursor());
+        String nextCursor = page.getNextCursor() == null ? null : prefix + page.getNextCursor();
+        return new ReviewPage(cursor, page.getReviews(), nextCursor);
+    }
+
+    private static String unwrapCursor(String cursor, String prefix) {
+        String raw = cursor.substring(prefix.length());
+        return raw.isEmpty() ? null : raw;
+    }
+
+    /**
+     * Identifies a page of reviews, so that identical page requests share one load.
+     */
+    private static class PageRequest {
+        final String restaurantId;
+        final ReviewQuery query;
+        final String cursor;
+        final int pageSize;
+
+        PageRequest(String restaurantId, ReviewQuery query, String cursor, int pageSize) {
+            this.restaurantId = restaurantId;
+            this.query = query;
+            this.cursor = cursor;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PageRequest that = (PageRequest) o;
+            return pageSize == that.pageSize && restaurantId.equals(that.restaurantId)
+                    && query.equals(that.query) && Objects.equals(cursor, that.cursor);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(restaurantId, query, cursor, pageSize);
+        }
+    }
+
+    /**
+     * Rating aggregates of one restaurant and the LiveData publishing them.
+     * The aggregates are only touched from the disk executor.
+     */
+    private static class RatingState {
+        final RatingAggregate aggregate = new RatingAggregate();
+        final RatingTrendAggregate trend = new RatingTrendAggregate();
+        final MutableLiveData<RatingSummary> liveData = new MutableLiveData<>();
+        final MutableLiveData<RatingTrend> trendLiveData = new MutableLiveData<>();
+
+        void add(Review review) {
+            aggregate.add(review.getRate());
+            trend.add(review.getRate(), review.getCreatedAt());
+        }
+
+        void remove(Review review) {
+            aggregate.remove(review.getRate());
+            trend.remove(review.getRate(), review.getCreatedAt());
+        }
+
+        void reset(ReviewStore reviewStore, String restaurantId) {
+            aggregate.reset(reviewStore.getRatingCounts(restaurantId));
+            // Only the days still covered by the ring are read
+            long since = (DailyRatings.toEpochDay(System.currentTimeMillis()) - RatingTrendAggregate.DAYS + 1) * DailyRatings.DAY_MILLIS;
+            trend.reset(reviewStore.getDailyRatings(restaurantId, since));
+        }
+
+        void publish() {
+            liveData.postValue(aggregate.snapshot());
+            trendLiveData.postValue(trend.snapshot(System.currentTimeMillis()));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Runs at most one load per key at a time, and hands its outcome to every caller that asked for
+ * the same key while it was running.
+ * <p>
+ * The first request for a key starts the load; requests for the same key arriving before the
+ * load completes only add their callback to it, and are counted as coalesced. Once the load
+ * completes, the key is released before the callbacks are invoked, so a request made from a
+ * callback, or any later one, starts a new load.
+ * </p>
+ * <p>
+ * Requests can come from any thread. Callbacks are invoked, in the order they were added, on the
+ * thread the load completes on.
+ * </p>
+ *
+ * @param <K> the type of the keys identifying the loads
+ * @param <V> the type of the loaded values
+ */
+class SingleFlight<K, V> {
+
+    // Callbacks waiting for the running loads, by key. Guarded by this.
+    private final Map<K, List<ApiCallback<V>>> running = new HashMap<>();
+
+    // Requests that joined a running load instead of starting one
+    private final Counter coalesced;
+
+    /**
+     * Constructs a new SingleFlight instance.
+     *
+     * @param coalesced the counter incremented for each request that joins a running load
+     */
+    SingleFlight(Counter coalesced) {
+        this.coalesced = coalesced;
+    }
+
+    /**
+     * Requests the value of a key, starting its load unless one is already running.
+     *
+     * @param key      identifies the load: requests with equal keys share it
+     * @param callback receives the outcome of the load
+     * @param loader   starts the load, and must eventually complete the callback it is given exactly once
+     */
+    void load(K key, ApiCallback<V> callback, Consumer<ApiCallback<V>> loader) {
+        List<ApiCallback<V>> callbacks;
+        synchronized (this) {
+            callbacks = running.get(key);
+            if (callbacks != null) {
+                callbacks.add(callback);
+                coalesced.increment();
+                return;
+            }
+            callbacks = new ArrayList<>();
+            callbacks.add(callback);
+            running.put(key, callbacks);
+        }
+
+        loader.accept(new ApiCallback<V>() {
+            @Override
+            public void onSuccess(V result) {
+                for (ApiCallback<V> waiting : complete(key)) {
+                    waiting.onSuccess(result);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                for (ApiCallback<V> waiting : complete(key)) {
+                    waiting.onError(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Releases a key, and returns the callbacks that were waiting for its load.
+     */
+    private synchronized List<ApiCallback<V>> complete(K key) {
+        return running.remove(key);
+    }
+}
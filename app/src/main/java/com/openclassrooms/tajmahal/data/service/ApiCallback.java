@@ -0,0 +1,27 @@
+package com.openclassrooms.tajmahal.data.service;
+
+/**
+ * Receives the outcome of an asynchronous call to the restaurant API.
+ * <p>
+ * Exactly one of the two methods is called for each request.
+ * </p>
+ *
+ * @param <T> the type of the result of the call
+ * @see AsyncRestaurantApi
+ */
+public interface ApiCallback<T> {
+
+    /**
+     * Called when the request succeeded.
+     *
+     * @param result The result of the request.
+     */
+    void onSuccess(T result);
+
+    /**
+     * Called when the request failed.
+     *
+     * @param error The reason of the failure.
+     */
+    void onError(Exception error);
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Asynchronous variant of the {@link RestaurantApi}.
+ * <p>
+ * Each call runs the blocking {@link RestaurantApi} method on the background executor and
+ * delivers its outcome to an {@link ApiCallback} on the main thread, so callers never block
+ * on the network.
+ * </p>
+ *
+ * @see RestaurantApi
+ * @see ApiCallback
+ */
+@Singleton
+public class AsyncRestaurantApi {
+
+    private final RestaurantApi restaurantApi;
+    private final AppExecutors appExecutors;
+
+    /**
+     * Constructs a new instance of {@link AsyncRestaurantApi}.
+     *
+     * @param restaurantApi The blocking API the calls are delegated to.
+     * @param appExecutors  The executors running the calls and delivering their results.
+     */
+    @Inject
+    public AsyncRestaurantApi(RestaurantApi restaurantApi, AppExecutors appExecutors) {
+        this.restaurantApi = restaurantApi;
+        this.appExecutors = appExecutors;
+    }
+
+    /**
+     * Retrieves the details of a restaurant off the main thread.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param callback     Receives the {@link Restaurant}, or the error, on the main thread.
+     */
+    public void getRestaurant(String restaurantId, ApiCallback<Restaurant> callback) {
+        enqueue(() -> restaurantApi.getRestaurant(restaurantId), callback);
+    }
+
+    /**
+     * Retrieves one page of reviews of a restaurant off the main thread.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param cursor       The cursor of the page to fetch, or null to start from the newest review.
+     * @param pageSize     The maximum number of reviews to return.
+     * @param callback     Receives the {@link ReviewPage}, or the error, on the main thread.
+     */
+    public void getReviews(String restaurantId, String cursor, int pageSize, ApiCallback<ReviewPage> callback) {
+        enqueue(() -> restaurantApi.getReviews(restaurantId, cursor, pageSize), callback);
+    }
+
+    private <T> void enqueue(Callable<T> call, ApiCallback<T> callback) {
+        appExecutors.background().execute(() -> {
+            T result;
+            try {
+                result = call.call();
+            } catch (Exception e) {
+                appExecutors.mainThread().execute(() -> callback.onError(e));
+                return;
+            }
+            appExecutors.mainThread().execute(() -> callback.onSuccess(result));
+        });
+    }
+}
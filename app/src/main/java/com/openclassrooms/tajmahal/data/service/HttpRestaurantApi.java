@@ -0,0 +1,327 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import androidx.collection.LruCache;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Implementation of the {@link RestaurantApi} talking to the restaurant server over HTTP.
+ * <p>
+ * The server exposes the following resources, all exchanging JSON:
+ * <ul>
+ *     <li>{@code GET /restaurants/{id}}: the details of a restaurant.</li>
+ *     <li>{@code GET /restaurants/{id}/reviews}: every review, newest first, or one page of them
+ *     with the {@code limit} and {@code cursor} parameters.</li>
+ *     <li>{@code GET /restaurants/{id}/reviews/changes}: the changes since the {@code since} token,
+ *     at most {@code limit} of them.</li>
+ *     <li>{@code POST /restaurants/{id}/reviews}: an array of reviews written on the device.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Every response is fully read and closed, and connections are never disconnected after a
+ * success, so the keep-alive pool of {@link HttpURLConnection} reuses them from one call to the
+ * next. Responses are requested gzip-compressed and inflated while being parsed: the JSON is read
+ * token by token from the network stream, never buffered whole.
+ * </p>
+ * <p>
+ * The latest responses carrying an ETag are kept, parsed, in a size-bounded LRU cache keyed by
+ * URL. Requesting the same URL again sends their ETag in {@code If-None-Match}, and a
+ * {@code 304 Not Modified} answer is served from the cache without any body to download or parse.
+ * Cached values are shared between callers and must not be modified.
+ * </p>
+ * <p>
+ * As for the other implementations, methods block and must be called off the main thread.
+ * I/O failures and unexpected statuses are thrown as {@link UncheckedIOException}. The duration
+ * of the requests, the number of 304 answers and the failures are recorded in the {@link MetricsRegistry}.
+ * </p>
+ */
+public class HttpRestaurantApi implements RestaurantApi {
+
+    /** Number of parsed responses kept to answer {@code 304 Not Modified}. */
+    static final int CACHED_RESPONSE_COUNT = 32;
+
+    // Time allowed to establish a connection and between two reads of a response, in milliseconds
+    private static final int CONNECT_TIMEOUT_MILLIS = 15_000;
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    // Names of the metrics recorded by the API
+    static final String METRIC_REQUEST = "api.request";
+    static final String METRIC_NOT_MODIFIED = "api.not_modified";
+    static final String METRIC_ERRORS = "api.errors";
+
+    // Root URL of the server, without trailing slash
+    private final String baseUrl;
+
+    // Latest responses carrying an ETag, parsed, by URL
+    private final LruCache<String, CachedResponse> cachedResponses = new LruCache<>(CACHED_RESPONSE_COUNT);
+
+    // Duration of the requests, requests answered by 304 Not Modified, and failed requests
+    private final LatencyHistogram requestLatency;
+    private final Counter notModified;
+    private final Counter errors;
+
+    /**
+     * Constructs a new instance of {@link HttpRestaurantApi}.
+     *
+     * @param baseUrl The root URL of the restaurant server, for instance {@code https://api.example.com/v1}.
+     * @param metrics The registry recording the performance metrics of the API.
+     */
+    public HttpRestaurantApi(String baseUrl, MetricsRegistry metrics) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.requestLatency = metrics.histogram(METRIC_REQUEST);
+        this.notModified = metrics.counter(METRIC_NOT_MODIFIED);
+        this.errors = metrics.counter(METRIC_ERRORS);
+    }
+
+    /**
+     * Retrieves the details of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return The {@link Restaurant}, or null if the server does not know it.
+     */
+    @Override
+    public Restaurant getRestaurant(String restaurantId) {
+        return get(restaurantUrl(restaurantId), true, RestaurantJson::readRestaurant);
+    }
+
+    /**
+     * Retrieves all the reviews of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return A modifiable list of the reviews, newest first.
+     */
+    @Override
+    public List<Review> getReviews(String restaurantId) {
+        return new ArrayList<>(get(restaurantUrl(restaurantId) + "/reviews", false, RestaurantJson::readReviews));
+    }
+
+    /**
+     * Retrieves one page of reviews of a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param cursor       The cursor of the page to fetch, or null to start from the newest review.
+     * @param pageSize     The maximum number of reviews to return.
+     * @return The requested {@link ReviewPage}.
+     */
+    @Override
+    public ReviewPage getReviews(String restaurantId, String cursor, int pageSize) {
+        String url = restaurantUrl(restaurantId) + "/reviews?limit=" + pageSize;
+        if (cursor != null) {
+            url += "&cursor=" + encode(cursor);
+        }
+        return get(url, false, reader -> RestaurantJson.readReviewPage(reader, cursor));
+    }
+
+    /**
+     * Retrieves the changes made to the reviews of a restaurant since a sync token.
+     * A sync that finds nothing new requests the same URL again, and is answered by a 304.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param syncToken    The token returned by the previous call, or null to get the current token.
+     * @param limit        The maximum number of changed reviews to return.
+     * @return The requested {@link ReviewDelta}.
+     */
+    @Override
+    public ReviewDelta getReviewsSince(String restaurantId, String syncToken, int limit) {
+        String url = restaurantUrl(restaurantId) + "/reviews/changes?limit=" + limit;
+        if (syncToken != null) {
+            url += "&since=" + encode(syncToken);
+        }
+        return get(url, false, RestaurantJson::readReviewDelta);
+    }
+
+    /**
+     * Sends reviews written on the device, streamed as a JSON array in a single request.
+     *
+     * @param restaurantId The identifier of the reviewed restaurant.
+     * @param reviews      The reviews to send, oldest first.
+     */
+    @Override
+    public void submitReviews(String restaurantId, List<Review> reviews) {
+        long startNanos = System.nanoTime();
+        HttpURLConnection connection = null;
+        try {
+            connection = open(restaurantUrl(restaurantId) + "/reviews");
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(0); // Default chunk size: the body is never buffered whole
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(
+                    new BufferedOutputStream(connection.getOutputStream()), StandardCharsets.UTF_8))) {
+                RestaurantJson.writeReviews(writer, reviews);
+            }
+            int status = connection.getResponseCode();
+            if (status / 100 != 2) {
+                throw unexpectedStatus(connection, status);
+            }
+            try (InputStream body = openBody(connection)) {
+                discard(body);
+            }
+        } catch (IOException e) {
+            throw failed(connection, e);
+        } finally {
+            requestLatency.recordSince(startNanos);
+        }
+    }
+
+    /**
+     * Requests a JSON document, or answers from the cache if the server replies 304 Not Modified.
+     *
+     * @param url            The URL of the document.
+     * @param notFoundIsNull True to return null on 404 Not Found instead of failing.
+     * @param responseReader Builds the returned value from the document.
+     */
+    @SuppressWarnings("unchecked") // A URL always caches the type its reader returns
+    private <T> T get(String url, boolean notFoundIsNull, ResponseReader<T> responseReader) {
+        long startNanos = System.nanoTime();
+        CachedResponse cached = cachedResponses.get(url);
+        HttpURLConnection connection = null;
+        try {
+            connection = open(url);
+            if (cached != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            int status = connection.getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                notModified.increment();
+                try (InputStream body = connection.getInputStream()) {
+                    discard(body);
+                }
+                return (T) cached.value;
+            }
+            if (status == HttpURLConnection.HTTP_NOT_FOUND && notFoundIsNull) {
+                cachedResponses.remove(url);
+                try (InputStream body = connection.getErrorStream()) {
+                    discard(body);
+                }
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw unexpectedStatus(connection, status);
+            }
+
+            T value;
+            try (InputStream body = openBody(connection);
+                 JsonReader reader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                value = responseReader.read(reader);
+                discard(body); // Whatever follows the document, so that the connection can be reused
+            }
+            String etag = connection.getHeaderField("ETag");
+            if (etag != null) {
+                cachedResponses.put(url, new CachedResponse(etag, value));
+            } else {
+                cachedResponses.remove(url);
+            }
+            return value;
+        } catch (IOException e) {
+            throw failed(connection, e);
+        } finally {
+            requestLatency.recordSince(startNanos);
+        }
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        // ETags are handled here, whatever response cache may be installed
+        connection.setUseCaches(false);
+        // Set explicitly, so that responses are compressed on every platform and inflated in openBody
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        connection.setRequestProperty("Accept", "application/json");
+        return connection;
+    }
+
+    /**
+     * Opens the body of a successful response, inflated if the server compressed it.
+     */
+    private static InputStream openBody(HttpURLConnection connection) throws IOException {
+        InputStream body = connection.getInputStream();
+        return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(body) : body;
+    }
+
+    private static void discard(InputStream body) throws IOException {
+        if (body == null) {
+            return;
+        }
+        byte[] buffer = new byte[1024];
+        while (body.read(buffer) != -1) {
+            // Read until the end of the response
+        }
+    }
+
+    private static IOException unexpectedStatus(HttpURLConnection connection, int status) throws IOException {
+        try (InputStream body = connection.getErrorStream()) {
+            discard(body);
+        }
+        return new IOException("Unexpected HTTP status " + status + " for " + connection.getURL());
+    }
+
+    /**
+     * Counts a failed request, and disconnects its connection so that it is not reused in an unknown state.
+     */
+    private UncheckedIOException failed(HttpURLConnection connection, IOException e) {
+        errors.increment();
+        if (connection != null) {
+            connection.disconnect();
+        }
+        return new UncheckedIOException(e);
+    }
+
+    private String restaurantUrl(String restaurantId) {
+        return baseUrl + "/restaurants/" + encode(restaurantId);
+    }
+
+    private static String encode(String value) {
+        try {
+            // URLEncoder targets forms: spaces are turned into %20 so that paths are encoded too
+            return URLEncoder.encode(value, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e); // UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Builds a value from the JSON document of a response.
+     */
+    private interface ResponseReader<T> {
+        T read(JsonReader reader) throws IOException;
+    }
+
+    /**
+     * A parsed response and the ETag it was served with.
+     */
+    private static class CachedResponse {
+
+        final String etag;
+        final Object value;
+
+        CachedResponse(String etag, Object value) {
+            this.etag = etag;
+            this.value = value;
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.openclassrooms.tajmahal.data.service;
 
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
 
 import java.util.List;
 
@@ -20,7 +22,8 @@ import java.util.List;
  * An interface contains behaviors that a class implements.
  *
  * <p>
- * Here, {@link RestaurantApi} provides a method to get details of a restaurant.
+ * Here, {@link RestaurantApi} provides methods to get details and reviews of a restaurant,
+ * each restaurant being identified by its {@link Restaurant#getId()}.
  * </p>
  *
  * @see Restaurant
@@ -34,18 +37,62 @@ public interface RestaurantApi {
      * implementing class, fetching the required restaurant information.
      * </p>
      *
+     * @param restaurantId The identifier of the restaurant.
      * @return The {@link Restaurant} object containing all the details of the restaurant.
      */
-    Restaurant getRestaurant();
+    Restaurant getRestaurant(String restaurantId);
 
     /**
-     * Retrieves all the reviews of the restaurant.
+     * Retrieves all the reviews of a restaurant.
      * <p>
      * This method will usually be connected to a network call or database query in its
      * implementing class, fetching the list of the existing reviews.
      * </p>
      *
-     * @return The {@link Restaurant} object containing all the details of the restaurant.
+     * @param restaurantId The identifier of the restaurant.
+     * @return The list of the reviews of the restaurant.
+     */
+    List<Review> getReviews(String restaurantId);
+
+    /**
+     * Retrieves one page of reviews of a restaurant.
+     * <p>
+     * Reviews are returned newest first. The first page is requested with a null cursor,
+     * and each following page with the {@link ReviewPage#getNextCursor()} of the previous one.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param cursor       The cursor of the page to fetch, or null to start from the newest review.
+     * @param pageSize     The maximum number of reviews to return.
+     * @return The {@link ReviewPage} holding the reviews and the cursor of the following page.
+     */
+    ReviewPage getReviews(String restaurantId, String cursor, int pageSize);
+
+    /**
+     * Retrieves the changes made to the reviews of a restaurant since a sync token.
+     * <p>
+     * A null token only requests the current token: the returned delta holds no change, and
+     * requesting the changes since its token later returns every change made in the meantime.
+     * At most {@code limit} changes are returned at once; while {@link ReviewDelta#hasMore()}
+     * is true, the following ones are requested with the returned token.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param syncToken    The token returned by the previous call, or null to get the current token.
+     * @param limit        The maximum number of changed reviews to return.
+     * @return The {@link ReviewDelta} holding the changes and the token to request the following ones with.
+     */
+    ReviewDelta getReviewsSince(String restaurantId, String syncToken, int limit);
+
+    /**
+     * Sends reviews written on the device for a restaurant, in a single request.
+     * <p>
+     * Either every review of the batch is accepted, or an exception is thrown and the whole batch
+     * can be sent again.
+     * </p>
+     *
+     * @param restaurantId The identifier of the reviewed restaurant.
+     * @param reviews      The reviews to send, oldest first.
      */
-    List<Review> getReviews();
+    void submitReviews(String restaurantId, List<Review> reviews);
 }
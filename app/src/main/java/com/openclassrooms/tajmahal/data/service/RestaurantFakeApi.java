@@ -2,58 +2,325 @@ package com.openclassrooms.tajmahal.data.service;
 
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;  // Hilt Injection annotation
 
 /**
  * A mock implementation of the {@link RestaurantApi} for testing and development purposes.
+ * It serves two hard-coded locations of the Taj Mahal restaurant.
+ * <p>
+ * Every change made to the reviews after construction, whether submitted or simulated through
+ * {@link #simulateChanges(String, int, int, int)}, is recorded in a change log numbered by a
+ * sequence shared by all restaurants. A sync token is the sequence number of the last change
+ * the client has seen, so {@link #getReviewsSince(String, String, int)} returns the changes that
+ * follow it. All methods are synchronized, as the API is called from several threads.
+ * </p>
  */
 public class RestaurantFakeApi implements RestaurantApi {
 
-    // A list of hard-coded reviews for testing purposes
-    List<Review> reviews = Arrays.asList(
-            new Review("Ranjit Singh", "https://xsgames.co/randomusers/assets/avatars/male/71.jpg",
-                    "Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end, c'est très rapide et savoureux. Continuez ainsi!", 5),
-            new Review("Martyna Siddeswara", "https://xsgames.co/randomusers/assets/avatars/female/31.jpg",
-                    "Un service excellent et des plats incroyablement savoureux. Nous sommes vraiment satisfaits de notre expérience au restaurant.", 4),
-            new Review("Komala Alanazi", "https://xsgames.co/randomusers/assets/avatars/male/46.jpg",
-                    "La cuisine est délicieuse et le service est également excellent. Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. Cet endroit est un choix sûr!", 5),
-            new Review("David John", "https://xsgames.co/randomusers/assets/avatars/male/67.jpg",
-                    "Les currys manquaient de diversité de saveurs et semblaient tous à base de tomates. Malgré les évaluations élevées que nous avons vues et nos attentes, nous avons été déçus.", 2),
-            new Review("Emilie Hood", "https://xsgames.co/randomusers/assets/avatars/female/20.jpg",
-                    "Très bon restaurant Indien ! Je recommande.", 4)
-    );
+    /** Identifier of the Taj Mahal restaurant in Paris. */
+    public static final String TAJ_MAHAL_PARIS_ID = "taj-mahal-paris";
+
+    /** Identifier of the Taj Mahal restaurant in Lyon. */
+    public static final String TAJ_MAHAL_LYON_ID = "taj-mahal-lyon";
+
+    // Hard-coded restaurants for testing purposes, by identifier
+    private final Map<String, Restaurant> restaurants = new HashMap<>();
+
+    // Comments and ratings of the reviews made up by simulateChanges
+    private static final String[] SIMULATED_COMMENTS = {
+            "Très bon accueil, plats savoureux.", "Service un peu lent mais cuisine excellente.",
+            "Le curry était trop épicé à mon goût.", "Naan délicieux, je reviendrai !", "Portions généreuses."
+    };
+
+    // Hard-coded reviews for testing purposes, newest first, by restaurant identifier
+    private final Map<String, List<Review>> reviews = new HashMap<>();
+
+    // Changes made to the reviews since construction, oldest first, by restaurant identifier
+    private final Map<String, List<Change>> changeLogs = new HashMap<>();
+
+    // Sequence number of the latest change, whatever its restaurant
+    private long lastSequence;
+
+    // Number used to build the identifier of the next review
+    private long nextReviewNumber = 1;
+
+    // Makes up the changes of simulateChanges, seeded so that simulations are reproducible
+    private final Random random = new Random(42);
 
     /**
      * Constructor annotated with @Inject to allow Hilt to inject this class.
      */
     @Inject
     public RestaurantFakeApi() {
-        // This constructor can now be injected by Hilt if needed
+        restaurants.put(TAJ_MAHAL_PARIS_ID, new Restaurant(TAJ_MAHAL_PARIS_ID, "Taj Mahal", "Indien", "11h30 - 14h30・18h30 - 22h00",
+                "12 Avenue de la Brique - 75010 Paris", "http://www.tajmahal.fr", "06 12 34 56 78",
+                true, true));
+        restaurants.put(TAJ_MAHAL_LYON_ID, new Restaurant(TAJ_MAHAL_LYON_ID, "Taj Mahal", "Indien", "12h00 - 14h30・19h00 - 22h30",
+                "8 Rue de la République - 69002 Lyon", "http://www.tajmahal.fr", "04 12 34 56 78",
+                true, false));
+
+        reviews.put(TAJ_MAHAL_PARIS_ID, identify(TAJ_MAHAL_PARIS_ID, Arrays.asList(
+                new Review("Ranjit Singh", "https://xsgames.co/randomusers/assets/avatars/male/71.jpg",
+                        "Service très rapide et nourriture délicieuse, nous mangeons ici chaque week-end, c'est très rapide et savoureux. Continuez ainsi!", 5, daysAgo(2)),
+                new Review("Martyna Siddeswara", "https://xsgames.co/randomusers/assets/avatars/female/31.jpg",
+                        "Un service excellent et des plats incroyablement savoureux. Nous sommes vraiment satisfaits de notre expérience au restaurant.", 4, daysAgo(5)),
+                new Review("Komala Alanazi", "https://xsgames.co/randomusers/assets/avatars/male/46.jpg",
+                        "La cuisine est délicieuse et le service est également excellent. Le propriétaire est très sympathique et veille toujours à ce que votre repas soit satisfaisant. Cet endroit est un choix sûr!", 5, daysAgo(12)),
+                new Review("David John", "https://xsgames.co/randomusers/assets/avatars/male/67.jpg",
+                        "Les currys manquaient de diversité de saveurs et semblaient tous à base de tomates. Malgré les évaluations élevées que nous avons vues et nos attentes, nous avons été déçus.", 2, daysAgo(40)),
+                new Review("Emilie Hood", "https://xsgames.co/randomusers/assets/avatars/female/20.jpg",
+                        "Très bon restaurant Indien ! Je recommande.", 4, daysAgo(75))
+        )));
+        reviews.put(TAJ_MAHAL_LYON_ID, identify(TAJ_MAHAL_LYON_ID, Arrays.asList(
+                new Review("Lucas Martin", "https://xsgames.co/randomusers/assets/avatars/male/12.jpg",
+                        "Le biryani est excellent et les portions sont généreuses. Service un peu lent le samedi soir.", 4, daysAgo(1)),
+                new Review("Chloé Bernard", "https://xsgames.co/randomusers/assets/avatars/female/8.jpg",
+                        "Cadre agréable, naan au fromage délicieux. Nous reviendrons !", 5, daysAgo(20))
+        )));
     }
 
     /**
-     * Retrieves a hard-coded {@link Restaurant} object for the "Taj Mahal".
+     * Gives each review of a list its identifier, and returns a modifiable copy of the list.
+     */
+    private List<Review> identify(String restaurantId, List<Review> restaurantReviews) {
+        for (Review review : restaurantReviews) {
+            review.setId(newReviewId(restaurantId));
+        }
+        return new ArrayList<>(restaurantReviews);
+    }
+
+    private String newReviewId(String restaurantId) {
+        return restaurantId + "-" + nextReviewNumber++;
+    }
+
+    /**
+     * Returns the time a number of days before now, so that the hard-coded reviews stay recent.
+     */
+    private static long daysAgo(int days) {
+        return System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+    }
+
+    /**
+     * Retrieves a hard-coded {@link Restaurant} object for the given location of the "Taj Mahal".
      *
-     * @return The hard-coded {@link Restaurant} object for the "Taj Mahal".
+     * @param restaurantId The identifier of the restaurant.
+     * @return The hard-coded {@link Restaurant} object, or null for an unknown identifier.
      */
     @Override
-    public Restaurant getRestaurant() {
-        return new Restaurant("Taj Mahal", "Indien", "11h30 - 14h30・18h30 - 22h00",
-                "12 Avenue de la Brique - 75010 Paris", "http://www.tajmahal.fr", "06 12 34 56 78",
-                true, true);
+    public Restaurant getRestaurant(String restaurantId) {
+        return restaurants.get(restaurantId);
+    }
+
+    /**
+     * Retrieves the current {@link Review} list for the given location of the "Taj Mahal".
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return A copy of the list of {@link Review}, newest first, empty for an unknown identifier.
+     */
+    @Override
+    public synchronized List<Review> getReviews(String restaurantId) {
+        List<Review> restaurantReviews = reviews.get(restaurantId);
+        return restaurantReviews != null ? new ArrayList<>(restaurantReviews) : new ArrayList<>();
+    }
+
+    /**
+     * Retrieves one page of the current {@link Review} list.
+     * <p>
+     * The cursor is the offset of the first review of the page in the list.
+     * </p>
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param cursor       The offset to start from, or null for the first page.
+     * @param pageSize     The maximum number of reviews to return.
+     * @return The requested {@link ReviewPage}.
+     */
+    @Override
+    public synchronized ReviewPage getReviews(String restaurantId, String cursor, int pageSize) {
+        List<Review> restaurantReviews = reviews.containsKey(restaurantId) ? reviews.get(restaurantId) : Collections.<Review>emptyList();
+        int from = cursor == null ? 0 : Integer.parseInt(cursor);
+        int to = Math.min(from + pageSize, restaurantReviews.size());
+        if (from >= to) {
+            return new ReviewPage(cursor, new ArrayList<>(), null);
+        }
+        String nextCursor = to < restaurantReviews.size() ? String.valueOf(to) : null;
+        return new ReviewPage(cursor, new ArrayList<>(restaurantReviews.subList(from, to)), nextCursor);
     }
 
     /**
-     * Retrieves a hard-coded {@link Review} list for the "Taj Mahal".
+     * Retrieves the changes recorded in the change log of a restaurant after a sync token.
+     * <p>
+     * Changes are read in order until {@code limit} distinct reviews are reached, and each review
+     * is returned in its latest state: a review inserted then updated is returned as inserted, and
+     * a review inserted then deleted is not returned at all.
+     * </p>
      *
-     * @return The hard-coded list of {@link Review} for the "Taj Mahal".
+     * @param restaurantId The identifier of the restaurant.
+     * @param syncToken    The sequence number of the last change seen, or null to get the current one.
+     * @param limit        The maximum number of changed reviews to return.
+     * @return The requested {@link ReviewDelta}.
      */
     @Override
-    public List<Review> getReviews() {
-        return reviews;
+    public synchronized ReviewDelta getReviewsSince(String restaurantId, String syncToken, int limit) {
+        if (syncToken == null) {
+            return new ReviewDelta(null, null, null, String.valueOf(lastSequence), false);
+        }
+        List<Change> changeLog = changeLogs.containsKey(restaurantId) ? changeLogs.get(restaurantId) : Collections.<Change>emptyList();
+
+        // The log is ordered by sequence: the first change after the token is found by binary search
+        long since = Long.parseLong(syncToken);
+        int low = 0;
+        int high = changeLog.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (changeLog.get(middle).sequence <= since) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // First and last change of each review, in the order the reviews were first changed
+        Map<String, Change[]> changedReviews = new LinkedHashMap<>();
+        int next = low;
+        for (; next < changeLog.size(); next++) {
+            Change change = changeLog.get(next);
+            Change[] firstAndLast = changedReviews.get(change.reviewId);
+            if (firstAndLast == null) {
+                if (changedReviews.size() == limit) {
+                    break;
+                }
+                changedReviews.put(change.reviewId, new Change[]{change, change});
+            } else {
+                firstAndLast[1] = change;
+            }
+        }
+        boolean hasMore = next < changeLog.size();
+        String nextToken;
+        if (!hasMore) {
+            nextToken = String.valueOf(lastSequence);
+        } else {
+            nextToken = next > low ? String.valueOf(changeLog.get(next - 1).sequence) : syncToken;
+        }
+
+        List<Review> inserted = new ArrayList<>();
+        List<Review> updated = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (Map.Entry<String, Change[]> changedReview : changedReviews.entrySet()) {
+            boolean insertedFirst = changedReview.getValue()[0].type == Change.Type.INSERT;
+            Change last = changedReview.getValue()[1];
+            if (last.type == Change.Type.DELETE) {
+                if (!insertedFirst) {
+                    deletedIds.add(changedReview.getKey());
+                }
+            } else if (insertedFirst) {
+                inserted.add(last.review);
+            } else {
+                updated.add(last.review);
+            }
+        }
+        return new ReviewDelta(inserted, updated, deletedIds, nextToken, hasMore);
+    }
+
+    /**
+     * Accepts submitted reviews and adds them to the reviews of the restaurant, as if the server
+     * had stored them, so that they are returned as inserted by the following syncs.
+     *
+     * @param restaurantId The identifier of the reviewed restaurant.
+     * @param reviews      The reviews to send, oldest first.
+     */
+    @Override
+    public synchronized void submitReviews(String restaurantId, List<Review> reviews) {
+        for (Review review : reviews) {
+            insert(restaurantId, new Review(newReviewId(restaurantId), review.getUsername(), review.getPicture(),
+                    review.getComment(), review.getRate(), review.getCreatedAt()));
+        }
+    }
+
+    /**
+     * Makes up changes to the reviews of a restaurant, as if other users had written, edited and
+     * deleted reviews, so that syncs of any size can be tried out.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @param insertCount  The number of reviews to write.
+     * @param updateCount  The number of existing reviews to edit, picked at random.
+     * @param deleteCount  The number of existing reviews to delete, picked at random.
+     */
+    public synchronized void simulateChanges(String restaurantId, int insertCount, int updateCount, int deleteCount) {
+        for (int i = 0; i < insertCount; i++) {
+            long number = nextReviewNumber;
+            insert(restaurantId, new Review(newReviewId(restaurantId), "Client " + number,
+                    "https://xsgames.co/randomusers/assets/avatars/" + (number % 2 == 0 ? "female/" : "male/") + number % 78 + ".jpg",
+                    SIMULATED_COMMENTS[random.nextInt(SIMULATED_COMMENTS.length)], 1 + random.nextInt(5), System.currentTimeMillis()));
+        }
+        List<Review> restaurantReviews = reviews.containsKey(restaurantId) ? reviews.get(restaurantId) : Collections.<Review>emptyList();
+        for (int i = 0; i < updateCount && !restaurantReviews.isEmpty(); i++) {
+            int index = random.nextInt(restaurantReviews.size());
+            Review current = restaurantReviews.get(index);
+            // Reviews are replaced rather than modified, as clients may still hold the previous instance
+            Review edited = new Review(current.getId(), current.getUsername(), current.getPicture(),
+                    SIMULATED_COMMENTS[random.nextInt(SIMULATED_COMMENTS.length)], 1 + random.nextInt(5), current.getCreatedAt());
+            restaurantReviews.set(index, edited);
+            log(restaurantId, Change.Type.UPDATE, edited.getId(), edited);
+        }
+        for (int i = 0; i < deleteCount && !restaurantReviews.isEmpty(); i++) {
+            Review deleted = restaurantReviews.remove(random.nextInt(restaurantReviews.size()));
+            log(restaurantId, Change.Type.DELETE, deleted.getId(), null);
+        }
+    }
+
+    private void insert(String restaurantId, Review review) {
+        List<Review> restaurantReviews = reviews.get(restaurantId);
+        if (restaurantReviews == null) {
+            restaurantReviews = new ArrayList<>();
+            reviews.put(restaurantId, restaurantReviews);
+        }
+        restaurantReviews.add(0, review); // Newest first
+        log(restaurantId, Change.Type.INSERT, review.getId(), review);
+    }
+
+    private void log(String restaurantId, Change.Type type, String reviewId, Review review) {
+        List<Change> changeLog = changeLogs.get(restaurantId);
+        if (changeLog == null) {
+            changeLog = new ArrayList<>();
+            changeLogs.put(restaurantId, changeLog);
+        }
+        changeLog.add(new Change(++lastSequence, type, reviewId, review));
+    }
+
+    /**
+     * An entry of the change log of a restaurant.
+     */
+    private static class Change {
+
+        enum Type {
+            INSERT,
+            UPDATE,
+            DELETE
+        }
+
+        final long sequence;
+        final Type type;
+        final String reviewId;
+        final Review review; // The review after the change, null for a deletion
+
+        Change(long sequence, Type type, String reviewId, Review review) {
+            this.sequence = sequence;
+            this.type = type;
+            this.reviewId = reviewId;
+            this.review = review;
+        }
     }
 }
@@ -0,0 +1,275 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the JSON documents exchanged with the restaurant server.
+ * <p>
+ * Documents are read token by token from the response stream, so a long list of reviews is never
+ * held in memory as text: only the reviews built from it are. Unknown names are skipped, so the
+ * server can add fields without breaking older clients.
+ * </p>
+ */
+final class RestaurantJson {
+
+    private RestaurantJson() {
+    }
+
+    /**
+     * Reads a restaurant object.
+     */
+    static Restaurant readRestaurant(JsonReader reader) throws IOException {
+        String id = null;
+        String name = null;
+        String type = null;
+        String hours = null;
+        String address = null;
+        String website = null;
+        String phoneNumber = null;
+        boolean dineIn = false;
+        boolean takeAway = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = nextStringOrNull(reader);
+                    break;
+                case "name":
+                    name = nextStringOrNull(reader);
+                    break;
+                case "type":
+                    type = nextStringOrNull(reader);
+                    break;
+                case "hours":
+                    hours = nextStringOrNull(reader);
+                    break;
+                case "address":
+                    address = nextStringOrNull(reader);
+                    break;
+                case "website":
+                    website = nextStringOrNull(reader);
+                    break;
+                case "phoneNumber":
+                    phoneNumber = nextStringOrNull(reader);
+                    break;
+                case "dineIn":
+                    dineIn = reader.nextBoolean();
+                    break;
+                case "takeAway":
+                    takeAway = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Restaurant(id, name, type, hours, address, website, phoneNumber, dineIn, takeAway);
+    }
+
+    /**
+     * Writes a restaurant object.
+     */
+    static void writeRestaurant(JsonWriter writer, Restaurant restaurant) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(restaurant.getId());
+        writer.name("name").value(restaurant.getName());
+        writer.name("type").value(restaurant.getType());
+        writer.name("hours").value(restaurant.getHours());
+        writer.name("address").value(restaurant.getAddress());
+        writer.name("website").value(restaurant.getWebsite());
+        writer.name("phoneNumber").value(restaurant.getPhoneNumber());
+        writer.name("dineIn").value(restaurant.isDineIn());
+        writer.name("takeAway").value(restaurant.isTakeAway());
+        writer.endObject();
+    }
+
+    /**
+     * Reads a review object.
+     */
+    static Review readReview(JsonReader reader) throws IOException {
+        String id = null;
+        String username = null;
+        String picture = null;
+        String comment = null;
+        int rate = 0;
+        long createdAt = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = nextStringOrNull(reader);
+                    break;
+                case "username":
+                    username = nextStringOrNull(reader);
+                    break;
+                case "picture":
+                    picture = nextStringOrNull(reader);
+                    break;
+                case "comment":
+                    comment = nextStringOrNull(reader);
+                    break;
+                case "rate":
+                    rate = reader.nextInt();
+                    break;
+                case "createdAt":
+                    createdAt = reader.nextLong();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Review(id, username, picture, comment, rate, createdAt);
+    }
+
+    /**
+     * Writes a review object.
+     */
+    static void writeReview(JsonWriter writer, Review review) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(review.getId());
+        writer.name("username").value(review.getUsername());
+        writer.name("picture").value(review.getPicture());
+        writer.name("comment").value(review.getComment());
+        writer.name("rate").value(review.getRate());
+        writer.name("createdAt").value(review.getCreatedAt());
+        writer.endObject();
+    }
+
+    /**
+     * Reads an array of review objects.
+     */
+    static List<Review> readReviews(JsonReader reader) throws IOException {
+        List<Review> reviews = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            reviews.add(readReview(reader));
+        }
+        reader.endArray();
+        return reviews;
+    }
+
+    /**
+     * Writes an array of review objects.
+     */
+    static void writeReviews(JsonWriter writer, List<Review> reviews) throws IOException {
+        writer.beginArray();
+        for (Review review : reviews) {
+            writeReview(writer, review);
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Reads a page object: {@code {"reviews": [...], "nextCursor": "..."}}.
+     *
+     * @param cursor the cursor the page was requested with, which the document does not repeat
+     */
+    static ReviewPage readReviewPage(JsonReader reader, String cursor) throws IOException {
+        List<Review> reviews = new ArrayList<>();
+        String nextCursor = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "reviews":
+                    reviews = readReviews(reader);
+                    break;
+                case "nextCursor":
+                    nextCursor = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ReviewPage(cursor, reviews, nextCursor);
+    }
+
+    /**
+     * Writes a page object.
+     */
+    static void writeReviewPage(JsonWriter writer, ReviewPage page) throws IOException {
+        writer.beginObject();
+        writer.name("reviews");
+        writeReviews(writer, page.getReviews());
+        writer.name("nextCursor").value(page.getNextCursor());
+        writer.endObject();
+    }
+
+    /**
+     * Reads a delta object: {@code {"inserted": [...], "updated": [...], "deleted": ["id", ...],
+     * "syncToken": "...", "hasMore": false}}.
+     */
+    static ReviewDelta readReviewDelta(JsonReader reader) throws IOException {
+        List<Review> inserted = null;
+        List<Review> updated = null;
+        List<String> deletedIds = new ArrayList<>();
+        String syncToken = null;
+        boolean hasMore = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "inserted":
+                    inserted = readReviews(reader);
+                    break;
+                case "updated":
+                    updated = readReviews(reader);
+                    break;
+                case "deleted":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        deletedIds.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                case "syncToken":
+                    syncToken = nextStringOrNull(reader);
+                    break;
+                case "hasMore":
+                    hasMore = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ReviewDelta(inserted, updated, deletedIds, syncToken, hasMore);
+    }
+
+    /**
+     * Writes a delta object.
+     */
+    static void writeReviewDelta(JsonWriter writer, ReviewDelta delta) throws IOException {
+        writer.beginObject();
+        writer.name("inserted");
+        writeReviews(writer, delta.getInserted());
+        writer.name("updated");
+        writeReviews(writer, delta.getUpdated());
+        writer.name("deleted").beginArray();
+        for (String deletedId : delta.getDeletedIds()) {
+            writer.value(deletedId);
+        }
+        writer.endArray();
+        writer.name("syncToken").value(delta.getSyncToken());
+        writer.name("hasMore").value(delta.hasMore());
+        writer.endObject();
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.tajmahal.data.upload;
+
+import android.content.Context;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import dagger.hilt.android.qualifiers.ApplicationContext;
+
+/**
+ * Schedules the upload of the reviews queued in the local store.
+ * <p>
+ * The upload runs once the device is online, {@link #COALESCE_DELAY_SECONDS} seconds after the
+ * first review is queued. Reviews queued in the meantime do not schedule another job, so reviews
+ * written in quick succession are sent together. As WorkManager persists its jobs, a scheduled
+ * upload survives the app being closed or the device rebooting.
+ * </p>
+ *
+ * @see ReviewUploadWorker
+ */
+@Singleton
+public class ReviewUploadScheduler {
+
+    /** Name of the upload job, so that at most one is scheduled at a time. */
+    static final String UNIQUE_WORK_NAME = "review-upload";
+
+    /** Time waited before uploading, so that reviews written in quick succession share one request. */
+    static final long COALESCE_DELAY_SECONDS = 10;
+
+    /** Time waited before the first retry of a failed upload, doubled on each following one. */
+    static final long INITIAL_BACKOFF_SECONDS = 30;
+
+    private final Context context;
+
+    /**
+     * Constructs a new scheduler.
+     *
+     * @param context The application context used to reach WorkManager.
+     */
+    @Inject
+    public ReviewUploadScheduler(@ApplicationContext Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Schedules an upload of the queued reviews, unless one is already scheduled.
+     */
+    public void schedule() {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(ReviewUploadWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setInitialDelay(COALESCE_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, INITIAL_BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(UNIQUE_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.tajmahal.data.upload;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.openclassrooms.tajmahal.data.local.PendingUpload;
+import com.openclassrooms.tajmahal.data.local.ReviewStore;
+import com.openclassrooms.tajmahal.data.service.RestaurantApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dagger.hilt.EntryPoint;
+import dagger.hilt.InstallIn;
+import dagger.hilt.android.EntryPointAccessors;
+import dagger.hilt.components.SingletonComponent;
+
+/**
+ * Background job sending the reviews queued in the {@link ReviewStore} to the API.
+ * <p>
+ * The queue is drained in batches of {@link #UPLOAD_BATCH_SIZE} reviews, each batch sent with one
+ * request per restaurant it contains, and each review is removed from the queue only once its
+ * request has succeeded. If a request fails, the job is retried later by WorkManager with an
+ * exponential backoff, starting from the first review still queued.
+ * </p>
+ *
+ * @see ReviewUploadScheduler
+ */
+public class ReviewUploadWorker extends Worker {
+
+    private static final String TAG = "ReviewUploadWorker";
+
+    /** Maximum number of queued reviews read and sent at a time. */
+    static final int UPLOAD_BATCH_SIZE = 50;
+
+    /**
+     * Dependencies of the worker, read from the application component since WorkManager creates workers itself.
+     */
+    @EntryPoint
+    @InstallIn(SingletonComponent.class)
+    public interface Dependencies {
+        RestaurantApi restaurantApi();
+
+        ReviewStore reviewStore();
+    }
+
+    /**
+     * Constructs the worker. Called by WorkManager.
+     *
+     * @param context      The application context.
+     * @param workerParams The parameters of the job.
+     */
+    public ReviewUploadWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Dependencies dependencies = EntryPointAccessors.fromApplication(getApplicationContext(), Dependencies.class);
+        RestaurantApi restaurantApi = dependencies.restaurantApi();
+        ReviewStore reviewStore = dependencies.reviewStore();
+
+        try {
+            List<PendingUpload> uploads;
+            while (!(uploads = reviewStore.getPendingUploads(UPLOAD_BATCH_SIZE)).isEmpty()) {
+                for (Map.Entry<String, List<PendingUpload>> restaurantUploads : groupByRestaurant(uploads).entrySet()) {
+                    List<Review> reviews = new ArrayList<>(restaurantUploads.getValue().size());
+                    for (PendingUpload upload : restaurantUploads.getValue()) {
+                        reviews.add(upload.getReview());
+                    }
+                    restaurantApi.submitReviews(restaurantUploads.getKey(), reviews);
+                    reviewStore.removePendingUploads(restaurantUploads.getValue());
+                }
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Review upload failed, it will be retried", e);
+            return Result.retry();
+        }
+        return Result.success();
+    }
+
+    /**
+     * Groups queued reviews by restaurant, keeping the queue order within each restaurant.
+     */
+    private static Map<String, List<PendingUpload>> groupByRestaurant(List<PendingUpload> uploads) {
+        Map<String, List<PendingUpload>> uploadsByRestaurant = new LinkedHashMap<>();
+        for (PendingUpload upload : uploads) {
+            List<PendingUpload> restaurantUploads = uploadsByRestaurant.get(upload.getRestaurantId());
+            if (restaurantUploads == null) {
+                restaurantUploads = new ArrayList<>();
+                uploadsByRestaurant.put(upload.getRestaurantId(), restaurantUploads);
+            }
+            restaurantUploads.add(upload);
+        }
+        return uploadsByRestaurant;
+    }
+}
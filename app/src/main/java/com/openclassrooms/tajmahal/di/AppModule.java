@@ -1,13 +1,32 @@
 package com.openclassrooms.tajmahal.di;
 
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.core.content.ContextCompat;
+import androidx.core.os.HandlerCompat;
+
+import com.openclassrooms.tajmahal.BuildConfig;
+import com.openclassrooms.tajmahal.data.local.ReviewSnapshotStore;
+import com.openclassrooms.tajmahal.data.local.ReviewStore;
+import com.openclassrooms.tajmahal.data.local.SqliteReviewStore;
+import com.openclassrooms.tajmahal.data.service.HttpRestaurantApi;
 import com.openclassrooms.tajmahal.data.service.RestaurantApi;
 import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.io.File;
+import java.util.concurrent.Executors;
 
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
 import dagger.hilt.InstallIn;
+import dagger.hilt.android.qualifiers.ApplicationContext;
 import dagger.hilt.components.SingletonComponent;
 
 /**
@@ -19,16 +38,97 @@ import dagger.hilt.components.SingletonComponent;
 @InstallIn(SingletonComponent.class)
 public class AppModule {
 
+    /** Qualifier of the time, in milliseconds, during which cached restaurant details are considered fresh. */
+    public static final String RESTAURANT_CACHE_TTL = "restaurantCacheTtlMillis";
+
+    // Directory of the files holding the review snapshots, in the files directory of the application
+    private static final String REVIEW_SNAPSHOT_DIRECTORY = "review_snapshots";
+
+    // Number of threads running network calls and local reads in parallel
+    private static final int BACKGROUND_THREAD_COUNT = 4;
+
+    /**
+     * Provides a singleton instance of the RestaurantApi. Builds configured with the URL of a
+     * server, in the {@code API_BASE_URL} build config field, talk to it over HTTP; the others
+     * use a fake implementation of the API, which can be helpful during testing or mock scenarios.
+     *
+     * @param metrics The registry recording the performance metrics of the HTTP requests.
+     * @return A singleton instance of the HttpRestaurantApi, or of the RestaurantFakeApi without server URL.
+     */
+    @Provides
+    @Singleton
+    public RestaurantApi provideRestaurantApi(MetricsRegistry metrics) {
+        if (BuildConfig.API_BASE_URL.isEmpty()) {
+            return new RestaurantFakeApi();
+        }
+        return new HttpRestaurantApi(BuildConfig.API_BASE_URL, metrics);
+    }
+
+    /**
+     * Provides a singleton instance of the ReviewStore, backed by a SQLite database
+     * so that reviews survive process death.
+     *
+     * @param context The application context used to open the database.
+     * @return A singleton instance of the SqliteReviewStore.
+     */
+    @Provides
+    @Singleton
+    public ReviewStore provideReviewStore(@ApplicationContext Context context) {
+        return new SqliteReviewStore(context);
+    }
+
     /**
-     * Provides a singleton instance of the RestaurantApi. In this example,
-     * a fake implementation of the API is being used, which can be helpful
-     * during testing or mock scenarios.
+     * Provides a singleton instance of the ReviewSnapshotStore. Snapshots are kept with the other
+     * files of the application rather than in its cache, so they are still there on the next cold start.
      *
-     * @return A singleton instance of the RestaurantFakeApi.
+     * @param context The application context used to locate the files directory.
+     * @return A singleton instance of the ReviewSnapshotStore.
      */
     @Provides
     @Singleton
-    public RestaurantApi provideRestaurantApi() {
-        return new RestaurantFakeApi();
+    public ReviewSnapshotStore provideReviewSnapshotStore(@ApplicationContext Context context) {
+        return new ReviewSnapshotStore(new File(context.getFilesDir(), REVIEW_SNAPSHOT_DIRECTORY));
+    }
+
+    /**
+     * Provides the executors shared by the repositories: a single thread for disk writes,
+     * a small pool for network calls and local reads, and the main thread for callbacks,
+     * optionally delayed through a handler of the main looper.
+     *
+     * @param context The application context used to reach the main thread.
+     * @return A singleton instance of AppExecutors.
+     */
+    @Provides
+    @Singleton
+    public AppExecutors provideAppExecutors(@ApplicationContext Context context) {
+        Handler mainHandler = HandlerCompat.createAsync(Looper.getMainLooper());
+        return new AppExecutors(Executors.newSingleThreadExecutor(),
+                Executors.newFixedThreadPool(BACKGROUND_THREAD_COUNT),
+                ContextCompat.getMainExecutor(context),
+                mainHandler::postDelayed);
+    }
+
+    /**
+     * Provides the registry holding the performance metrics of the whole application,
+     * so that every instrumented class reports into the same dump.
+     *
+     * @return A singleton instance of MetricsRegistry.
+     */
+    @Provides
+    @Singleton
+    public MetricsRegistry provideMetricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    /**
+     * Provides the time during which cached restaurant details are served without being refreshed.
+     * The value is set per build in the {@code RESTAURANT_CACHE_TTL_MILLIS} build config field.
+     *
+     * @return The time to live of cached restaurant details, in milliseconds.
+     */
+    @Provides
+    @Named(RESTAURANT_CACHE_TTL)
+    public long provideRestaurantCacheTtl() {
+        return BuildConfig.RESTAURANT_CACHE_TTL_MILLIS;
     }
 }
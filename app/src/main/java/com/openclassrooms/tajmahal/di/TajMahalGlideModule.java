@@ -0,0 +1,34 @@
+package com.openclassrooms.tajmahal.di;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.module.AppGlideModule;
+import com.openclassrooms.tajmahal.util.AvatarLoader;
+
+/**
+ * TajMahalGlideModule configures the Glide instance shared by the application.
+ * <p>
+ * Avatars are the only remote images of the app, so the disk cache is sized for them: it lives in
+ * its own directory of the application cache and is bounded by {@link AvatarLoader#DISK_CACHE_SIZE_BYTES},
+ * evicting the least recently used entries first.
+ * </p>
+ */
+@GlideModule
+public class TajMahalGlideModule extends AppGlideModule {
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context,
+                AvatarLoader.DISK_CACHE_DIRECTORY, AvatarLoader.DISK_CACHE_SIZE_BYTES));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false; // No library module is registered through the manifest
+    }
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+/**
+ * Represents the state of a data load: in progress, completed, or failed with an error.
+ * Instances are immutable.
+ */
+public class LoadState {
+
+    /** The possible states of a load. */
+    public enum Status {
+        LOADING,
+        SUCCESS,
+        ERROR
+    }
+
+    private static final LoadState LOADING = new LoadState(Status.LOADING, null);
+    private static final LoadState SUCCESS = new LoadState(Status.SUCCESS, null);
+
+    /** The state of the load. */
+    private final Status status;
+
+    /** The reason of the failure, only set when the status is {@link Status#ERROR}. */
+    private final Throwable error;
+
+    private LoadState(Status status, Throwable error) {
+        this.status = status;
+        this.error = error;
+    }
+
+    /**
+     * Returns the state of a load in progress.
+     *
+     * @return a LoadState with the {@link Status#LOADING} status
+     */
+    public static LoadState loading() {
+        return LOADING;
+    }
+
+    /**
+     * Returns the state of a completed load.
+     *
+     * @return a LoadState with the {@link Status#SUCCESS} status
+     */
+    public static LoadState success() {
+        return SUCCESS;
+    }
+
+    /**
+     * Returns the state of a failed load.
+     *
+     * @param error the reason of the failure
+     * @return a LoadState with the {@link Status#ERROR} status
+     */
+    public static LoadState error(Throwable error) {
+        return new LoadState(Status.ERROR, error);
+    }
+
+    /**
+     * Returns the state of the load.
+     *
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the reason of the failure.
+     *
+     * @return the error, or null if the load did not fail
+     */
+    public Throwable getError() {
+        return error;
+    }
+}
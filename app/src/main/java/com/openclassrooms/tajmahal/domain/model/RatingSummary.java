@@ -0,0 +1,90 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+/**
+ * Represents the aggregated ratings of a restaurant.
+ * <p>
+ * A summary holds the number of reviews, the sum of their ratings and how many reviews
+ * gave each number of stars, from 1 to {@link #MAX_RATING}. Instances are immutable snapshots.
+ * </p>
+ */
+public class RatingSummary {
+
+    /** The highest rating a review can give. */
+    public static final int MAX_RATING = 5;
+
+    /** A summary of a restaurant without any review. */
+    public static final RatingSummary EMPTY = new RatingSummary(new long[MAX_RATING]);
+
+    /** The number of reviews. */
+    private final long count;
+
+    /** The sum of the ratings of all reviews. */
+    private final long sum;
+
+    /** The number of reviews per rating, index 0 holding the 1-star reviews. */
+    private final long[] histogram;
+
+    /**
+     * Constructs a new RatingSummary instance from the number of reviews per rating.
+     *
+     * @param histogram the number of reviews per rating, index 0 holding the 1-star reviews
+     */
+    public RatingSummary(long[] histogram) {
+        this.histogram = histogram.clone();
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < MAX_RATING; i++) {
+            count += histogram[i];
+            sum += histogram[i] * (i + 1);
+        }
+        this.count = count;
+        this.sum = sum;
+    }
+
+    /**
+     * Returns the number of reviews.
+     *
+     * @return the number of reviews
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the ratings of all reviews.
+     *
+     * @return the sum of the ratings
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the average rating.
+     *
+     * @return the average rating, or 0 if there is no review
+     */
+    public float getAverage() {
+        return count == 0 ? 0.0F : (float) sum / count;
+    }
+
+    /**
+     * Returns the number of reviews that gave the given rating.
+     *
+     * @param rating a rating between 1 and {@link #MAX_RATING}
+     * @return the number of reviews with that rating
+     */
+    public long getCountForRating(int rating) {
+        return histogram[rating - 1];
+    }
+
+    /**
+     * Returns the share of reviews that gave the given rating, rounded down.
+     *
+     * @param rating a rating between 1 and {@link #MAX_RATING}
+     * @return the percentage of reviews with that rating, or 0 if there is no review
+     */
+    public int getPercentForRating(int rating) {
+        return count == 0 ? 0 : (int) (histogram[rating - 1] * 100 / count);
+    }
+}
@@ -0,0 +1,71 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+/**
+ * Represents the recent ratings of a restaurant: the number of reviews and their average rating
+ * over each of the last {@link Window windows} of days. Instances are immutable snapshots.
+ */
+public class RatingTrend {
+
+    /** The windows of days over which the ratings are aggregated, each ending today. */
+    public enum Window {
+        LAST_7_DAYS(7),
+        LAST_30_DAYS(30),
+        LAST_90_DAYS(90);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        /**
+         * Returns the number of days covered by the window, today included.
+         *
+         * @return the length of the window in days
+         */
+        public int getDays() {
+            return days;
+        }
+    }
+
+    /** The trend of a restaurant without any recent review. */
+    public static final RatingTrend EMPTY = new RatingTrend(new long[Window.values().length], new long[Window.values().length]);
+
+    /** The number of reviews per window, indexed by {@link Window#ordinal()}. */
+    private final long[] counts;
+
+    /** The sum of the ratings per window, indexed by {@link Window#ordinal()}. */
+    private final long[] sums;
+
+    /**
+     * Constructs a new RatingTrend instance.
+     *
+     * @param counts the number of reviews per window, indexed by {@link Window#ordinal()}
+     * @param sums   the sum of the ratings per window, indexed by {@link Window#ordinal()}
+     */
+    public RatingTrend(long[] counts, long[] sums) {
+        this.counts = counts.clone();
+        this.sums = sums.clone();
+    }
+
+    /**
+     * Returns the number of reviews written during a window.
+     *
+     * @param window the window of days
+     * @return the number of reviews
+     */
+    public long getCount(Window window) {
+        return counts[window.ordinal()];
+    }
+
+    /**
+     * Returns the average rating of the reviews written during a window.
+     *
+     * @param window the window of days
+     * @return the average rating, or 0 if no review was written during the window
+     */
+    public float getAverage(Window window) {
+        long count = counts[window.ordinal()];
+        return count == 0 ? 0.0F : (float) sums[window.ordinal()] / count;
+    }
+}
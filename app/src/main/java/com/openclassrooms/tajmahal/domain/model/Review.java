@@ -6,10 +6,13 @@ import java.util.Objects;
 /**
  * Represents a user review.
  * This class encapsulates all the details of a review, including the username of the reviewer,
- * their profile picture, the comment they left, and the rating they gave.
+ * their profile picture, the comment they left, the rating they gave, and when they wrote it.
  */
 public class Review {
 
+    /** The identifier given to the review by the server, or null if the review is not known to the server yet. */
+    private String id;
+
     /** The name of the user who left the review. */
     private String username;
 
@@ -22,8 +25,11 @@ public class Review {
     /** The rating provided by the user. Typically out of 5 or 10. */
     private int rate;
 
+    /** The time the review was written, in milliseconds since the epoch. */
+    private long createdAt;
+
     /**
-     * Constructs a new Review instance.
+     * Constructs a new Review instance written now.
      *
      * @param username the name of the user leaving the review
      * @param picture  the profile picture URL or path of the user
@@ -31,10 +37,57 @@ public class Review {
      * @param rate     the rating given by the user
      */
     public Review(String username, String picture, String comment, int rate) {
+        this(username, picture, comment, rate, System.currentTimeMillis());
+    }
+
+    /**
+     * Constructs a new Review instance.
+     *
+     * @param username  the name of the user leaving the review
+     * @param picture   the profile picture URL or path of the user
+     * @param comment   the feedback or comment from the user
+     * @param rate      the rating given by the user
+     * @param createdAt the time the review was written, in milliseconds since the epoch
+     */
+    public Review(String username, String picture, String comment, int rate, long createdAt) {
+        this(null, username, picture, comment, rate, createdAt);
+    }
+
+    /**
+     * Constructs a new Review instance known to the server.
+     *
+     * @param id        the identifier given to the review by the server, or null if it has none yet
+     * @param username  the name of the user leaving the review
+     * @param picture   the profile picture URL or path of the user
+     * @param comment   the feedback or comment from the user
+     * @param rate      the rating given by the user
+     * @param createdAt the time the review was written, in milliseconds since the epoch
+     */
+    public Review(String id, String username, String picture, String comment, int rate, long createdAt) {
+        this.id = id;
         this.username = username;
         this.picture = picture;
         this.comment = comment;
         this.rate = rate;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Returns the identifier given to the review by the server.
+     *
+     * @return the identifier, or null if the review is not known to the server yet
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Sets the identifier given to the review by the server.
+     *
+     * @param id the identifier, or null if the review is not known to the server yet
+     */
+    public void setId(String id) {
+        this.id = id;
     }
 
     /**
@@ -109,6 +162,24 @@ public class Review {
         this.rate = rate;
     }
 
+    /**
+     * Returns the time the review was written.
+     *
+     * @return the creation time in milliseconds since the epoch
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Sets the time the review was written.
+     *
+     * @param createdAt the creation time in milliseconds since the epoch
+     */
+    public void setCreatedAt(long createdAt) {
+        this.createdAt = createdAt;
+    }
+
     /**
      * Compares this review with another object for equality.
      * Two reviews are considered equal if all their fields are identical.
@@ -121,7 +192,7 @@ public class Review {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Review review = (Review) o;
-        return rate == review.rate && Objects.equals(username, review.username) && Objects.equals(picture, review.picture) && Objects.equals(comment, review.comment);
+        return rate == review.rate && createdAt == review.createdAt && Objects.equals(id, review.id) && Objects.equals(username, review.username) && Objects.equals(picture, review.picture) && Objects.equals(comment, review.comment);
     }
 
     /**
@@ -131,6 +202,6 @@ public class Review {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(username, picture, comment, rate);
+        return Objects.hash(id, username, picture, comment, rate, createdAt);
     }
 }
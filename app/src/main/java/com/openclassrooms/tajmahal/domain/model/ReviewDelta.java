@@ -0,0 +1,103 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the changes made to the reviews of a restaurant since a sync token.
+ * <p>
+ * A delta holds the reviews inserted and updated since the token, the identifiers of the deleted
+ * ones, and the token to request the following changes with. Each review appears at most once in
+ * a delta, in its latest state. Large change sets are split into several deltas: while
+ * {@link #hasMore()} is true, the following one is requested with {@link #getSyncToken()}.
+ * Sync tokens are opaque strings: callers should only hand them back to the API that produced them.
+ * </p>
+ */
+public class ReviewDelta {
+
+    /** The reviews inserted since the token, oldest first. */
+    private final List<Review> inserted;
+
+    /** The reviews updated since the token, in their latest state. */
+    private final List<Review> updated;
+
+    /** The identifiers of the reviews deleted since the token. */
+    private final List<String> deletedIds;
+
+    /** The token to request the changes following this delta with. */
+    private final String syncToken;
+
+    /** Whether more changes follow this delta. */
+    private final boolean hasMore;
+
+    /**
+     * Constructs a new ReviewDelta instance.
+     *
+     * @param inserted   the reviews inserted since the token, oldest first
+     * @param updated    the reviews updated since the token
+     * @param deletedIds the identifiers of the reviews deleted since the token
+     * @param syncToken  the token to request the following changes with
+     * @param hasMore    true if more changes follow this delta
+     */
+    public ReviewDelta(List<Review> inserted, List<Review> updated, List<String> deletedIds, String syncToken, boolean hasMore) {
+        this.inserted = inserted != null ? Collections.unmodifiableList(inserted) : Collections.<Review>emptyList();
+        this.updated = updated != null ? Collections.unmodifiableList(updated) : Collections.<Review>emptyList();
+        this.deletedIds = deletedIds != null ? Collections.unmodifiableList(deletedIds) : Collections.<String>emptyList();
+        this.syncToken = syncToken;
+        this.hasMore = hasMore;
+    }
+
+    /**
+     * Returns the reviews inserted since the token.
+     *
+     * @return an unmodifiable list of reviews, oldest first
+     */
+    public List<Review> getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Returns the reviews updated since the token.
+     *
+     * @return an unmodifiable list of reviews, in their latest state
+     */
+    public List<Review> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Returns the identifiers of the reviews deleted since the token.
+     *
+     * @return an unmodifiable list of review identifiers
+     */
+    public List<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Returns the token to request the changes following this delta with.
+     *
+     * @return the sync token
+     */
+    public String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * Indicates whether more changes follow this delta.
+     *
+     * @return true if the following changes must be requested with {@link #getSyncToken()}
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * Indicates whether this delta holds no change.
+     *
+     * @return true if no review was inserted, updated or deleted
+     */
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deletedIds.isEmpty();
+    }
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents one page of reviews returned by a cursor-based query.
+ * <p>
+ * A page holds the cursor that was used to request it, the reviews it contains and the
+ * cursor to use to request the following page. Cursors are opaque strings: callers should
+ * only hand them back to the data source that produced them.
+ * </p>
+ */
+public class ReviewPage {
+
+    /** The cursor used to request this page, or null for the first page. */
+    private final String cursor;
+
+    /** The reviews contained in this page, newest first. */
+    private final List<Review> reviews;
+
+    /** The cursor of the following page, or null when this page is the last one. */
+    private final String nextCursor;
+
+    /**
+     * Constructs a new ReviewPage instance.
+     *
+     * @param cursor     the cursor used to request this page, or null for the first page
+     * @param reviews    the reviews contained in this page
+     * @param nextCursor the cursor of the following page, or null if there is none
+     */
+    public ReviewPage(String cursor, List<Review> reviews, String nextCursor) {
+        this.cursor = cursor;
+        this.reviews = reviews != null ? Collections.unmodifiableList(reviews) : Collections.<Review>emptyList();
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Returns the cursor used to request this page.
+     *
+     * @return the cursor, or null if this is the first page
+     */
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Returns the reviews contained in this page.
+     *
+     * @return an unmodifiable list of reviews
+     */
+    public List<Review> getReviews() {
+        return reviews;
+    }
+
+    /**
+     * Returns the cursor of the following page.
+     *
+     * @return the next cursor, or null when there are no more reviews
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Indicates whether more reviews can be requested after this page.
+     *
+     * @return true if a following page exists, false otherwise
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.openclassrooms.tajmahal.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Describes which reviews to list and in which order: optionally only the reviews giving a
+ * number of stars, sorted newest first or by rating. Instances are immutable.
+ */
+public class ReviewQuery {
+
+    /** The possible orders of the reviews. Reviews with the same rating are always listed newest first. */
+    public enum Sort {
+        NEWEST,
+        HIGHEST,
+        LOWEST
+    }
+
+    /** Every review, newest first. */
+    public static final ReviewQuery ALL = new ReviewQuery(null, Sort.NEWEST);
+
+    /** The number of stars of the listed reviews, or null to list every review. */
+    private final Integer rating;
+
+    /** The order of the listed reviews. */
+    private final Sort sort;
+
+    /**
+     * Constructs a new ReviewQuery instance.
+     *
+     * @param rating the number of stars of the listed reviews, from 1 to {@link RatingSummary#MAX_RATING}, or null for every review
+     * @param sort   the order of the listed reviews
+     */
+    public ReviewQuery(Integer rating, Sort sort) {
+        this.rating = rating;
+        this.sort = sort;
+    }
+
+    /**
+     * Returns the number of stars of the listed reviews.
+     *
+     * @return the rating, or null if every review is listed
+     */
+    public Integer getRating() {
+        return rating;
+    }
+
+    /**
+     * Returns the order of the listed reviews.
+     *
+     * @return the sort
+     */
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Indicates whether a review belongs to the reviews listed by this query.
+     *
+     * @param review the review to check
+     * @return true if the review gives the requested number of stars, or if every review is listed
+     */
+    public boolean matches(Review review) {
+        return rating == null || rating == review.getRate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReviewQuery that = (ReviewQuery) o;
+        return Objects.equals(rating, that.rating) && sort == that.sort;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(rating, sort);
+    }
+}
@@ -1,31 +1,106 @@
 package com.openclassrooms.tajmahal.ui;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.splashscreen.SplashScreen;
+
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.view.View;
+import android.view.ViewTreeObserver;
 
+import com.openclassrooms.tajmahal.BuildConfig;
 import com.openclassrooms.tajmahal.R;
+import com.openclassrooms.tajmahal.TajMahalApplication;
 import com.openclassrooms.tajmahal.databinding.ActivityMainBinding;
 import com.openclassrooms.tajmahal.ui.restaurant.DetailsFragment;
+import com.openclassrooms.tajmahal.util.StartupTimeline;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+import javax.inject.Inject;
 
 import dagger.hilt.android.AndroidEntryPoint;
 
 @AndroidEntryPoint
 public class MainActivity extends AppCompatActivity {
 
+    // Longest time the splash screen waits for the first data, from the creation of the activity
+    private static final long SPLASH_SCREEN_DEADLINE_MILLIS = 1000;
+
+    // Arguments of dump selecting the performance metrics, and their JSON format
+    private static final String DUMP_METRICS = "metrics";
+    private static final String DUMP_JSON = "--json";
+
+    @Inject
+    MetricsRegistry metricsRegistry; // Performance metrics of the whole application
+
+    @Inject
+    StartupTimeline startupTimeline; // Records the phases of the startup
+
     private ActivityMainBinding binding;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        binding = ActivityMainBinding.inflate(getLayoutInflater());
-        View view = binding.getRoot();
-        setContentView(view);
-        if (savedInstanceState == null) {
-            getSupportFragmentManager().beginTransaction()
-                    .replace(R.id.container, DetailsFragment.newInstance())
-                    .commitNow();
+        Trace.beginSection("MainActivity.onCreate");
+        try {
+            SplashScreen splashScreen = SplashScreen.installSplashScreen(this);
+            super.onCreate(savedInstanceState); // Hilt injects the fields here
+
+            // Keep the splash screen up until the first screen has its data, or the deadline passes
+            long splashScreenDeadline = SystemClock.uptimeMillis() + SPLASH_SCREEN_DEADLINE_MILLIS;
+            splashScreen.setKeepOnScreenCondition(() ->
+                    !startupTimeline.isReached(StartupTimeline.Phase.FIRST_DATA)
+                            && SystemClock.uptimeMillis() < splashScreenDeadline);
+
+            binding = ActivityMainBinding.inflate(getLayoutInflater());
+            View view = binding.getRoot();
+            setContentView(view);
+            if (savedInstanceState == null) {
+                getSupportFragmentManager().beginTransaction()
+                        .replace(R.id.container, DetailsFragment.newInstance(TajMahalApplication.DEFAULT_RESTAURANT_ID))
+                        .commitNow();
+            }
+            markFirstDraw(view);
+        } finally {
+            Trace.endSection();
+        }
+        startupTimeline.mark(StartupTimeline.Phase.ACTIVITY_CREATE);
+    }
+
+    /**
+     * Records the first frame drawn by the content of the activity, once the splash screen is gone.
+     */
+    private void markFirstDraw(View view) {
+        view.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                startupTimeline.mark(StartupTimeline.Phase.FIRST_DRAW);
+                // Listeners cannot be removed while they are being dispatched
+                view.post(() -> view.getViewTreeObserver().removeOnDrawListener(this));
+            }
+        });
+    }
+
+    /**
+     * In debug builds, dumps the performance metrics of the application when asked with
+     * {@code adb shell dumpsys activity com.openclassrooms.tajmahal/.ui.MainActivity metrics [--json]}.
+     * Any other dump is left to the default implementation.
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        if (!BuildConfig.DEBUG || args == null || args.length == 0 || !DUMP_METRICS.equals(args[0])) {
+            super.dump(prefix, fd, writer, args);
+            return;
+        }
+        if (Arrays.asList(args).contains(DUMP_JSON)) {
+            metricsRegistry.dumpJson(writer);
+        } else {
+            metricsRegistry.dumpText(writer);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,8 @@
 package com.openclassrooms.tajmahal.ui.Review;
 
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -8,20 +10,33 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.RatingBar;
 import android.widget.Toast;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.openclassrooms.tajmahal.R;
 import com.openclassrooms.tajmahal.databinding.FragmentReviewBinding;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.AvatarLoader;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 /**
@@ -33,6 +48,23 @@ import dagger.hilt.android.AndroidEntryPoint;
 @AndroidEntryPoint  // Enable Hilt to inject the ViewModel
 public class ReviewFragment extends Fragment {
 
+    private static final int AVATAR_PRELOAD_COUNT = 10; // Number of rows ahead of the visible ones whose avatars are preloaded
+    private static final int COMMENT_PRECOMPUTE_COUNT = 10; // Number of rows ahead of the visible ones whose comments are laid out
+    private static final String ARG_RESTAURANT_ID = "restaurant_id"; // Argument holding the identifier of the reviewed restaurant
+    private static final String ACTIVE_USER_AVATAR_URL = "https://xsgames.co/randomusers/assets/avatars/female/0.jpg"; // Avatar of the signed-in user
+
+    @Inject
+    AvatarLoader avatarLoader; // Loads avatars from the shared cache of cropped avatars
+
+    @Inject
+    MetricsRegistry metricsRegistry; // Records the time taken to bind review rows
+
+    @Inject
+    AppExecutors appExecutors; // Runs the layout of comments in the background
+
+    @Inject
+    ReviewRowPool rowPool; // Review rows inflated ahead of time and recycled across review screens
+
     private FragmentReviewBinding binding; // Data binding object for the fragment layout
     private ReviewViewModel reviewViewModel; // ViewModel for managing reviews
     private float myRating = 0; // Stores the rating selected by the user
@@ -44,6 +76,19 @@ public class ReviewFragment extends Fragment {
         // Required empty public constructor
     }
 
+    /**
+     * Creates and returns a new instance of ReviewFragment showing the reviews of the given restaurant.
+     * @param restaurantId The identifier of the reviewed restaurant.
+     * @return A new instance of ReviewFragment.
+     */
+    public static ReviewFragment newInstance(String restaurantId) {
+        ReviewFragment fragment = new ReviewFragment();
+        Bundle args = new Bundle();
+        args.putString(ARG_RESTAURANT_ID, restaurantId);
+        fragment.setArguments(args);
+        return fragment;
+    }
+
     /**
      * Inflates the layout for the fragment using ViewBinding.
      * @param inflater The LayoutInflater object to inflate the layout.
@@ -86,19 +131,92 @@ public class ReviewFragment extends Fragment {
 
         // Initialize the ViewModel to manage review data
         reviewViewModel = new ViewModelProvider(requireActivity()).get(ReviewViewModel.class);
+        reviewViewModel.setRestaurantId(requireArguments().getString(ARG_RESTAURANT_ID));
 
         // Set up RecyclerView with LinearLayoutManager for displaying reviews
-        binding.recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setRecycleChildrenOnDetach(true); // Leave the rows to the shared pool when the screen closes
+        binding.recyclerView.setLayoutManager(layoutManager);
+        binding.recyclerView.setRecycledViewPool(rowPool.getRecycledViewPool());
+        RequestManager requestManager = Glide.with(this);
+        ReviewListAdapter adapter = new ReviewListAdapter(requestManager, avatarLoader, appExecutors.background(),
+                rowPool, metricsRegistry);
+        binding.recyclerView.setAdapter(adapter);
+
+        // Load the avatars of the rows about to scroll into view before they are bound
+        binding.recyclerView.addOnScrollListener(adapter.createPreloader(AVATAR_PRELOAD_COUNT));
+
+        // Lay out the comments of the rows about to scroll into view off the main thread
+        binding.recyclerView.addOnScrollListener(adapter.createCommentPrecomputer(COMMENT_PRECOMPUTE_COUNT));
+
+        // Load the next or previous page of reviews as the user scrolls near either end of the list
+        binding.recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Posted because the adapter cannot be updated from within a scroll or layout pass
+                int firstVisible = layoutManager.findFirstVisibleItemPosition();
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (!reviewViewModel.isSearching()) { // Search results are not paged
+                    recyclerView.post(() -> reviewViewModel.onVisibleRangeChanged(firstVisible, lastVisible));
+                }
+            }
+        });
 
         // Observe the reviews LiveData and update the UI when data changes
         reviewViewModel.getReviews().observe(getViewLifecycleOwner(), reviews -> {
-            if (reviews != null) {
-                // Set the adapter for RecyclerView with the list of reviews
-                ReviewListAdapter adapter = new ReviewListAdapter(reviews);
-                binding.recyclerView.setAdapter(adapter);
+            if (reviews != null && !reviewViewModel.isSearching()) {
+                // Submit the new list; only the rows that differ from the displayed list are updated
+                adapter.submitList(reviews);
+            }
+        });
+
+        // Show the search results while searching, and the paged list otherwise
+        reviewViewModel.getSearchResults().observe(getViewLifecycleOwner(), results ->
+                adapter.submitList(results != null ? results : reviewViewModel.getReviews().getValue()));
+
+        // Search the comments as the user types
+        binding.searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                reviewViewModel.search(s.toString());
             }
         });
 
+        // Filter and sort the reviews as the user picks a rating or an order
+        AdapterView.OnItemSelectedListener queryListener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                applyReviewQuery();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        ReviewQuery currentQuery = reviewViewModel.getReviewQuery(); // Restore the selection when the view is recreated
+        binding.ratingFilter.setSelection(currentQuery.getRating() == null ? 0 : RatingSummary.MAX_RATING + 1 - currentQuery.getRating(), false);
+        binding.reviewSort.setSelection(currentQuery.getSort().ordinal(), false);
+        binding.ratingFilter.setOnItemSelectedListener(queryListener);
+        binding.reviewSort.setOnItemSelectedListener(queryListener);
+
+        // Report review loading errors
+        reviewViewModel.getLoadState().observe(getViewLifecycleOwner(), loadState -> {
+            if (loadState != null && loadState.getStatus() == LoadState.Status.ERROR) {
+                Toast.makeText(getContext(), R.string.reviews_load_error, Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        // Show the avatar of the active user, which is also the picture of the reviews they write
+        avatarLoader.load(requestManager, ACTIVE_USER_AVATAR_URL).into(binding.imageView);
+
         // Set up listener for the rating bar to capture user rating
         setupRatingBar();
 
@@ -106,6 +224,17 @@ public class ReviewFragment extends Fragment {
         binding.validateReviewButton.setOnClickListener(v -> saveNewReview());
     }
 
+    /**
+     * Applies the rating filter and the order selected in the filter bar to the review list.
+     * The first rating entry keeps every review; the following ones go from 5 stars down to 1 star.
+     */
+    private void applyReviewQuery() {
+        int ratingPosition = binding.ratingFilter.getSelectedItemPosition();
+        Integer rating = ratingPosition <= 0 ? null : RatingSummary.MAX_RATING + 1 - ratingPosition;
+        ReviewQuery.Sort sort = ReviewQuery.Sort.values()[Math.max(0, binding.reviewSort.getSelectedItemPosition())];
+        reviewViewModel.setReviewQuery(new ReviewQuery(rating, sort));
+    }
+
     /**
      * Sets up the listener for the rating bar. When the rating is changed,
      * the selected rating is stored and displayed as a toast.
@@ -132,7 +261,7 @@ public class ReviewFragment extends Fragment {
         int rating = Math.round(binding.rating.getRating()); // Get the rounded rating from the rating bar
 
         // Create a new Review object
-        Review newReview = new Review(currentUser, "https://xsgames.co/randomusers/assets/avatars/female/0.jpg", reviewText, rating);
+        Review newReview = new Review(currentUser, ACTIVE_USER_AVATAR_URL, reviewText, rating);
 
 
 
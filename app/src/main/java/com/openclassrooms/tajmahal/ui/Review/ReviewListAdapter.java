@@ -8,39 +8,232 @@ import android.widget.RatingBar;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.widget.AppCompatTextView;
+import androidx.collection.LruCache;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.ViewPreloadSizeProvider;
 import com.openclassrooms.tajmahal.R;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.util.AvatarLoader;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /**
  * ReviewListAdapter is responsible for binding a list of reviews to a RecyclerView.
  * It displays each review with the username, comment, rating, and avatar image.
- * The adapter uses Glide to load the user's avatar image.
+ * The adapter uses Glide, through the shared {@link AvatarLoader}, to load the user's avatar image.
+ * <p>
+ * New lists are submitted through {@link #submitList(List)}: the differences with the current
+ * list are computed on a background thread and only the changed rows are rebound, so adding one
+ * review to a long list inserts a single row instead of rebuilding the whole screen.
+ * </p>
+ * <p>
+ * Avatars of the rows about to scroll into view can be fetched ahead of time through the
+ * preloader returned by {@link #createPreloader(int)}. Preloaded avatars are cropped and sized
+ * exactly like the bound ones, so binding a row finds its avatar in the memory cache.
+ * </p>
+ * <p>
+ * Comments are measured and laid out off the main thread with {@link PrecomputedTextCompat}, using
+ * the text metrics of the comment view. The scroll listener returned by
+ * {@link #createCommentPrecomputer(int)} starts the layout of the comments of the next rows in the
+ * scroll direction, and binding a row hands the precomputed layout to the view, which only waits
+ * for it if it is not ready yet when the row is measured.
+ * </p>
+ * <p>
+ * New rows are taken from the {@link ReviewRowPool} of the activity when it has rows inflated
+ * ahead of time, and only inflated on the spot otherwise.
+ * </p>
+ * <p>
+ * The time taken to bind each row, including starting its avatar request, is recorded in the
+ * {@link MetricsRegistry} under {@link #METRIC_BIND}.
+ * </p>
  */
-public class ReviewListAdapter extends RecyclerView.Adapter<ReviewListAdapter.MyViewHolder> {
+public class ReviewListAdapter extends ListAdapter<Review, ReviewListAdapter.MyViewHolder>
+        implements ListPreloader.PreloadModelProvider<Review> {
 
-    private List<Review> reviewList = new ArrayList<>(); // List of reviews to be displayed in the RecyclerView
+    /** Name of the histogram recording the time taken to bind a row. */
+    static final String METRIC_BIND = "reviews.bind";
+
+    /** Names of the counters of rows taken from the row pool, and of rows inflated on the main thread. */
+    static final String METRIC_ROWS_FROM_POOL = "reviews.rows.fromPool";
+    static final String METRIC_ROWS_INFLATED = "reviews.rows.inflated";
+
+    /** Number of laid out comments kept in memory, enough for the visible rows and the ones around them. */
+    static final int COMMENT_LAYOUT_CACHE_SIZE = 50;
 
     /**
-     * Constructor for the ReviewListAdapter that initializes the review list.
-     * @param reviews The list of reviews to be displayed.
+     * Compares reviews to find the rows that were inserted, removed or changed between two lists.
+     * A review is identified by its server id; a review written on this device has none until it is
+     * uploaded, and is identified by its author and creation time instead, so that it keeps its row
+     * when the server copy replaces it. Its contents also include the comment, picture and rating.
      */
-    public ReviewListAdapter(List<Review> reviews) {
-        if (reviews != null) {
-            this.reviewList = reviews; // Initialize with the provided list if not null
-        } else {
-            this.reviewList = new ArrayList<>();  // Initialize as an empty list if reviews are null
+    private static final DiffUtil.ItemCallback<Review> DIFF_CALLBACK = new DiffUtil.ItemCallback<Review>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Review oldItem, @NonNull Review newItem) {
+            if (oldItem == newItem) {
+                return true;
+            }
+            if (oldItem.getId() != null && newItem.getId() != null) {
+                return oldItem.getId().equals(newItem.getId());
+            }
+            return oldItem.getCreatedAt() == newItem.getCreatedAt()
+                    && Objects.equals(oldItem.getUsername(), newItem.getUsername());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Review oldItem, @NonNull Review newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final RequestManager requestManager; // Glide requests bound to the lifecycle of the hosting screen
+    private final AvatarLoader avatarLoader; // Builds avatar requests backed by the cache of cropped avatars
+    private final ViewPreloadSizeProvider<Review> avatarSizeProvider = new ViewPreloadSizeProvider<>(); // Measures the avatar view once
+    private final LatencyHistogram bindLatency; // Time taken to bind a row
+    private final ReviewRowPool rowPool; // Rows inflated ahead of time
+    private final Counter rowsFromPool; // Rows taken from the row pool
+    private final Counter rowsInflated; // Rows inflated on the main thread
+    private final Executor textLayoutExecutor; // Lays out comments off the main thread
+    private final LruCache<String, Future<PrecomputedTextCompat>> commentLayouts = new LruCache<>(COMMENT_LAYOUT_CACHE_SIZE); // Laid out comments, by text
+    private PrecomputedTextCompat.Params commentTextParams; // Text metrics of the comment view, read from the first row created or bound
+
+    /**
+     * Constructor for the ReviewListAdapter. The adapter starts empty; reviews are provided
+     * through {@link #submitList(List)}.
+     * @param requestManager     The Glide request manager used to load avatars.
+     * @param avatarLoader       The loader building avatar requests.
+     * @param textLayoutExecutor The executor laying out comments off the main thread.
+     * @param rowPool            The rows inflated ahead of time for the review screens of the activity.
+     * @param metrics            The registry recording the time taken to create and bind rows.
+     */
+    public ReviewListAdapter(RequestManager requestManager, AvatarLoader avatarLoader, Executor textLayoutExecutor,
+                             ReviewRowPool rowPool, MetricsRegistry metrics) {
+        super(DIFF_CALLBACK);
+        this.requestManager = requestManager;
+        this.avatarLoader = avatarLoader;
+        this.textLayoutExecutor = textLayoutExecutor;
+        this.rowPool = rowPool;
+        this.bindLatency = metrics.histogram(METRIC_BIND);
+        this.rowsFromPool = metrics.counter(METRIC_ROWS_FROM_POOL);
+        this.rowsInflated = metrics.counter(METRIC_ROWS_INFLATED);
+    }
+
+    /**
+     * Creates a scroll listener that loads the avatars of the next rows in the scroll direction
+     * before they are bound, and cancels the requests of the rows that left that range.
+     * @param maxPreload The number of rows ahead of the visible ones whose avatars are loaded.
+     * @return The listener to add to the RecyclerView displaying this adapter.
+     */
+    public RecyclerViewPreloader<Review> createPreloader(int maxPreload) {
+        return new RecyclerViewPreloader<>(requestManager, this, avatarSizeProvider, maxPreload);
+    }
+
+    /**
+     * Creates a scroll listener that lays out the comments of the next rows in the scroll direction
+     * in the background, before they are bound. The RecyclerView must use a {@link LinearLayoutManager}.
+     * @param maxPrecompute The number of rows ahead of the visible ones whose comments are laid out.
+     * @return The listener to add to the RecyclerView displaying this adapter.
+     */
+    public RecyclerView.OnScrollListener createCommentPrecomputer(int maxPrecompute) {
+        return new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null) {
+                    return;
+                }
+                int start;
+                int end;
+                if (dy >= 0) {
+                    start = layoutManager.findLastVisibleItemPosition() + 1;
+                    end = start + maxPrecompute;
+                } else {
+                    end = layoutManager.findFirstVisibleItemPosition();
+                    start = end - maxPrecompute;
+                }
+                for (int position = Math.max(0, start); position < Math.min(getItemCount(), end); position++) {
+                    precomputeComment(getItem(position).getComment());
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the layout of a comment, starting it in the background unless it is already cached or running.
+     * @return The laid out comment, or null for a review without comment, or until a row has been created or bound,
+     * as the text metrics are not known yet.
+     */
+    private Future<PrecomputedTextCompat> precomputeComment(String comment) {
+        if (commentTextParams == null || comment == null) {
+            return null;
+        }
+        Future<PrecomputedTextCompat> layout = commentLayouts.get(comment);
+        if (layout == null) {
+            layout = PrecomputedTextCompat.getTextFuture(comment, commentTextParams, textLayoutExecutor);
+            commentLayouts.put(comment, layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the size avatars are preloaded at, known once a row has been created or bound and its avatar view sized.
+     * @return The width and height of the avatar view, or null if not known yet.
+     */
+    int[] getAvatarPreloadSize() {
+        return avatarSizeProvider.getPreloadSize(null, 0, 0);
+    }
+
+    /**
+     * Returns the review whose avatar should be preloaded for the given row.
+     * @param position The adapter position of the row.
+     * @return The review at that position, or an empty list if the position is out of range.
+     */
+    @NonNull
+    @Override
+    public List<Review> getPreloadItems(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return Collections.emptyList();
         }
+        return Collections.singletonList(getItem(position));
+    }
+
+    /**
+     * Returns the request preloading the avatar of the given review.
+     * @param review A review returned by {@link #getPreloadItems(int)}.
+     * @return The same request as the one made when the row is bound.
+     */
+    @Override
+    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull Review review) {
+        return avatarRequest(review);
+    }
+
+    /**
+     * Builds the request loading the avatar of a review, shared by binding and preloading so that both hit the same cache entry.
+     */
+    private RequestBuilder<?> avatarRequest(Review review) {
+        return avatarLoader.load(requestManager, review.getPicture());
     }
 
     /**
      * Called when the RecyclerView needs a new ViewHolder to be created.
-     * Inflates the layout for each individual review item.
+     * Takes a row inflated ahead of time if there is one, and inflates the layout of a review item otherwise.
      * @param parent The parent view that the new item view will be attached to.
      * @param viewType The view type of the new view (if needed).
      * @return A new ViewHolder instance.
@@ -48,10 +241,32 @@ public class ReviewListAdapter extends RecyclerView.Adapter<ReviewListAdapter.My
     @NonNull
     @Override
     public ReviewListAdapter.MyViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        // Inflate the review item layout and return a new ViewHolder
-        View itemView = LayoutInflater.from(parent.getContext())
-                .inflate(R.layout.review_item, parent, false);
-        return new MyViewHolder(itemView);
+        // Take a row inflated in the background, or inflate the review item layout, and return a new ViewHolder
+        View itemView = rowPool.take();
+        if (itemView != null) {
+            rowsFromPool.increment();
+        } else {
+            itemView = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.review_item, parent, false);
+            rowsInflated.increment();
+        }
+        MyViewHolder holder = new MyViewHolder(itemView);
+        measureRow(holder);
+        return holder;
+    }
+
+    /**
+     * Reads the avatar size and comment text metrics from the first row this adapter sees. Rows
+     * may come from the shared pool, created by the adapter of a previous screen, so this is done
+     * when binding as well as when creating a row.
+     */
+    private void measureRow(MyViewHolder holder) {
+        // Preload avatars at the size of the view they are shown in; ignored once a view was given
+        avatarSizeProvider.setView(holder.avatarView);
+        if (commentTextParams == null) {
+            // Every row shares the same text style, so the metrics of the first one apply to all comments
+            commentTextParams = TextViewCompat.getTextMetricsParams(holder.commentTextView);
+        }
     }
 
     /**
@@ -62,40 +277,38 @@ public class ReviewListAdapter extends RecyclerView.Adapter<ReviewListAdapter.My
      */
     @Override
     public void onBindViewHolder(@NonNull ReviewListAdapter.MyViewHolder holder, int position) {
+        long startNanos = System.nanoTime();
 
         // Get the review at the given position in the list
-        Review review = reviewList.get(position);
+        Review review = getItem(position);
+        measureRow(holder);
 
-        // Set the review's comment and username into the TextViews
-        holder.commentTextView.setText(review.getComment());
+        // Set the review's comment, laid out in the background, and username into the TextViews
+        Future<PrecomputedTextCompat> commentLayout = precomputeComment(review.getComment());
+        if (commentLayout != null) {
+            holder.commentTextView.setTextFuture(commentLayout);
+        } else {
+            holder.commentTextView.setText(review.getComment()); // Never leave the comment of a previous row
+        }
         holder.userInList.setText(review.getUsername());
 
         // Set the rating for the review using the RatingBar
         holder.ratingbarSetup.setRating(review.getRate());
 
-        // Load the user's avatar image into the ImageView using Glide
-        Glide.with(holder.itemView.getContext())
-                .load(review.getPicture()) // Load the URL of the avatar image
-                .circleCrop() // Crop the image to make it circular
-                .into(holder.avatarView); // Set the image into the ImageView
-    }
+        // Load the user's avatar image into the ImageView using Glide, from memory if it was preloaded
+        avatarRequest(review).into(holder.avatarView); // Set the image into the ImageView
 
-    /**
-     * Returns the number of items in the review list.
-     * @return The total number of reviews in the list.
-     */
-    @Override
-    public int getItemCount() {
-        return reviewList.size();
+        bindLatency.recordSince(startNanos);
     }
 
     /**
      * MyViewHolder is the ViewHolder class that holds the views for each individual review item.
+     * It does not refer to its adapter, so that it can be reused by the next review screen through the shared pool.
      */
-    protected class MyViewHolder extends RecyclerView.ViewHolder {
+    protected static class MyViewHolder extends RecyclerView.ViewHolder {
 
         public TextView userInList; // TextView for displaying the username
-        public TextView commentTextView; // TextView for displaying the review comment
+        public AppCompatTextView commentTextView; // TextView for displaying the review comment, inflated as an AppCompatTextView by the AppCompat activity
         public ImageView avatarView; // ImageView for displaying the user's avatar
         public RatingBar ratingbarSetup; // RatingBar for displaying the rating
 
@@ -0,0 +1,94 @@
+package com.openclassrooms.tajmahal.ui.Review;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.asynclayoutinflater.view.AsyncLayoutInflater;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.openclassrooms.tajmahal.R;
+
+import java.util.ArrayDeque;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.qualifiers.ActivityContext;
+import dagger.hilt.android.scopes.ActivityScoped;
+
+/**
+ * Keeps review rows ready for the review screens of an activity, so that opening one does not
+ * spend its first frames inflating rows.
+ * <p>
+ * Rows are inflated ahead of time on a background thread through {@link #warmUp(int)}, typically
+ * while the details screen is idle, and handed out by {@link #take()}. Background inflation skips
+ * the AppCompat view substitution, so the row layout names its AppCompat widgets explicitly.
+ * </p>
+ * <p>
+ * The pool also holds the {@link RecyclerView.RecycledViewPool} shared by the review lists of the
+ * activity: the rows of a closed review screen are recycled into it and reused by the next one.
+ * A single instance exists per activity, so rows are never kept past the activity they belong to.
+ * </p>
+ */
+@ActivityScoped
+public class ReviewRowPool {
+
+    /** Maximum number of rows of the same type kept by the shared recycled view pool. */
+    static final int MAX_RECYCLED_ROWS = 15;
+
+    private final Context context;
+    private final RecyclerView.RecycledViewPool recycledViewPool = new RecyclerView.RecycledViewPool();
+    private final ArrayDeque<View> inflatedRows = new ArrayDeque<>(); // Rows inflated ahead of time, not used yet
+    private AsyncLayoutInflater inflater; // Created on first warm up
+    private FrameLayout layoutParamsParent; // Gives the inflated rows their layout parameters
+    private int pendingRows; // Rows being inflated in the background
+
+    /**
+     * Constructs the ReviewRowPool of an activity. A single instance is provided by Hilt per activity.
+     *
+     * @param context The activity the rows are inflated for, so that they use its theme.
+     */
+    @Inject
+    public ReviewRowPool(@ActivityContext Context context) {
+        this.context = context;
+        recycledViewPool.setMaxRecycledViews(0, MAX_RECYCLED_ROWS); // Every review row has the default view type
+    }
+
+    /**
+     * Starts inflating rows in the background until the given number of rows is ready or being inflated.
+     * Must be called on the main thread.
+     *
+     * @param count The number of rows to keep ready, about what fits on a screen.
+     */
+    public void warmUp(int count) {
+        if (inflater == null) {
+            inflater = new AsyncLayoutInflater(context);
+            layoutParamsParent = new FrameLayout(context);
+        }
+        for (int i = inflatedRows.size() + pendingRows; i < count; i++) {
+            pendingRows++;
+            inflater.inflate(R.layout.review_item, layoutParamsParent, (view, resid, parent) -> {
+                pendingRows--;
+                inflatedRows.add(view);
+            });
+        }
+    }
+
+    /**
+     * Hands out a row inflated ahead of time. Must be called on the main thread.
+     *
+     * @return A row not attached to any parent, or null if none is ready.
+     */
+    public View take() {
+        return inflatedRows.poll();
+    }
+
+    /**
+     * Returns the recycled view pool to be shared by the review lists of the activity.
+     *
+     * @return The shared pool.
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return recycledViewPool;
+    }
+}
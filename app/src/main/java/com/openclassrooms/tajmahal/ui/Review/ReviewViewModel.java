@@ -2,31 +2,187 @@ package com.openclassrooms.tajmahal.ui.Review;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 import androidx.lifecycle.ViewModel;
 
 import com.openclassrooms.tajmahal.data.repository.ReviewRepository;
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.IngestionQueue;
+import com.openclassrooms.tajmahal.util.PersistentList;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
 
+import java.util.ArrayDeque;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import javax.inject.Inject;
+
+import dagger.hilt.android.lifecycle.HiltViewModel;
 
 
 /**
  * ViewModel responsible for managing data related to reviews.
  * It interacts with the repository to obtain reviews and exposes them via LiveData.
  * This ViewModel is used to ensure the UI only interacts with live data and not directly with data sources.
+ * <p>
+ * Reviews are loaded page by page as the user scrolls. Only a window of at most
+ * {@link #MAX_PAGES_IN_MEMORY} pages is kept: when the window grows past that limit the page
+ * at the opposite end is dropped, and it is loaded again from its cursor if the user scrolls back.
+ * Pages are loaded asynchronously, one at a time, and the progress is exposed through {@link #getLoadState()}.
+ * </p>
+ * <p>
+ * The reviews shown are the ones of the restaurant set through {@link #setRestaurantId(String)}.
+ * Switching to another restaurant empties the window and loads the first page of the new one.
+ * The same happens when the reviews are filtered by rating or sorted differently through
+ * {@link #setReviewQuery(ReviewQuery)}: pages come from the repository already filtered and sorted.
+ * </p>
+ * <p>
+ * Comments can be searched through {@link #search(String)}. Results come from the full-text index
+ * of the repository and are published separately from the window, which is kept as it is so that
+ * clearing the search shows the list where the user left it.
+ * </p>
+ * <p>
+ * New reviews are saved through the repository and shown at the top of the first page when the
+ * reviews are listed newest first. If the first page has been dropped, or if they belong elsewhere
+ * in the order of the query, they appear once their page is loaded from the repository.
+ * </p>
+ * <p>
+ * {@link #addReview(Review)} can be called from any thread. Added reviews go through an
+ * {@link IngestionQueue}, which takes no lock, and are shown in batches on the main thread, at most
+ * once every {@link #PUBLISH_INTERVAL_MILLIS}, so that many sources adding reviews at the same time
+ * never lose one nor publish a list per review.
+ * </p>
+ * <p>
+ * The window is published as a {@link PersistentList}: adding a review or a page creates a new
+ * immutable snapshot sharing its storage with the previous one, so a new review is prepended in
+ * constant time and observers can read any published snapshot safely, even off the main thread.
+ * </p>
  */
+@HiltViewModel
 public class ReviewViewModel extends ViewModel {
 
+    /** Number of reviews requested per page. */
+    public static final int PAGE_SIZE = 20;
+
+    /** Number of rows left before either end of the window at which the next page is requested. */
+    public static final int PREFETCH_DISTANCE = 10;
+
+    /** Maximum number of pages kept in memory at the same time. */
+    public static final int MAX_PAGES_IN_MEMORY = 5;
+
+    /** Maximum number of reviews returned by a search. */
+    public static final int SEARCH_RESULT_LIMIT = 100;
+
+    /** Minimum time between two publications of the reviews added through {@link #addReview(Review)}. */
+    public static final long PUBLISH_INTERVAL_MILLIS = 100;
+
+    // Names of the metrics recorded by the ViewModel
+    static final String METRIC_ADD_REVIEW = "reviews.add";
+    static final String METRIC_ADD_REVIEW_REJECTED = "reviews.add.rejected";
+
     private final ReviewRepository reviewRepository; // Repository to fetch review data
-    private final MutableLiveData<List<Review>> reviewsLiveData = new MutableLiveData<>(new ArrayList<>()); // LiveData holding the list of reviews
+    private final MutableLiveData<String> restaurantIdLiveData = new MutableLiveData<>(); // Identifier of the restaurant whose reviews are shown
+    private final MutableLiveData<List<Review>> reviewsLiveData = new MutableLiveData<>(PersistentList.empty()); // LiveData holding the list of reviews
+
+    private final ArrayDeque<LoadedPage> loadedPages = new ArrayDeque<>(); // Pages currently in the window
+    private PersistentList<Review> window = PersistentList.empty(); // Reviews of the pages in the window
+    private final List<String> droppedHeadCursors = new ArrayList<>(); // Cursors of the pages dropped from the top, most recent last
+    private String nextCursor; // Cursor of the page following the window
+    private boolean endReached; // True once the last page has been loaded
+    private boolean loading; // True while a page is being loaded
+    private ReviewQuery reviewQuery = ReviewQuery.ALL; // Rating filter and order of the listed reviews
+    private int windowGeneration; // Incremented whenever the window is emptied, so that pages of the previous one are ignored
+    private final MutableLiveData<LoadState> loadState = new MutableLiveData<>(); // State of the latest page load
+    private final MutableLiveData<List<Review>> searchResultsLiveData = new MutableLiveData<>(); // Results of the current search, null when not searching
+    private String searchQuery; // Current search, null when not searching
+    private int searchGeneration; // Incremented on every search, so that results of outdated ones are ignored
+    private final LatencyHistogram addReviewLatency; // Time taken to save and queue a valid review
+    private final Counter rejectedReviews; // Number of invalid reviews refused by addReview
+    private final IngestionQueue<AddedReview> addedReviews; // Reviews added from any thread, waiting to be shown
+
+    /**
+     * Initializes the ViewModel with the repository.
+     * Reviews are loaded once a restaurant is set through {@link #setRestaurantId(String)}.
+     *
+     * @param reviewRepository The repository which will provide review data.
+     * @param appExecutors     The executors used to show added reviews on the main thread.
+     * @param metrics          The registry recording the performance metrics of the ViewModel.
+     */
+    @Inject
+    public ReviewViewModel(ReviewRepository reviewRepository, AppExecutors appExecutors, MetricsRegistry metrics) {
+        this.reviewRepository = reviewRepository;
+        this.addReviewLatency = metrics.histogram(METRIC_ADD_REVIEW);
+        this.rejectedReviews = metrics.counter(METRIC_ADD_REVIEW_REJECTED);
+        this.addedReviews = new IngestionQueue<>(appExecutors, PUBLISH_INTERVAL_MILLIS, this::showAddedReviews);
+    }
+
+    /**
+     * Sets the restaurant whose reviews are shown, and loads its first page of reviews.
+     * Does nothing if the restaurant is already the one shown.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     */
+    public void setRestaurantId(String restaurantId) {
+        if (restaurantId.equals(restaurantIdLiveData.getValue())) {
+            return;
+        }
+
+        // Forget the window of the previous restaurant
+        restaurantIdLiveData.setValue(restaurantId);
+        resetWindow();
+        search(null);
+
+        loadReviews(); // Load the first page of the new restaurant from the repository
+    }
+
+    /**
+     * Filters the reviews by rating and sets their order, then loads the first page of the new list.
+     * Does nothing if the query is already the one applied.
+     *
+     * @param reviewQuery The rating to keep, if any, and the order of the reviews.
+     */
+    public void setReviewQuery(ReviewQuery reviewQuery) {
+        if (reviewQuery.equals(this.reviewQuery)) {
+            return;
+        }
+
+        this.reviewQuery = reviewQuery;
+        resetWindow();
+        loadReviews(); // Load the first page of the new list from the repository
+    }
+
+    /**
+     * Retrieves the rating filter and the order currently applied to the reviews.
+     *
+     * @return The current query, {@link ReviewQuery#ALL} by default.
+     */
+    public ReviewQuery getReviewQuery() {
+        return reviewQuery;
+    }
 
     /**
-     * Initializes the ViewModel by creating a repository and loading the reviews.
+     * Empties the window, so that the next page loaded is the first one.
      */
-    public ReviewViewModel() {
-        reviewRepository = new ReviewRepository(); // Initialize the ReviewRepository
-        loadReviews(); // Load the reviews from the repository when the ViewModel is created
+    private void resetWindow() {
+        windowGeneration++;
+        loadedPages.clear();
+        window = PersistentList.empty();
+        droppedHeadCursors.clear();
+        nextCursor = null;
+        endReached = false;
+        loading = false;
+        reviewsLiveData.setValue(window);
     }
 
     /**
@@ -40,34 +196,268 @@ public class ReviewViewModel extends ViewModel {
     }
 
     /**
-     * Loads the reviews from the repository and publishes them via LiveData.
-     * This method is called during the initialization of the ViewModel to load initial data.
+     * Retrieves the state of the latest page load, so that the UI can report loading and errors.
+     *
+     * @return LiveData holding whether a page is loading, loaded, or failed to load.
+     */
+    public LiveData<LoadState> getLoadState() {
+        return loadState;
+    }
+
+    /**
+     * Retrieves the aggregated ratings of all the reviews of the restaurant, not only the ones currently loaded.
+     *
+     * @return LiveData holding the count, sum and per-star distribution of the ratings.
+     */
+    public LiveData<RatingSummary> getRatingSummary() {
+        return Transformations.switchMap(restaurantIdLiveData, reviewRepository::getRatingSummary);
+    }
+
+    /**
+     * Retrieves the aggregated ratings of the reviews of the restaurant written during the last days.
+     *
+     * @return LiveData holding the count and average rating of the last 7, 30 and 90 days.
+     */
+    public LiveData<RatingTrend> getRatingTrend() {
+        return Transformations.switchMap(restaurantIdLiveData, reviewRepository::getRatingTrend);
+    }
+
+    /**
+     * Retrieves the results of the current search.
+     *
+     * @return LiveData holding the matching reviews, newest first, or null when no search is running.
+     */
+    public LiveData<List<Review>> getSearchResults() {
+        return searchResultsLiveData;
+    }
+
+    /**
+     * Indicates whether the reviews shown are search results rather than the paged list.
+     *
+     * @return true while a search query is set.
+     */
+    public boolean isSearching() {
+        return searchQuery != null;
+    }
+
+    /**
+     * Searches the comments of the reviews of the restaurant, ignoring case and accents.
+     * Every word of the query matches the words starting with it. An empty query ends the search.
+     *
+     * @param query The words to look for, as typed by the user.
+     */
+    public void search(String query) {
+        int generation = ++searchGeneration;
+        String restaurantId = restaurantIdLiveData.getValue();
+        if (query == null || query.trim().isEmpty() || restaurantId == null) {
+            searchQuery = null;
+            searchResultsLiveData.setValue(null);
+            return;
+        }
+
+        searchQuery = query;
+        reviewRepository.searchReviews(restaurantId, query, SEARCH_RESULT_LIMIT, new ApiCallback<List<Review>>() {
+            @Override
+            public void onSuccess(List<Review> reviews) {
+                if (generation == searchGeneration) {
+                    searchResultsLiveData.setValue(reviews);
+                }
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (generation == searchGeneration) {
+                    loadState.setValue(LoadState.error(error));
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the first page of reviews from the repository and publishes it via LiveData.
+     * This method is called whenever the restaurant changes to load initial data.
      */
     private void loadReviews() {
-        List<Review> reviews = reviewRepository.getReviews(); // Retrieve the list of reviews from the repository
-        reviewsLiveData.postValue(reviews); // Update the LiveData with the list of reviews
+        loadNextPage();
+    }
+
+    /**
+     * Notifies the ViewModel of the rows currently visible in the list, so that the page
+     * following or preceding the window is loaded once the user gets within
+     * {@link #PREFETCH_DISTANCE} rows of either end.
+     * <p>
+     * Both ends are checked: a window short enough to be near both of them reloads its dropped
+     * first page before loading the following one, as only one page is loaded at a time.
+     * </p>
+     *
+     * @param firstVisible The adapter position of the first visible row.
+     * @param lastVisible  The adapter position of the last visible row.
+     */
+    public void onVisibleRangeChanged(int firstVisible, int lastVisible) {
+        int itemCount = window.size();
+        boolean nearStart = firstVisible <= PREFETCH_DISTANCE;
+        boolean nearEnd = lastVisible >= itemCount - 1 - PREFETCH_DISTANCE;
+
+        if (nearStart && !droppedHeadCursors.isEmpty()) {
+            loadPreviousPage();
+        } else if (nearEnd) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Appends the page following the window, dropping the first page if the window is full.
+     */
+    private void loadNextPage() {
+        if (endReached || loading || restaurantIdLiveData.getValue() == null) {
+            return;
+        }
+
+        loadPage(nextCursor, this::appendPage);
+    }
+
+    private void appendPage(ReviewPage page) {
+        loadedPages.addLast(new LoadedPage(page));
+        window = window.appendAll(page.getReviews());
+        nextCursor = page.getNextCursor();
+        endReached = !page.hasNext();
+
+        if (loadedPages.size() > MAX_PAGES_IN_MEMORY) {
+            LoadedPage firstPage = loadedPages.removeFirst();
+            window = window.dropFirst(firstPage.size);
+            droppedHeadCursors.add(firstPage.cursor);
+        }
+        reviewsLiveData.setValue(window);
+    }
+
+    /**
+     * Prepends the last page dropped from the top of the window, dropping the last page
+     * if the window is full.
+     */
+    private void loadPreviousPage() {
+        if (droppedHeadCursors.isEmpty() || loading) {
+            return;
+        }
+
+        String cursor = droppedHeadCursors.get(droppedHeadCursors.size() - 1);
+        loadPage(cursor, this::prependPage);
+    }
+
+    private void prependPage(ReviewPage page) {
+        droppedHeadCursors.remove(droppedHeadCursors.size() - 1);
+        loadedPages.addFirst(new LoadedPage(page));
+        window = window.prependAll(page.getReviews());
+
+        if (loadedPages.size() > MAX_PAGES_IN_MEMORY) {
+            LoadedPage lastPage = loadedPages.removeLast();
+            window = window.dropLast(lastPage.size);
+            nextCursor = lastPage.cursor;
+            endReached = false;
+        }
+        reviewsLiveData.setValue(window);
+    }
+
+    /**
+     * Loads the page at the given cursor and hands it to the given consumer on the main thread.
+     */
+    private void loadPage(String cursor, Consumer<ReviewPage> onLoaded) {
+        int generation = windowGeneration;
+        loading = true;
+        loadState.setValue(LoadState.loading());
+        reviewRepository.loadReviewPage(restaurantIdLiveData.getValue(), reviewQuery, cursor, PAGE_SIZE, new ApiCallback<ReviewPage>() {
+            @Override
+            public void onSuccess(ReviewPage page) {
+                if (generation != windowGeneration) {
+                    return; // The restaurant or the query changed while the page was loading
+                }
+                loading = false;
+                onLoaded.accept(page);
+                loadState.setValue(LoadState.success());
+            }
+
+            @Override
+            public void onError(Exception error) {
+                if (generation != windowGeneration) {
+                    return; // The restaurant or the query changed while the page was loading
+                }
+                loading = false;
+                loadState.setValue(LoadState.error(error));
+            }
+        });
     }
 
     /**
      * Adds a new review to the list and updates the LiveData if the review is valid.
      * A valid review must have a non-empty comment and a rating greater than 0.
-     * The review is added to the beginning of the list.
+     * The review is saved right away and added to the beginning of the list with the next batch
+     * of added reviews. Reviews are refused until a restaurant is set. Can be called from any thread.
      *
      * @param review The review to be added.
-     * @return true if the review is successfully added, false if the review is invalid.
+     * @return true if the review is successfully added, false if the review is invalid or no restaurant is set.
      */
     public boolean addReview(Review review) {
         // Validate the review: the comment must not be empty, and the rating must be greater than 0
-        if (review.getComment().isEmpty() || review.getRate() <= 0) {
-            return false; // Invalid review, return false
+        String restaurantId = restaurantIdLiveData.getValue();
+        if (restaurantId == null || review.getComment().isEmpty() || review.getRate() <= 0) {
+            rejectedReviews.increment();
+            return false; // Invalid review, or no restaurant to add it to, return false
         }
+        long startNanos = System.nanoTime();
 
-        // Get the current list of reviews
-        List<Review> currentReviews = new ArrayList<>(reviewsLiveData.getValue());
-        currentReviews.add(0, review); // Add the new review at the start of the list
-
-        // Update the LiveData with the new list of reviews
-        reviewsLiveData.setValue(currentReviews);
+        // Save the review, then queue it to be shown on the main thread
+        reviewRepository.addReview(restaurantId, review);
+        addedReviews.offer(new AddedReview(restaurantId, review));
+        addReviewLatency.recordSince(startNanos);
         return true; // Successfully added the review
     }
+
+    /**
+     * Shows a batch of added reviews, oldest first, at the start of the list if they belong there
+     * and the first page is displayed, then publishes the list once. Runs on the main thread.
+     */
+    private void showAddedReviews(List<AddedReview> batch) {
+        if (reviewQuery.getSort() != ReviewQuery.Sort.NEWEST || !droppedHeadCursors.isEmpty() || loadedPages.isEmpty()) {
+            return; // The reviews appear once their page is loaded from the repository
+        }
+        PersistentList<Review> updated = window;
+        for (AddedReview added : batch) {
+            // Reviews added before the restaurant changed belong to the previous window
+            if (Objects.equals(added.restaurantId, restaurantIdLiveData.getValue()) && reviewQuery.matches(added.review)) {
+                loadedPages.getFirst().size++;
+                updated = updated.prepend(added.review); // Add the new review at the start of the list, in constant time
+            }
+        }
+        if (updated != window) {
+            window = updated;
+            // Update the LiveData with the new list of reviews
+            reviewsLiveData.setValue(window);
+        }
+    }
+
+    /**
+     * Bookkeeping for a page of the window: the cursor needed to load it again once dropped,
+     * and the number of reviews it contributes to the window.
+     */
+    private static class LoadedPage {
+        final String cursor;
+        int size;
+
+        LoadedPage(ReviewPage page) {
+            this.cursor = page.getCursor();
+            this.size = page.getReviews().size();
+        }
+    }
+
+    /**
+     * A review added through {@link #addReview(Review)} and the restaurant it was added to.
+     */
+    private static class AddedReview {
+        final String restaurantId;
+        final Review review;
+
+        AddedReview(String restaurantId, Review review) {
+            this.restaurantId = restaurantId;
+            this.review = review;
+        }
+    }
 }
@@ -5,6 +5,7 @@ import android.content.Intent;
 import android.graphics.Color;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -18,20 +19,25 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.Window;
+import android.widget.ProgressBar;
 import android.widget.Toast;
 
 import com.openclassrooms.tajmahal.R;
-import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
 import com.openclassrooms.tajmahal.databinding.FragmentDetailsBinding;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
-import com.openclassrooms.tajmahal.domain.model.Review;
 import com.openclassrooms.tajmahal.ui.Review.ReviewFragment;
+import com.openclassrooms.tajmahal.ui.Review.ReviewRowPool;
 import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+import com.openclassrooms.tajmahal.util.StartupTimeline;
 import androidx.lifecycle.ViewModelProvider;
 
-import java.util.List;
 import java.util.Locale;
 
+import javax.inject.Inject;
+
 import dagger.hilt.android.AndroidEntryPoint;
 
 
@@ -46,13 +52,24 @@ import dagger.hilt.android.AndroidEntryPoint;
 @AndroidEntryPoint
 public class DetailsFragment extends Fragment {
 
+    private static final String ARG_RESTAURANT_ID = "restaurant_id"; // Argument holding the identifier of the restaurant
+    private static final int REVIEW_ROW_WARM_UP_COUNT = 10; // Review rows inflated ahead of time, about one screen
+
+    @Inject
+    StartupTimeline startupTimeline; // Records when the first restaurant is shown
+
+    @Inject
+    ReviewRowPool reviewRowPool; // Review rows inflated ahead of time for the review screen
+
     private FragmentDetailsBinding binding; // Data binding object
     private DetailsViewModel detailsViewModel; // ViewModel for restaurant data
     private ReviewViewModel reviewViewModel; // ViewModel for reviews
+    private String restaurantId; // Identifier of the displayed restaurant
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        restaurantId = requireArguments().getString(ARG_RESTAURANT_ID);
     }
 
     @Override
@@ -70,19 +87,29 @@ public class DetailsFragment extends Fragment {
 
         // Initialize the shared ViewModel for reviews
         reviewViewModel = new ViewModelProvider(requireActivity()).get(ReviewViewModel.class);
+        reviewViewModel.setRestaurantId(restaurantId);
 
-        // Observe the LiveData for changes in reviews and update UI accordingly
-        reviewViewModel.getReviews().observe(getViewLifecycleOwner(), reviews -> {
-            if (reviews != null) {
-                binding.numberOfRating.setText("(" + reviews.size() + ")");
-                float averageRating = calculateAverageRating(reviews); // Calculate the average rating
-                binding.ratingMain.setRating(averageRating);
-                binding.averageRating.setText(String.format(Locale.getDefault(), "%.1f", averageRating));
+        // Observe the aggregated ratings and update UI accordingly, without walking the review list
+        reviewViewModel.getRatingSummary().observe(getViewLifecycleOwner(), this::updateUIWithRatingSummary);
+        reviewViewModel.getRatingTrend().observe(getViewLifecycleOwner(), this::updateUIWithRatingTrend);
+
+        // Observe restaurant data changes and update UI accordingly, for as long as the view exists
+        detailsViewModel.getRestaurant(restaurantId).observe(getViewLifecycleOwner(), this::updateUIWithRestaurant);
+
+        // Once the screen is idle, inflate the rows of the review screen in the background
+        Looper.myQueue().addIdleHandler(() -> {
+            if (getView() != null) { // The screen may have been left before becoming idle
+                reviewRowPool.warmUp(REVIEW_ROW_WARM_UP_COUNT);
             }
+            return false; // Run once
         });
 
-        // Observe restaurant data changes and update UI accordingly
-        detailsViewModel.getTajMahalRestaurant().observe(requireActivity(), this::updateUIWithRestaurant);
+        // Report restaurant loading errors
+        detailsViewModel.getLoadState(restaurantId).observe(getViewLifecycleOwner(), loadState -> {
+            if (loadState != null && loadState.getStatus() == LoadState.Status.ERROR) {
+                Toast.makeText(requireContext(), R.string.restaurant_load_error, Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
@@ -108,6 +135,7 @@ public class DetailsFragment extends Fragment {
     @SuppressLint("SetTextI18n")
     private void updateUIWithRestaurant(Restaurant restaurant) {
         if (restaurant == null) return;
+        startupTimeline.mark(StartupTimeline.Phase.FIRST_DATA); // Lets the splash screen go on a cold start
 
         // Set the UI elements with the restaurant's data
         binding.tvRestaurantName.setText(restaurant.getName());
@@ -128,7 +156,7 @@ public class DetailsFragment extends Fragment {
         // Handle click on the "Laisser un avis" button to open the review fragment
         binding.laisserUnavis.setText("Laisser un avis");
         binding.laisserUnavis.setOnClickListener(v -> {
-            ReviewFragment fragmentB = new ReviewFragment();
+            ReviewFragment fragmentB = ReviewFragment.newInstance(restaurantId);
             FragmentManager fragmentManager = getParentFragmentManager();
             FragmentTransaction fragmentTransaction = fragmentManager.beginTransaction();
             fragmentTransaction.replace(R.id.container, fragmentB);
@@ -138,21 +166,44 @@ public class DetailsFragment extends Fragment {
     }
 
     /**
-     * Calculate the average rating from a list of reviews.
-     * @param reviews The list of reviews.
-     * @return The average rating.
+     * Updates the rating header with the given aggregated ratings.
+     * @param summary The count, average and per-star distribution of the ratings.
      */
-    private float calculateAverageRating(List<Review> reviews) {
-        if (reviews == null || reviews.isEmpty()) {
-            return 0.0F;
-        }
+    private void updateUIWithRatingSummary(RatingSummary summary) {
+        if (summary == null) return;
+
+        float averageRating = summary.getAverage();
+        binding.numberOfRating.setText("(" + summary.getCount() + ")");
+        binding.ratingMain.setRating(averageRating);
+        binding.averageRating.setText(String.format(Locale.getDefault(), "%.1f", averageRating));
 
-        double sum = 0.0;
-        for (Review review : reviews) {
-            sum += review.getRate(); // Sum all the ratings
+        // Show the share of reviews giving each number of stars
+        ProgressBar[] distributionBars = {
+                binding.ratingDistribution1, binding.ratingDistribution2, binding.ratingDistribution3,
+                binding.ratingDistribution4, binding.ratingDistribution5
+        };
+        for (int rating = 1; rating <= RatingSummary.MAX_RATING; rating++) {
+            distributionBars[rating - 1].setProgress(summary.getPercentForRating(rating));
         }
+    }
+
+    /**
+     * Shows the average rating of the last days under the all-time average.
+     * @param trend The count and average rating of each window of days.
+     */
+    private void updateUIWithRatingTrend(RatingTrend trend) {
+        if (trend == null) return;
 
-        return (float) (sum / reviews.size()); // Return the average
+        StringBuilder text = new StringBuilder();
+        for (RatingTrend.Window window : RatingTrend.Window.values()) {
+            String average = trend.getCount(window) == 0 ? getString(R.string.recent_rating_none)
+                    : String.format(Locale.getDefault(), "%.1f", trend.getAverage(window));
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(getString(R.string.recent_rating, window.getDays(), average));
+        }
+        binding.recentRatings.setText(text);
     }
 
     /**
@@ -199,9 +250,14 @@ public class DetailsFragment extends Fragment {
 
     /**
      * Creates and returns a new instance of DetailsFragment.
+     * @param restaurantId The identifier of the restaurant to display.
      * @return A new instance of DetailsFragment.
      */
-    public static DetailsFragment newInstance() {
-        return new DetailsFragment();
+    public static DetailsFragment newInstance(String restaurantId) {
+        DetailsFragment fragment = new DetailsFragment();
+        Bundle args = new Bundle();
+        args.putString(ARG_RESTAURANT_ID, restaurantId);
+        fragment.setArguments(args);
+        return fragment;
     }
 }
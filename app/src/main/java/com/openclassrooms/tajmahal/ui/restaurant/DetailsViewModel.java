@@ -7,6 +7,7 @@ import androidx.lifecycle.ViewModel;
 
 import com.openclassrooms.tajmahal.R;
 import com.openclassrooms.tajmahal.data.repository.RestaurantRepository;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
 import com.openclassrooms.tajmahal.domain.model.Restaurant;
 
 import javax.inject.Inject;
@@ -38,12 +39,23 @@ public class DetailsViewModel extends ViewModel {
     }
 
     /**
-     * Fetches the details of the Taj Mahal restaurant.
+     * Fetches the details of a restaurant.
      *
-     * @return LiveData object containing the details of the Taj Mahal restaurant.
+     * @param restaurantId The identifier of the restaurant.
+     * @return LiveData object containing the details of the restaurant.
      */
-    public LiveData<Restaurant> getTajMahalRestaurant() {
-        return restaurantRepository.getRestaurant();
+    public LiveData<Restaurant> getRestaurant(String restaurantId) {
+        return restaurantRepository.getRestaurant(restaurantId);
+    }
+
+    /**
+     * Retrieves the state of the latest request for a restaurant.
+     *
+     * @param restaurantId The identifier of the restaurant.
+     * @return LiveData holding whether the restaurant is loading, loaded, or failed to load.
+     */
+    public LiveData<LoadState> getLoadState(String restaurantId) {
+        return restaurantRepository.getLoadState(restaurantId);
     }
 
     /**
@@ -0,0 +1,94 @@
+package com.openclassrooms.tajmahal.util;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Groups the executors used across the application, so that blocking work never runs on the main thread.
+ * <p>
+ * A single instance is provided by Hilt. Tests can build one where every executor runs tasks
+ * immediately on the calling thread.
+ * </p>
+ */
+public class AppExecutors {
+
+    /**
+     * Runs tasks on the main thread after a delay.
+     */
+    public interface DelayedExecutor {
+
+        /**
+         * Runs a task on the main thread once a delay has elapsed.
+         *
+         * @param task        the task to run
+         * @param delayMillis the minimum delay before running the task, in milliseconds
+         */
+        void executeAfter(Runnable task, long delayMillis);
+    }
+
+    private final Executor diskIO;
+    private final Executor background;
+    private final Executor mainThread;
+    private final DelayedExecutor mainThreadDelayed;
+
+    /**
+     * Constructs a new AppExecutors instance where delayed main thread tasks run without delay.
+     *
+     * @param diskIO     a single-threaded executor running writes to local storage in submission order
+     * @param background an executor running network calls and local reads, possibly in parallel
+     * @param mainThread an executor running tasks on the main thread
+     */
+    public AppExecutors(Executor diskIO, Executor background, Executor mainThread) {
+        this(diskIO, background, mainThread, (task, delayMillis) -> mainThread.execute(task));
+    }
+
+    /**
+     * Constructs a new AppExecutors instance.
+     *
+     * @param diskIO            a single-threaded executor running writes to local storage in submission order
+     * @param background        an executor running network calls and local reads, possibly in parallel
+     * @param mainThread        an executor running tasks on the main thread
+     * @param mainThreadDelayed runs tasks on the main thread after a delay
+     */
+    public AppExecutors(Executor diskIO, Executor background, Executor mainThread, DelayedExecutor mainThreadDelayed) {
+        this.diskIO = diskIO;
+        this.background = background;
+        this.mainThread = mainThread;
+        this.mainThreadDelayed = mainThreadDelayed;
+    }
+
+    /**
+     * Returns the executor running writes to local storage, one at a time and in submission order.
+     *
+     * @return the disk executor
+     */
+    public Executor diskIO() {
+        return diskIO;
+    }
+
+    /**
+     * Returns the executor running network calls and local reads.
+     *
+     * @return the background executor
+     */
+    public Executor background() {
+        return background;
+    }
+
+    /**
+     * Returns the executor running tasks on the main thread.
+     *
+     * @return the main thread executor
+     */
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Returns the executor running tasks on the main thread after a delay.
+     *
+     * @return the delayed main thread executor
+     */
+    public DelayedExecutor mainThreadDelayed() {
+        return mainThreadDelayed;
+    }
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.tajmahal.util;
+
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
+import com.openclassrooms.tajmahal.util.metrics.Counter;
+import com.openclassrooms.tajmahal.util.metrics.LatencyHistogram;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Builds the Glide requests loading user avatars, shared by every screen showing one.
+ * <p>
+ * Avatars are cropped into a circle at the size of the view they are shown in, and the cropped
+ * bitmap itself is written to the disk cache. After a restart or a memory trim, an avatar is read
+ * back already cropped instead of being decoded and cropped again from the full image. The disk
+ * cache is limited to {@link #DISK_CACHE_SIZE_BYTES} and evicts the least recently used entries.
+ * </p>
+ * <p>
+ * Every request is counted as a hit when served from the memory or disk cache of cropped avatars,
+ * and as a miss when the full image had to be fetched, decoded and cropped. The load time of misses
+ * is recorded from the moment the request is built, so it includes the time spent waiting for a
+ * Glide thread and reading the network or the disk, not only the decoding.
+ * </p>
+ */
+@Singleton
+public class AvatarLoader {
+
+    /** Name of the directory, in the application cache, holding the cropped avatars. */
+    public static final String DISK_CACHE_DIRECTORY = "avatars";
+
+    /** Maximum size of the cropped avatars kept on disk. */
+    public static final long DISK_CACHE_SIZE_BYTES = 20L * 1024 * 1024;
+
+    // Names of the metrics recorded by the loader
+    static final String METRIC_CACHE_HITS = "avatars.cache.hits";
+    static final String METRIC_CACHE_MISSES = "avatars.cache.misses";
+    static final String METRIC_LOAD = "avatars.load";
+
+    // Avatars served already cropped, avatars loaded from the full image, and the load time of the latter
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final LatencyHistogram missLoadLatency;
+
+    /**
+     * Constructs the AvatarLoader. A single instance is provided by Hilt so that metrics cover every screen.
+     *
+     * @param metrics The registry recording the cache hits and load times of avatars.
+     */
+    @Inject
+    public AvatarLoader(MetricsRegistry metrics) {
+        this.cacheHits = metrics.counter(METRIC_CACHE_HITS);
+        this.cacheMisses = metrics.counter(METRIC_CACHE_MISSES);
+        this.missLoadLatency = metrics.histogram(METRIC_LOAD);
+    }
+
+    /**
+     * Builds the request loading an avatar. Requests built for the same URL and view size share
+     * their cache entries, whether they are made to bind a view or to preload it.
+     *
+     * @param requestManager The Glide request manager of the screen showing the avatar.
+     * @param pictureUrl     The URL of the full avatar image.
+     * @return The request, to be completed with {@code into(...)} or preloaded.
+     */
+    public RequestBuilder<Drawable> load(RequestManager requestManager, String pictureUrl) {
+        long startNanos = System.nanoTime();
+        return requestManager
+                .load(pictureUrl)
+                .circleCrop() // Crop the image to make it circular
+                .diskCacheStrategy(DiskCacheStrategy.RESOURCE) // Keep the cropped, view-sized bitmap on disk
+                .listener(new RequestListener<Drawable>() {
+                    @Override
+                    public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+                        return false; // Let Glide show the error drawable, if any
+                    }
+
+                    @Override
+                    public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target, DataSource dataSource, boolean isFirstResource) {
+                        if (dataSource == DataSource.MEMORY_CACHE || dataSource == DataSource.RESOURCE_DISK_CACHE) {
+                            cacheHits.increment();
+                        } else {
+                            cacheMisses.increment();
+                            missLoadLatency.recordSince(startNanos);
+                        }
+                        return false; // Let Glide set the avatar into its target
+                    }
+                });
+    }
+}
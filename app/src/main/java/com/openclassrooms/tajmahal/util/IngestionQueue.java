@@ -0,0 +1,84 @@
+package com.openclassrooms.tajmahal.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Collects items offered by any number of threads and hands them to a consumer on the main
+ * thread in batches, at most once every {@code minIntervalMillis}.
+ * <p>
+ * Producers never take a lock: an item is appended to a lock-free queue, and the first producer
+ * finding no drain scheduled schedules one with a compare-and-set. The drain records its start,
+ * then clears that flag before polling the queue, so an item offered while a drain runs is either polled by it or
+ * schedules the next one: no item is ever left behind. Items are handed over in the order they
+ * were appended to the queue.
+ * </p>
+ * <p>
+ * Drains run on the main thread, one at a time, so the consumer can update state owned by the
+ * main thread and publish it once per batch. A drain requested sooner than the interval after
+ * the previous one is delayed until the interval has elapsed.
+ * </p>
+ *
+ * @param <T> the type of the collected items
+ */
+public class IngestionQueue<T> {
+
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AppExecutors appExecutors;
+    private final long minIntervalNanos;
+    private final Consumer<List<T>> consumer;
+
+    // Start of the latest drain, written on the main thread and read by producers
+    private volatile long lastDrainNanos;
+
+    /**
+     * Constructs a new, empty queue.
+     *
+     * @param appExecutors      the executors used to run the drains on the main thread
+     * @param minIntervalMillis the minimum time between two drains, in milliseconds
+     * @param consumer          receives each non-empty batch of items on the main thread
+     */
+    public IngestionQueue(AppExecutors appExecutors, long minIntervalMillis, Consumer<List<T>> consumer) {
+        this.appExecutors = appExecutors;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.consumer = consumer;
+        this.lastDrainNanos = System.nanoTime() - minIntervalNanos; // The first drain is never delayed
+    }
+
+    /**
+     * Appends an item to the queue and schedules a drain if none is scheduled. Can be called from any thread.
+     *
+     * @param item the item to hand to the consumer
+     */
+    public void offer(T item) {
+        pending.add(item);
+        if (drainScheduled.compareAndSet(false, true)) {
+            long delayNanos = lastDrainNanos + minIntervalNanos - System.nanoTime();
+            if (delayNanos <= 0) {
+                appExecutors.mainThread().execute(this::drain);
+            } else {
+                // Rounded up, so that the drain never runs before the interval has elapsed
+                appExecutors.mainThreadDelayed().executeAfter(this::drain, TimeUnit.NANOSECONDS.toMillis(delayNanos) + 1);
+            }
+        }
+    }
+
+    private void drain() {
+        // Recorded before the flag is cleared, so that a producer scheduling the next drain delays it from this one
+        lastDrainNanos = System.nanoTime();
+        // Cleared before polling: an item offered from now on schedules the next drain if this one misses it
+        drainScheduled.set(false);
+        List<T> batch = new ArrayList<>();
+        for (T item = pending.poll(); item != null; item = pending.poll()) {
+            batch.add(item);
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.openclassrooms.tajmahal.util;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list supporting amortized O(1) prepend and append with structural sharing.
+ * <p>
+ * Every version of the list is a view over a range of a shared array. Adding an element
+ * before the first or after the last element writes into a free slot of that array when no
+ * other version has claimed it yet, and returns a new view sharing the array with the previous
+ * version. Slots visible to a version are never written again, so a version can be read from
+ * any thread once it has been safely published (for example through LiveData).
+ * </p>
+ * <p>
+ * Dropping elements from either end returns a narrower view of the same array, until the view
+ * covers less than half of the written slots: the remaining elements are then copied into a new
+ * array, so that the array of a long-lived list does not keep every element it ever held.
+ * </p>
+ * <p>
+ * Modifying operations ({@link #prepend}, {@link #append}, their bulk variants and the drops) must all be
+ * called from a single thread; {@link #get} and iteration are safe from any thread.
+ * The {@link List} mutators inherited from {@link AbstractList} throw
+ * {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @param <T> the type of the elements
+ */
+public final class PersistentList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final int MIN_CAPACITY = 16;
+
+    /** Array shared by all versions of a list, with the bounds of the slots written so far. */
+    private static final class Buffer {
+        final Object[] elements;
+        int head; // Index of the first written slot
+        int tail; // Index following the last written slot
+
+        Buffer(int capacity, int position) {
+            this.elements = new Object[capacity];
+            this.head = position;
+            this.tail = position;
+        }
+    }
+
+    private final Buffer buffer;
+    private final int start;
+    private final int end;
+
+    private PersistentList(Buffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Creates a new empty list.
+     *
+     * @param <T> the type of the elements
+     * @return an empty list with its own storage
+     */
+    public static <T> PersistentList<T> empty() {
+        Buffer buffer = new Buffer(MIN_CAPACITY, MIN_CAPACITY / 2);
+        return new PersistentList<>(buffer, buffer.head, buffer.tail);
+    }
+
+    /**
+     * Creates a new list holding the given elements, in the same order.
+     *
+     * @param elements the elements of the list
+     * @param <T>      the type of the elements
+     * @return a list holding a copy of the given elements
+     */
+    public static <T> PersistentList<T> copyOf(Collection<? extends T> elements) {
+        return PersistentList.<T>empty().appendAll(elements);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (end - start));
+        }
+        return (T) buffer.elements[start + index];
+    }
+
+    @Override
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * Returns a list with the given element before the elements of this list.
+     *
+     * @param element the element to add at index 0
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> prepend(T element) {
+        PersistentList<T> list = (start == buffer.head && start > 0) ? this : copyWithFreeSpace(1);
+        Buffer target = list.buffer;
+        target.elements[list.start - 1] = element;
+        target.head = list.start - 1;
+        return new PersistentList<>(target, list.start - 1, list.end);
+    }
+
+    /**
+     * Returns a list with the given elements, in the same order, before the elements of this list.
+     *
+     * @param elements the elements to add at the start of the list
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> prependAll(List<? extends T> elements) {
+        PersistentList<T> list = this;
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            list = list.prepend(elements.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Returns a list with the given element after the elements of this list.
+     *
+     * @param element the element to add at the end
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> append(T element) {
+        PersistentList<T> list = (end == buffer.tail && end < buffer.elements.length) ? this : copyWithFreeSpace(1);
+        Buffer target = list.buffer;
+        target.elements[list.end] = element;
+        target.tail = list.end + 1;
+        return new PersistentList<>(target, list.start, list.end + 1);
+    }
+
+    /**
+     * Returns a list with the given elements, in the same order, after the elements of this list.
+     *
+     * @param elements the elements to add at the end of the list
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> appendAll(Collection<? extends T> elements) {
+        PersistentList<T> list = this;
+        if (end + elements.size() > buffer.elements.length || end != buffer.tail) {
+            list = copyWithFreeSpace(elements.size());
+        }
+        for (T element : elements) {
+            list = list.append(element);
+        }
+        return list;
+    }
+
+    /**
+     * Returns a list without the first elements of this list. Runs in amortized constant time.
+     *
+     * @param count the number of elements to remove from the start
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> dropFirst(int count) {
+        return releaseDropped(new PersistentList<>(buffer, Math.min(end, start + Math.max(0, count)), end));
+    }
+
+    /**
+     * Returns a list without the last elements of this list. Runs in amortized constant time.
+     *
+     * @param count the number of elements to remove from the end
+     * @return the new version of the list; this list is left unchanged
+     */
+    public PersistentList<T> dropLast(int count) {
+        return releaseDropped(new PersistentList<>(buffer, start, Math.max(start, end - Math.max(0, count))));
+    }
+
+    /**
+     * Returns the given view of the shared array, or a copy of it once most of the written slots
+     * lie outside of it. The dropped elements are still referenced by the shared array, so the
+     * copy lets them be garbage collected once the previous versions are. A copy moves fewer
+     * elements than were dropped since the array was created, so dropping stays amortized O(1).
+     */
+    private PersistentList<T> releaseDropped(PersistentList<T> view) {
+        return 2 * view.size() < buffer.tail - buffer.head ? view.copyWithFreeSpace(0) : view;
+    }
+
+    /**
+     * Copies the elements of this list into a new array with room for at least
+     * {@code extra} elements on both sides. Doubling the capacity keeps additions amortized O(1).
+     */
+    private PersistentList<T> copyWithFreeSpace(int extra) {
+        int size = end - start;
+        int capacity = Math.max(MIN_CAPACITY, 2 * (size + extra));
+        int position = (capacity - size) / 2;
+        Buffer copy = new Buffer(capacity, position);
+        System.arraycopy(buffer.elements, start, copy.elements, position, size);
+        copy.tail = position + size;
+        return new PersistentList<>(copy, position, position + size);
+    }
+}
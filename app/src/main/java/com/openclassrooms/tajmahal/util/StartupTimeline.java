@@ -0,0 +1,107 @@
+package com.openclassrooms.tajmahal.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Records when each phase of a cold start is reached, in milliseconds since the process started.
+ * <p>
+ * Each phase is recorded the first time it is reached only. The timeline is published as gauges
+ * of the {@link MetricsRegistry}, named {@code startup.<phase>} and holding -1 until the phase is
+ * reached, and is logged once the first data has been shown and the first frame drawn.
+ * </p>
+ */
+@Singleton
+public class StartupTimeline {
+
+    private static final String TAG = "StartupTimeline";
+
+    /** The phases of a cold start, in the order they are usually reached. */
+    public enum Phase {
+        /** The application finished {@code onCreate}, and the data needed by the first screen is loading. */
+        APPLICATION_CREATE("applicationCreate"),
+        /** The launched activity finished {@code onCreate}. */
+        ACTIVITY_CREATE("activityCreate"),
+        /** The first screen received the data it shows. */
+        FIRST_DATA("firstData"),
+        /** The first frame of the activity, after the splash screen, was drawn. */
+        FIRST_DRAW("firstDraw");
+
+        private final String metricName;
+
+        Phase(String name) {
+            this.metricName = "startup." + name;
+        }
+    }
+
+    private static final long NOT_REACHED = -1;
+
+    // Milliseconds between the start of the process and each phase, by phase ordinal
+    private final AtomicLongArray reachedAt = new AtomicLongArray(Phase.values().length);
+
+    /**
+     * Constructs the StartupTimeline. A single instance is provided by Hilt, so that every phase lands in the same timeline.
+     *
+     * @param metrics The registry publishing the timeline.
+     */
+    @Inject
+    public StartupTimeline(MetricsRegistry metrics) {
+        for (Phase phase : Phase.values()) {
+            reachedAt.set(phase.ordinal(), NOT_REACHED);
+            metrics.gauge(phase.metricName, () -> reachedAt.get(phase.ordinal()));
+        }
+    }
+
+    /**
+     * Records that a phase was reached now, unless it was reached before.
+     *
+     * @param phase The phase reached.
+     */
+    public void mark(Phase phase) {
+        long elapsed = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        if (!reachedAt.compareAndSet(phase.ordinal(), NOT_REACHED, elapsed)) {
+            return; // Only the first time counts
+        }
+        if ((phase == Phase.FIRST_DATA || phase == Phase.FIRST_DRAW)
+                && isReached(Phase.FIRST_DATA) && isReached(Phase.FIRST_DRAW)) {
+            Log.i(TAG, toString());
+        }
+    }
+
+    /**
+     * Indicates whether a phase was reached.
+     *
+     * @param phase The phase to check.
+     * @return true once the phase has been marked.
+     */
+    public boolean isReached(Phase phase) {
+        return reachedAt.get(phase.ordinal()) != NOT_REACHED;
+    }
+
+    /**
+     * Returns the time from the start of the process to a phase.
+     *
+     * @param phase The phase to check.
+     * @return The time in milliseconds, or -1 if the phase was not reached.
+     */
+    public long getMillisSinceProcessStart(Phase phase) {
+        return reachedAt.get(phase.ordinal());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder timeline = new StringBuilder("Startup:");
+        for (Phase phase : Phase.values()) {
+            timeline.append(' ').append(phase.metricName).append('=').append(reachedAt.get(phase.ordinal())).append("ms");
+        }
+        return timeline.toString();
+    }
+}
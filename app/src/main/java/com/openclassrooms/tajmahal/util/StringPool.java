@@ -0,0 +1,110 @@
+package com.openclassrooms.tajmahal.util;
+
+import androidx.collection.LruCache;
+
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * A bounded pool of canonical strings, used to share a single instance of the values that repeat
+ * across reviews, such as picture URLs and usernames, instead of keeping one copy per review.
+ * <p>
+ * The pool keeps the {@link #MAX_SIZE} most recently used values and evicts the others, so that
+ * values seen once, like most comments, never pile up. Unlike {@link String#intern()}, it can be
+ * trimmed and is never shared with other code. Interning is synchronized, so concurrent callers
+ * always get the same instance.
+ * </p>
+ * <p>
+ * Every value replaced by a pooled copy is counted, together with an estimate of the heap it
+ * occupied, and published as {@code strings.pool.*} gauges of the {@link MetricsRegistry}.
+ * The estimate follows the layout of strings on ART: a 16-byte header followed by the characters,
+ * one byte each when they are all ASCII and two otherwise, rounded up to 8 bytes.
+ * </p>
+ */
+@Singleton
+public class StringPool {
+
+    /** Maximum number of distinct values kept in the pool. */
+    public static final int MAX_SIZE = 1024;
+
+    private static final int STRING_HEADER_BYTES = 16;
+    private static final int OBJECT_ALIGNMENT_BYTES = 8;
+
+    // Canonical instance of each pooled value, keyed by itself
+    private final LruCache<String, String> pool = new LruCache<>(MAX_SIZE);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Constructs the StringPool. A single instance is provided by Hilt, so that values are shared by every repository.
+     *
+     * @param metrics The registry publishing the savings of the pool.
+     */
+    @Inject
+    public StringPool(MetricsRegistry metrics) {
+        metrics.gauge("strings.pool.size", pool::size);
+        metrics.gauge("strings.pool.hits", hitCount::get);
+        metrics.gauge("strings.pool.savedBytes", savedBytes::get);
+    }
+
+    /**
+     * Returns the pooled instance equal to a value, adding the value to the pool if it holds none.
+     *
+     * @param value The value to share, possibly null.
+     * @return The pooled instance, the value itself if it was just added, or null if the value is null.
+     */
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = pool.get(value);
+        if (pooled == null) {
+            pool.put(value, value);
+            return value;
+        }
+        if (pooled != value) {
+            hitCount.incrementAndGet();
+            savedBytes.addAndGet(estimateSize(value));
+        }
+        return pooled;
+    }
+
+    /**
+     * Returns how many values were replaced by a pooled instance.
+     *
+     * @return The number of hits since the application started.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns an estimate of the heap occupied by the values replaced by a pooled instance,
+     * which can be reclaimed once nothing else refers to them.
+     *
+     * @return The estimated size of the replaced values, in bytes, since the application started.
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /**
+     * Estimates the heap occupied by a string on ART.
+     */
+    static long estimateSize(String value) {
+        int bytesPerChar = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                bytesPerChar = 2;
+                break;
+            }
+        }
+        long size = STRING_HEADER_BYTES + (long) value.length() * bytesPerChar;
+        return (size + OBJECT_ALIGNMENT_BYTES - 1) / OBJECT_ALIGNMENT_BYTES * OBJECT_ALIGNMENT_BYTES;
+    }
+}
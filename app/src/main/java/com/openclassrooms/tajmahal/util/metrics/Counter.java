@@ -0,0 +1,38 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A monotonically increasing count of events, safe to update from any thread.
+ *
+ * @see MetricsRegistry#counter(String)
+ */
+public class Counter {
+
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * Counts one event.
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * Counts several events at once.
+     *
+     * @param delta the number of events, never negative
+     */
+    public void add(long delta) {
+        count.addAndGet(delta);
+    }
+
+    /**
+     * Returns the number of events counted since the counter was created.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,17 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+/**
+ * A value read on demand, when metrics are dumped, such as the size or hit count of a cache.
+ * Implementations must be safe to call from any thread.
+ *
+ * @see MetricsRegistry#gauge(String, Gauge)
+ */
+public interface Gauge {
+
+    /**
+     * Returns the current value of the gauge.
+     *
+     * @return the value
+     */
+    long getValue();
+}
@@ -0,0 +1,172 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records durations, in microseconds, into log-linear buckets from which percentiles are read.
+ * <p>
+ * Each power of two is split into {@link #SUB_BUCKET_COUNT} buckets, so a recorded duration is
+ * reported with less than 12.5% error, and the buckets are allocated once: recording a duration
+ * is a few arithmetic operations and atomic increments, without any allocation or lock, so it
+ * can be done from any thread on hot paths such as binding a row.
+ * </p>
+ * <p>
+ * Durations are measured on the {@link System#nanoTime()} clock:
+ * </p>
+ * <pre>
+ * long start = System.nanoTime();
+ * ...
+ * histogram.recordSince(start);
+ * </pre>
+ *
+ * @see MetricsRegistry#histogram(String)
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /** Number of buckets each power of two is split into. */
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    // Longer durations, about 12 days, are recorded as this one
+    private static final long MAX_MICROS = (1L << 40) - 1;
+
+    private static final int BUCKET_COUNT = indexOf(MAX_MICROS) + 1;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Records the time elapsed since the given start.
+     *
+     * @param startNanos the start of the measured operation, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param durationNanos the duration in nanoseconds; negative durations are recorded as 0
+     */
+    public void recordNanos(long durationNanos) {
+        long micros = Math.min(MAX_MICROS, Math.max(0, TimeUnit.NANOSECONDS.toMicros(durationNanos)));
+        buckets.incrementAndGet(indexOf(micros));
+        sumMicros.addAndGet(micros);
+        long max;
+        do {
+            max = maxMicros.get();
+        } while (micros > max && !maxMicros.compareAndSet(max, micros));
+    }
+
+    /**
+     * Takes a consistent copy of the recorded durations, from which percentiles are computed.
+     * Durations recorded while the copy is taken may or may not be part of it.
+     *
+     * @return the snapshot
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, sumMicros.get(), maxMicros.get());
+    }
+
+    /**
+     * Returns the bucket of a duration: durations under {@link #SUB_BUCKET_COUNT} microseconds have
+     * their own bucket, longer ones share it with the durations having the same highest bits.
+     */
+    static int indexOf(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * Returns the longest duration recorded in a bucket.
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of the durations recorded by a {@link LatencyHistogram}.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sumMicros;
+        private final long maxMicros;
+
+        Snapshot(long[] counts, long count, long sumMicros, long maxMicros) {
+            this.counts = counts;
+            this.count = count;
+            this.sumMicros = sumMicros;
+            this.maxMicros = maxMicros;
+        }
+
+        /**
+         * Returns the number of recorded durations.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the average of the recorded durations.
+         *
+         * @return the mean in microseconds, or 0 if nothing was recorded
+         */
+        public long getMeanMicros() {
+            return count == 0 ? 0 : sumMicros / count;
+        }
+
+        /**
+         * Returns the longest recorded duration.
+         *
+         * @return the maximum in microseconds, or 0 if nothing was recorded
+         */
+        public long getMaxMicros() {
+            return maxMicros;
+        }
+
+        /**
+         * Returns the duration under which the given share of the recorded durations fall.
+         *
+         * @param percentile the share of durations, from 0 to 100
+         * @return the percentile in microseconds, never more than the maximum, or 0 if nothing was recorded
+         */
+        public long getPercentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), maxMicros);
+                }
+            }
+            return maxMicros;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the performance metrics of the application, by name: {@link Counter counters},
+ * {@link Gauge gauges} and {@link LatencyHistogram latency histograms}.
+ * <p>
+ * A single instance is provided by Hilt. Instrumented classes look their metrics up once, when
+ * they are created, and keep them in fields, so that updating a metric never goes through the
+ * registry. Names are dot-separated, starting with the area they measure, such as {@code reviews.bind}.
+ * </p>
+ * <p>
+ * Every metric can be dumped, sorted by name, as text or as JSON. Latencies are reported in
+ * microseconds, with their 50th, 90th and 99th percentiles.
+ * </p>
+ */
+public class MetricsRegistry {
+
+    private static final double[] DUMPED_PERCENTILES = {50, 90, 99};
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the counter with the given name, creating it on first use.
+     *
+     * @param name the name of the counter
+     * @return the counter, shared by every caller using the same name
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    /**
+     * Returns the latency histogram with the given name, creating it on first use.
+     *
+     * @param name the name of the histogram
+     * @return the histogram, shared by every caller using the same name
+     */
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Registers a gauge, replacing any gauge previously registered with the same name.
+     *
+     * @param name  the name of the gauge
+     * @param gauge reads the value of the gauge when metrics are dumped
+     */
+    public void gauge(String name, Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Writes every metric as indented text, one metric per line.
+     *
+     * @param writer receives the metrics
+     */
+    public void dumpText(PrintWriter writer) {
+        writer.println("Counters:");
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue().getCount());
+        }
+        writer.println("Gauges:");
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            writer.println("  " + entry.getKey() + ": " + entry.getValue().getValue());
+        }
+        writer.println("Latencies (us):");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            StringBuilder line = new StringBuilder("  ").append(entry.getKey())
+                    .append(": count=").append(snapshot.getCount())
+                    .append(" mean=").append(snapshot.getMeanMicros());
+            for (double percentile : DUMPED_PERCENTILES) {
+                line.append(" p").append((int) percentile).append('=').append(snapshot.getPercentileMicros(percentile));
+            }
+            line.append(" max=").append(snapshot.getMaxMicros());
+            writer.println(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * Writes every metric as a single JSON object, with one member per kind of metric.
+     *
+     * @param writer receives the metrics
+     */
+    public void dumpJson(PrintWriter writer) {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue().getCount());
+            separator = ",";
+        }
+        json.append("},\"gauges\":{");
+        separator = "";
+        for (Map.Entry<String, Gauge> entry : new TreeMap<>(gauges).entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue().getValue());
+            separator = ",";
+        }
+        json.append("},\"latenciesMicros\":{");
+        separator = "";
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue().snapshot();
+            json.append(separator).append(quote(entry.getKey()))
+                    .append(":{\"count\":").append(snapshot.getCount())
+                    .append(",\"mean\":").append(snapshot.getMeanMicros());
+            for (double percentile : DUMPED_PERCENTILES) {
+                json.append(",\"p").append((int) percentile).append("\":").append(snapshot.getPercentileMicros(percentile));
+            }
+            json.append(",\"max\":").append(snapshot.getMaxMicros()).append('}');
+            separator = ",";
+        }
+        json.append("}}");
+        writer.println(json);
+        writer.flush();
+    }
+
+    /**
+     * Quotes a metric name as a JSON string, escaping the characters JSON does not allow as is.
+     */
+    private static String quote(String name) {
+        StringBuilder quoted = new StringBuilder(name.length() + 2).append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -3,8 +3,19 @@ package com.openclassrooms.tajmahal;
 import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.lifecycle.Observer;
 
+import com.openclassrooms.tajmahal.data.local.ReviewSnapshotStore;
+import com.openclassrooms.tajmahal.data.local.ReviewStore;
+import com.openclassrooms.tajmahal.data.repository.ReviewRepository;
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.data.upload.ReviewUploadScheduler;
 import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.StringPool;
 import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
 
 
 import org.junit.Before;
@@ -12,13 +23,31 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 public class ExampleUnitTest {
 
@@ -33,7 +62,14 @@ public class ExampleUnitTest {
     @Before
     public void setUp() {
         // Observe LiveData
-        viewModel = new ReviewViewModel();
+        ReviewStore reviewStore = mock(ReviewStore.class);
+        when(reviewStore.getRatingCounts(anyString())).thenReturn(new long[5]);
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        MetricsRegistry metrics = new MetricsRegistry();
+        viewModel = new ReviewViewModel(new ReviewRepository(new RestaurantFakeApi(), reviewStore,
+                mock(ReviewSnapshotStore.class), directExecutors,
+                mock(ReviewUploadScheduler.class), new StringPool(metrics), metrics), directExecutors, metrics);
+        viewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
         observer = mock(Observer.class);
         viewModel.getReviews().observeForever(observer);
     }
@@ -42,16 +78,19 @@ public class ExampleUnitTest {
     public void addReview_shouldAddReviewToList() {
         // Given a new review
         Review review = new Review("John Doe", "https://example.com/image.jpg", "Great place!", 5);
+        List<Review> initialReviews = viewModel.getReviews().getValue();
 
         // When the review is added
         boolean result = viewModel.addReview(review);
 
-        // Then the review list should be updated
-        List<Review> expectedReviews = viewModel.getReviews().getValue();
+        // Then the review list should be updated, leaving the previously published snapshot untouched
+        List<Review> expectedReviews = new ArrayList<>();
         expectedReviews.add(review);
+        expectedReviews.addAll(initialReviews);
 
         assertTrue(result); // Check that the review was added
         assertEquals(expectedReviews, viewModel.getReviews().getValue());
+        assertEquals(expectedReviews.size() - 1, initialReviews.size());
     }
 
     @Test
@@ -135,4 +174,240 @@ public class ExampleUnitTest {
         assertEquals(secondReview, reviews.get(0));  // Ensure first review is at index 0
     }
 
+    @Test
+    public void addReview_fromConcurrentThreads_shouldNotLoseAnyReview() throws Exception {
+        // Given: a ViewModel whose main thread is a single thread, and a repository writing on its own disk thread
+        ExecutorService mainThread = Executors.newSingleThreadExecutor();
+        ExecutorService diskIO = Executors.newSingleThreadExecutor();
+        ReviewStore reviewStore = mock(ReviewStore.class);
+        when(reviewStore.getRatingCounts(anyString())).thenReturn(new long[5]);
+        MetricsRegistry metrics = new MetricsRegistry();
+        ReviewRepository repository = new ReviewRepository(new RestaurantFakeApi(), reviewStore,
+                mock(ReviewSnapshotStore.class), new AppExecutors(diskIO, Runnable::run, Runnable::run),
+                mock(ReviewUploadScheduler.class), new StringPool(metrics), metrics);
+        ReviewViewModel concurrentViewModel = new ReviewViewModel(repository,
+                new AppExecutors(Runnable::run, Runnable::run, mainThread), metrics);
+        concurrentViewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
+        int initialSize = concurrentViewModel.getReviews().getValue().size();
+
+        // When: several threads add reviews at the same time
+        int threadCount = 8;
+        int reviewsPerThread = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService producers = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < threadCount; thread++) {
+            String username = "User " + thread;
+            results.add(producers.submit(() -> {
+                start.await();
+                for (int i = 0; i < reviewsPerThread; i++) {
+                    assertTrue(concurrentViewModel.addReview(new Review(username, "https://example.com/image.jpg", String.valueOf(i), 1 + i % 5)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        // Every drain has been scheduled by now: wait for them to run
+        mainThread.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        producers.shutdown();
+        mainThread.shutdown();
+        diskIO.shutdown();
+
+        // Then: every review is shown once, and the reviews of each thread are listed newest first
+        List<Review> reviews = concurrentViewModel.getReviews().getValue();
+        assertEquals(initialSize + threadCount * reviewsPerThread, reviews.size());
+        Map<String, Integer> lastIndexByUser = new HashMap<>();
+        for (Review review : reviews.subList(0, threadCount * reviewsPerThread)) {
+            int index = Integer.parseInt(review.getComment());
+            Integer previous = lastIndexByUser.put(review.getUsername(), index);
+            assertTrue(previous == null || previous == index + 1);
+        }
+        assertEquals(threadCount, lastIndexByUser.size());
+        for (int lastIndex : lastIndexByUser.values()) {
+            assertEquals(0, lastIndex); // Each thread's list ends with its first review
+        }
+    }
+
+    @Test
+    public void addReview_noRestaurantSet_shouldBeRejected() {
+        // Given: a ViewModel whose restaurant is not set yet
+        ReviewStore reviewStore = mock(ReviewStore.class);
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        MetricsRegistry metrics = new MetricsRegistry();
+        ReviewViewModel unboundViewModel = new ReviewViewModel(new ReviewRepository(new RestaurantFakeApi(), reviewStore,
+                mock(ReviewSnapshotStore.class), directExecutors,
+                mock(ReviewUploadScheduler.class), new StringPool(metrics), metrics), directExecutors, metrics);
+
+        // When: a valid review is added
+        boolean result = unboundViewModel.addReview(new Review("John Doe", "https://example.com/image.jpg", "Great place!", 5));
+
+        // Then: it is refused without being saved nor shown
+        assertFalse(result);
+        assertTrue(unboundViewModel.getReviews().getValue().isEmpty());
+        assertEquals(1, metrics.counter("reviews.add.rejected").getCount());
+        verifyNoInteractions(reviewStore);
+    }
+
+    @Test
+    public void addReview_withinOnePublishInterval_shouldPublishOneBatch() {
+        // Given: a ViewModel whose main thread tasks, delayed or not, wait until the test runs them
+        List<Runnable> mainThreadTasks = new ArrayList<>();
+        ReviewStore reviewStore = mock(ReviewStore.class);
+        when(reviewStore.getRatingCounts(anyString())).thenReturn(new long[5]);
+        AppExecutors executors = new AppExecutors(Runnable::run, Runnable::run, mainThreadTasks::add,
+                (task, delayMillis) -> mainThreadTasks.add(task));
+        MetricsRegistry metrics = new MetricsRegistry();
+        ReviewViewModel batchingViewModel = new ReviewViewModel(new ReviewRepository(new RestaurantFakeApi(), reviewStore,
+                mock(ReviewSnapshotStore.class), executors,
+                mock(ReviewUploadScheduler.class), new StringPool(metrics), metrics), executors, metrics);
+        batchingViewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
+        runTasks(mainThreadTasks);
+        List<List<Review>> published = new ArrayList<>();
+        batchingViewModel.getReviews().observeForever(published::add);
+        // The first review is shown on its own, and starts the publish interval
+        Review first = new Review("User 0", "https://example.com/image.jpg", "First", 5);
+        assertTrue(batchingViewModel.addReview(first));
+        runTasks(mainThreadTasks);
+        int publishedBefore = published.size();
+
+        // When: more reviews are added before their drain runs
+        Review second = new Review("User 1", "https://example.com/image.jpg", "Second", 4);
+        Review third = new Review("User 2", "https://example.com/image.jpg", "Third", 3);
+        Review fourth = new Review("User 3", "https://example.com/image.jpg", "Fourth", 2);
+        assertTrue(batchingViewModel.addReview(second));
+        assertTrue(batchingViewModel.addReview(third));
+        assertTrue(batchingViewModel.addReview(fourth));
+
+        // Then: a single drain is scheduled, and publishes the three reviews at once, newest first
+        assertEquals(publishedBefore, published.size());
+        assertEquals(1, mainThreadTasks.size());
+        runTasks(mainThreadTasks);
+        assertEquals(publishedBefore + 1, published.size());
+        List<Review> reviews = batchingViewModel.getReviews().getValue();
+        assertEquals(fourth, reviews.get(0));
+        assertEquals(third, reviews.get(1));
+        assertEquals(second, reviews.get(2));
+        assertEquals(first, reviews.get(3));
+    }
+
+    @Test
+    public void loadReviewPage_sameRequestWhileLoading_shouldShareOneLoad() {
+        // Given: a repository whose page loads wait until the background tasks are run
+        List<Runnable> backgroundTasks = new ArrayList<>();
+        AppExecutors heldExecutors = new AppExecutors(task -> { }, backgroundTasks::add, Runnable::run);
+        RestaurantFakeApi api = spy(new RestaurantFakeApi());
+        MetricsRegistry metrics = new MetricsRegistry();
+        ReviewRepository repository = new ReviewRepository(api, mock(ReviewStore.class),
+                mock(ReviewSnapshotStore.class), heldExecutors,
+                mock(ReviewUploadScheduler.class), new StringPool(metrics), metrics);
+        List<ReviewPage> pages = new ArrayList<>();
+        ApiCallback<ReviewPage> callback = new ApiCallback<ReviewPage>() {
+            @Override
+            public void onSuccess(ReviewPage page) {
+                pages.add(page);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                throw new AssertionError(error);
+            }
+        };
+
+        // When: the same first page is requested twice before the first request completes
+        repository.loadReviewPage(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID, ReviewQuery.ALL, null, 3, callback);
+        repository.loadReviewPage(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID, ReviewQuery.ALL, null, 3, callback);
+        assertEquals(1, backgroundTasks.size());
+        backgroundTasks.get(0).run();
+
+        // Then: the API is called once, both requests receive the page, and the second one is counted as coalesced
+        verify(api, times(1)).getReviews(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID, null, 3);
+        assertEquals(2, pages.size());
+        assertSame(pages.get(0), pages.get(1));
+        assertEquals(1, metrics.counter("reviews.page.coalesced").getCount());
+    }
+
+    @Test
+    public void onVisibleRangeChanged_scrollingBackUp_shouldReloadDroppedFirstPage() {
+        // Given: a repository serving 10 pages of reviews, numbered newest first, synchronously
+        int pageCount = 10;
+        List<Review> allReviews = new ArrayList<>();
+        for (int i = 0; i < pageCount * ReviewViewModel.PAGE_SIZE; i++) {
+            allReviews.add(new Review("User " + i, "https://example.com/" + i + ".jpg", String.valueOf(i), 4, i));
+        }
+        ReviewRepository repository = mock(ReviewRepository.class);
+        doAnswer(invocation -> {
+            String cursor = invocation.getArgument(2);
+            ApiCallback<ReviewPage> callback = invocation.getArgument(4);
+            int from = cursor == null ? 0 : Integer.parseInt(cursor);
+            int to = Math.min(from + ReviewViewModel.PAGE_SIZE, allReviews.size());
+            callback.onSuccess(new ReviewPage(cursor, new ArrayList<>(allReviews.subList(from, to)),
+                    to < allReviews.size() ? String.valueOf(to) : null));
+            return null;
+        }).when(repository).loadReviewPage(eq(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID), eq(ReviewQuery.ALL), any(), anyInt(), any());
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        ReviewViewModel pagedViewModel = new ReviewViewModel(repository, directExecutors, new MetricsRegistry());
+        pagedViewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
+
+        // When: the user scrolls down until one more page than the window holds is loaded
+        for (int page = 1; page <= ReviewViewModel.MAX_PAGES_IN_MEMORY; page++) {
+            int size = pagedViewModel.getReviews().getValue().size();
+            pagedViewModel.onVisibleRangeChanged(size - 2, size - 1);
+        }
+
+        // Then: the first page is dropped, and the window holds the following pages
+        List<Review> window = pagedViewModel.getReviews().getValue();
+        assertEquals(ReviewViewModel.MAX_PAGES_IN_MEMORY * ReviewViewModel.PAGE_SIZE, window.size());
+        assertEquals(allReviews.get(ReviewViewModel.PAGE_SIZE), window.get(0));
+
+        // When: the user scrolls back to the top of the window
+        pagedViewModel.onVisibleRangeChanged(0, 5);
+
+        // Then: the dropped page is loaded again from its cursor, and the last page is dropped instead
+        window = pagedViewModel.getReviews().getValue();
+        assertEquals(ReviewViewModel.MAX_PAGES_IN_MEMORY * ReviewViewModel.PAGE_SIZE, window.size());
+        assertEquals(allReviews.subList(0, window.size()), new ArrayList<>(window));
+    }
+
+    @Test
+    public void onVisibleRangeChanged_shortWindowNearBothEnds_shouldReloadDroppedFirstPage() {
+        // Given: pages of a single review, so that the window is always near both of its ends
+        List<Review> allReviews = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            allReviews.add(new Review("User " + i, "https://example.com/" + i + ".jpg", String.valueOf(i), 4, i));
+        }
+        ReviewRepository repository = mock(ReviewRepository.class);
+        doAnswer(invocation -> {
+            String cursor = invocation.getArgument(2);
+            ApiCallback<ReviewPage> callback = invocation.getArgument(4);
+            int from = cursor == null ? 0 : Integer.parseInt(cursor);
+            callback.onSuccess(new ReviewPage(cursor, new ArrayList<>(allReviews.subList(from, from + 1)),
+                    from + 1 < allReviews.size() ? String.valueOf(from + 1) : null));
+            return null;
+        }).when(repository).loadReviewPage(eq(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID), eq(ReviewQuery.ALL), any(), anyInt(), any());
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        ReviewViewModel pagedViewModel = new ReviewViewModel(repository, directExecutors, new MetricsRegistry());
+        pagedViewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
+        for (int page = 1; page <= ReviewViewModel.MAX_PAGES_IN_MEMORY; page++) {
+            pagedViewModel.onVisibleRangeChanged(0, pagedViewModel.getReviews().getValue().size() - 1);
+        }
+        assertEquals(allReviews.get(1), pagedViewModel.getReviews().getValue().get(0));
+
+        // When: the visible range is reported again
+        pagedViewModel.onVisibleRangeChanged(0, pagedViewModel.getReviews().getValue().size() - 1);
+
+        // Then: the dropped first page is loaded again rather than another page being appended
+        assertEquals(allReviews.get(0), pagedViewModel.getReviews().getValue().get(0));
+    }
+
+    /**
+     * Runs queued tasks, including the ones they queue, until none is left.
+     */
+    private static void runTasks(List<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
 }
@@ -0,0 +1,209 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.data.local.DailyRatings;
+import com.openclassrooms.tajmahal.data.local.PendingUpload;
+import com.openclassrooms.tajmahal.data.local.ReviewSnapshotStore;
+import com.openclassrooms.tajmahal.data.local.ReviewStore;
+import com.openclassrooms.tajmahal.data.upload.ReviewUploadScheduler;
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Data shared by the benchmarks: deterministic review lists and an in-memory {@link ReviewStore},
+ * so that results only depend on the code under measurement and can be compared between versions.
+ */
+final class BenchmarkData {
+
+    private static final String[] WORDS = {
+            "service", "rapide", "délicieux", "curry", "naan", "épicé", "accueil", "portions", "cadre", "attente"
+    };
+
+    /** Creation time of the newest generated review, in milliseconds since the epoch. */
+    static final long NEWEST_REVIEW_TIME = 1_700_000_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates reviews with the same contents for a given size on every run.
+     *
+     * @param count the number of reviews to generate
+     * @return the reviews, newest first
+     */
+    static List<Review> reviews(int count) {
+        // One review per minute before a fixed time, so that the lists do not depend on the clock
+        Random random = new Random(count);
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String comment = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            reviews.add(new Review("User " + i, "https://example.com/avatars/" + (i % 100) + ".jpg",
+                    comment, 1 + random.nextInt(RatingSummary.MAX_RATING), NEWEST_REVIEW_TIME - TimeUnit.MINUTES.toMillis(i)));
+        }
+        return reviews;
+    }
+
+    /**
+     * Returns a snapshot store writing to a new temporary directory, so that every benchmark starts without snapshot.
+     */
+    static ReviewSnapshotStore snapshotStore() {
+        try {
+            return new ReviewSnapshotStore(Files.createTempDirectory("review-snapshots").toFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns an upload scheduler that schedules nothing, as WorkManager is not available on the JVM.
+     */
+    static ReviewUploadScheduler noUploads() {
+        return new ReviewUploadScheduler(null) {
+            @Override
+            public void schedule() {
+            }
+        };
+    }
+
+    /**
+     * A primed, single-restaurant {@link ReviewStore} kept in memory.
+     * Reviews are held oldest first, so that adding the newest one is an append; cursors are indexes in that list.
+     * Its sync token is the first one of {@link com.openclassrooms.tajmahal.data.service.RestaurantFakeApi},
+     * and deltas are merged by walking the list, as benchmarks only merge empty or small ones.
+     */
+    static class InMemoryReviewStore implements ReviewStore {
+
+        private final List<Review> oldestFirst;
+        private String syncToken = "0";
+
+        InMemoryReviewStore(List<Review> newestFirst) {
+            oldestFirst = new ArrayList<>(newestFirst.size() + 1);
+            for (int i = newestFirst.size() - 1; i >= 0; i--) {
+                oldestFirst.add(newestFirst.get(i));
+            }
+        }
+
+        @Override
+        public boolean isPrimed(String restaurantId) {
+            return true;
+        }
+
+        @Override
+        public void setPrimed(String restaurantId, boolean primed) {
+        }
+
+        @Override
+        public ReviewPage getPage(String restaurantId, String cursor, int pageSize) {
+            int from = cursor == null ? oldestFirst.size() - 1 : Integer.parseInt(cursor);
+            List<Review> reviews = new ArrayList<>(pageSize);
+            int index = from;
+            while (index >= 0 && reviews.size() < pageSize) {
+                reviews.add(oldestFirst.get(index--));
+            }
+            return new ReviewPage(cursor, reviews, index >= 0 ? String.valueOf(index) : null);
+        }
+
+        @Override
+        public ReviewPage getPage(String restaurantId, ReviewQuery query, String cursor, int pageSize) {
+            return getPage(restaurantId, cursor, pageSize);
+        }
+
+        @Override
+        public List<Review> search(String restaurantId, String query, int limit) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public long[] getRatingCounts(String restaurantId) {
+            long[] counts = new long[RatingSummary.MAX_RATING];
+            for (Review review : oldestFirst) {
+                counts[review.getRate() - 1]++;
+            }
+            return counts;
+        }
+
+        @Override
+        public List<DailyRatings> getDailyRatings(String restaurantId, long since) {
+            Map<Long, long[]> totals = new TreeMap<>();
+            for (Review review : oldestFirst) {
+                if (review.getCreatedAt() >= since) {
+                    long[] total = totals.computeIfAbsent(DailyRatings.toEpochDay(review.getCreatedAt()), day -> new long[2]);
+                    total[0]++;
+                    total[1] += review.getRate();
+                }
+            }
+            List<DailyRatings> dailyRatings = new ArrayList<>(totals.size());
+            for (Map.Entry<Long, long[]> total : totals.entrySet()) {
+                dailyRatings.add(new DailyRatings(total.getKey(), total.getValue()[0], total.getValue()[1]));
+            }
+            return dailyRatings;
+        }
+
+        @Override
+        public void insertNewest(String restaurantId, Review review) {
+            oldestFirst.add(review);
+        }
+
+        @Override
+        public List<Review> appendOldest(String restaurantId, List<Review> reviews) {
+            oldestFirst.addAll(0, reviews);
+            return reviews;
+        }
+
+        @Override
+        public void clearImported(String restaurantId) {
+        }
+
+        @Override
+        public String getSyncToken(String restaurantId) {
+            return syncToken;
+        }
+
+        @Override
+        public void setSyncToken(String restaurantId, String syncToken) {
+            this.syncToken = syncToken;
+        }
+
+        @Override
+        public List<Review> applyDelta(String restaurantId, ReviewDelta delta) {
+            List<Review> replaced = new ArrayList<>();
+            for (int i = oldestFirst.size() - 1; i >= 0; i--) {
+                Review stored = oldestFirst.get(i);
+                if (stored.getId() != null && delta.getDeletedIds().contains(stored.getId())) {
+                    replaced.add(oldestFirst.remove(i));
+                }
+            }
+            for (Review review : delta.getUpdated()) {
+                for (int i = 0; i < oldestFirst.size(); i++) {
+                    if (review.getId().equals(oldestFirst.get(i).getId())) {
+                        replaced.add(oldestFirst.set(i, review));
+                    }
+                }
+            }
+            oldestFirst.addAll(delta.getInserted());
+            syncToken = delta.getSyncToken();
+            return replaced;
+        }
+
+        @Override
+        public List<PendingUpload> getPendingUploads(int limit) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void removePendingUploads(List<PendingUpload> uploads) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.data.repository.RatingAggregate;
+import com.openclassrooms.tajmahal.data.repository.RatingTrendAggregate;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of getting the average rating of {@code reviewCount} reviews: walking the
+ * review list, and updating the running {@link RatingAggregate} for one more review. The average
+ * of the last 7 days is compared the same way against the daily buckets of {@link RatingTrendAggregate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatingBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int reviewCount;
+
+    private List<Review> reviews;
+    private RatingAggregate aggregate;
+    private RatingTrendAggregate trend;
+
+    @Setup
+    public void setUp() {
+        reviews = BenchmarkData.reviews(reviewCount);
+        aggregate = new RatingAggregate();
+        for (Review review : reviews) {
+            aggregate.add(review.getRate());
+        }
+        trend = new RatingTrendAggregate();
+        for (Review review : reviews) {
+            trend.add(review.getRate(), review.getCreatedAt());
+        }
+    }
+
+    @Benchmark
+    public float averageByScan() {
+        long sum = 0;
+        for (Review review : reviews) {
+            sum += review.getRate();
+        }
+        return reviews.isEmpty() ? 0 : (float) sum / reviews.size();
+    }
+
+    @Benchmark
+    public float averageByAggregate() {
+        aggregate.add(4);
+        float average = aggregate.snapshot().getAverage();
+        aggregate.remove(4);
+        return average;
+    }
+
+    @Benchmark
+    public float recentAverageByScan() {
+        long since = BenchmarkData.NEWEST_REVIEW_TIME - TimeUnit.DAYS.toMillis(RatingTrend.Window.LAST_7_DAYS.getDays());
+        long count = 0;
+        long sum = 0;
+        for (Review review : reviews) {
+            if (review.getCreatedAt() > since) {
+                count++;
+                sum += review.getRate();
+            }
+        }
+        return count == 0 ? 0 : (float) sum / count;
+    }
+
+    @Benchmark
+    public float recentAverageByTrend() {
+        trend.add(4, BenchmarkData.NEWEST_REVIEW_TIME);
+        return trend.snapshot(BenchmarkData.NEWEST_REVIEW_TIME).getAverage(RatingTrend.Window.LAST_7_DAYS);
+    }
+}
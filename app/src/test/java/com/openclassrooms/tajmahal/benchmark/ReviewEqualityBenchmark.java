@@ -0,0 +1,65 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Review#equals(Object)} and {@link Review#hashCode()} over lists of
+ * {@code reviewCount} reviews, as done when lists are compared or reviews are put in hash sets.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewEqualityBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int reviewCount;
+
+    private List<Review> reviews;
+    private List<Review> copies;
+
+    @Setup
+    public void setUp() {
+        reviews = BenchmarkData.reviews(reviewCount);
+        // Equal but distinct instances, so that equals compares every field
+        copies = new ArrayList<>(reviewCount);
+        for (Review review : reviews) {
+            copies.add(new Review(review.getUsername(), review.getPicture(), review.getComment(), review.getRate(), review.getCreatedAt()));
+        }
+    }
+
+    @Benchmark
+    public boolean listEquals() {
+        return reviews.equals(copies);
+    }
+
+    @Benchmark
+    public int listHashCode() {
+        return reviews.hashCode();
+    }
+
+    @Benchmark
+    public Set<Review> buildHashSet() {
+        return new HashSet<>(reviews);
+    }
+}
@@ -0,0 +1,94 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.data.repository.ReviewRepository;
+import com.openclassrooms.tajmahal.data.service.ApiCallback;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.domain.model.ReviewQuery;
+import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.StringPool;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading reviews through {@link ReviewRepository#loadReviewPage} from a store holding
+ * {@code reviewCount} reviews: the first page, served from the first-page cache once loaded, as
+ * when the screen is opened again, and a walk through the first hundred pages, as done while scrolling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewRepositoryBenchmark {
+
+    private static final int SCROLLED_PAGES = 100;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int reviewCount;
+
+    private ReviewRepository repository;
+
+    // Last page delivered to the callback; loads complete synchronously with direct executors
+    private ReviewPage loadedPage;
+
+    private final ApiCallback<ReviewPage> callback = new ApiCallback<ReviewPage>() {
+        @Override
+        public void onSuccess(ReviewPage page) {
+            loadedPage = page;
+        }
+
+        @Override
+        public void onError(Exception error) {
+            throw new IllegalStateException(error);
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        MetricsRegistry metrics = new MetricsRegistry();
+        repository = new ReviewRepository(new RestaurantFakeApi(),
+                new BenchmarkData.InMemoryReviewStore(BenchmarkData.reviews(reviewCount)),
+                BenchmarkData.snapshotStore(), directExecutors,
+                BenchmarkData.noUploads(), new StringPool(metrics), metrics);
+    }
+
+    @Benchmark
+    public ReviewPage loadFirstPage() {
+        repository.loadReviewPage(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID, ReviewQuery.ALL, null,
+                ReviewViewModel.PAGE_SIZE, callback);
+        return loadedPage;
+    }
+
+    @Benchmark
+    public int scrollPages() {
+        int loaded = 0;
+        String cursor = null;
+        for (int i = 0; i < SCROLLED_PAGES; i++) {
+            repository.loadReviewPage(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID, ReviewQuery.ALL, cursor,
+                    ReviewViewModel.PAGE_SIZE, callback);
+            loaded += loadedPage.getReviews().size();
+            cursor = loadedPage.getNextCursor();
+            if (cursor == null) {
+                break;
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,120 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the full-text search of the comments of {@code reviewCount} stored reviews, through the
+ * SQLite JDBC driver since the Android database classes are not available on the JVM.
+ * <p>
+ * The tables, the FTS4 index and the query mirror {@code ReviewDatabaseHelper} and
+ * {@code SqliteReviewStore#search}; {@code matchQuery} is what {@code toMatchQuery} builds from what
+ * the user typed. "delicieux*" and "cu*" match about a fifth of the generated reviews, and "4242*" a
+ * handful of them, so that both the cost of many matches and the cost of filling a page from few
+ * matches are measured.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewSearchBenchmark {
+
+    private static final String RESTAURANT_ID = "benchmark";
+
+    @Param({"1000", "100000"})
+    public int reviewCount;
+
+    @Param({"delicieux*", "cu*", "4242*"})
+    public String matchQuery;
+
+    private Connection connection;
+    private PreparedStatement search;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE reviews (_id INTEGER PRIMARY KEY AUTOINCREMENT, username TEXT, picture TEXT, "
+                    + "comment TEXT, rate INTEGER NOT NULL, sort_key INTEGER NOT NULL, source INTEGER NOT NULL, "
+                    + "restaurant_id TEXT NOT NULL, created_at INTEGER NOT NULL DEFAULT 0, remote_id TEXT)");
+            statement.execute("CREATE UNIQUE INDEX idx_reviews_restaurant_sort_key ON reviews (restaurant_id, sort_key)");
+            statement.execute("CREATE INDEX idx_reviews_restaurant_rate_sort_key ON reviews (restaurant_id, rate, sort_key)");
+            statement.execute("CREATE VIRTUAL TABLE reviews_fts USING fts4(content=\"reviews\", comment, "
+                    + "tokenize=unicode61 \"remove_diacritics=1\", prefix=\"2,3\")");
+            statement.execute("CREATE TRIGGER reviews_fts_after_insert AFTER INSERT ON reviews BEGIN "
+                    + "INSERT INTO reviews_fts (docid, comment) VALUES (new._id, new.comment); END");
+        }
+
+        // Stored oldest first, as an import appends them
+        List<Review> reviews = BenchmarkData.reviews(reviewCount);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO reviews (restaurant_id, username, "
+                + "picture, comment, rate, created_at, sort_key, source) VALUES (?, ?, ?, ?, ?, ?, ?, 0)")) {
+            for (int i = 0; i < reviews.size(); i++) {
+                Review review = reviews.get(i);
+                insert.setString(1, RESTAURANT_ID);
+                insert.setString(2, review.getUsername());
+                insert.setString(3, review.getPicture());
+                insert.setString(4, review.getComment());
+                insert.setInt(5, review.getRate());
+                insert.setLong(6, review.getCreatedAt());
+                insert.setLong(7, -i);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        search = connection.prepareStatement("SELECT remote_id, username, picture, comment, rate, created_at FROM reviews"
+                + " WHERE _id IN (SELECT docid FROM reviews_fts WHERE reviews_fts MATCH ?)"
+                + " AND restaurant_id = ? ORDER BY sort_key DESC LIMIT ?");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        search.close();
+        connection.close();
+    }
+
+    @Benchmark
+    public List<Review> search() throws SQLException {
+        search.setString(1, matchQuery);
+        search.setString(2, RESTAURANT_ID);
+        search.setInt(3, ReviewViewModel.SEARCH_RESULT_LIMIT);
+        List<Review> reviews = new ArrayList<>();
+        try (ResultSet rows = search.executeQuery()) {
+            while (rows.next()) {
+                reviews.add(new Review(rows.getString(1), rows.getString(2), rows.getString(3), rows.getString(4),
+                        rows.getInt(5), rows.getLong(6)));
+            }
+        }
+        return reviews;
+    }
+}
@@ -0,0 +1,75 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of refreshing {@code reviewCount} reviews after {@link #CHANGED_REVIEWS} of them
+ * changed: fetching every page of the list, and fetching the changes since a sync token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewSyncBenchmark {
+
+    private static final String RESTAURANT_ID = "benchmark";
+    private static final int BATCH_SIZE = 500;
+    private static final int CHANGED_REVIEWS = 10;
+
+    @Param({"10", "1000", "100000"})
+    public int reviewCount;
+
+    private RestaurantFakeApi api;
+    private String syncToken;
+
+    @Setup
+    public void setUp() {
+        api = new RestaurantFakeApi();
+        api.simulateChanges(RESTAURANT_ID, reviewCount, 0, 0);
+        syncToken = api.getReviewsSince(RESTAURANT_ID, null, 0).getSyncToken();
+        api.simulateChanges(RESTAURANT_ID, 0, CHANGED_REVIEWS, 0);
+    }
+
+    @Benchmark
+    public int fullRefresh() {
+        int reviews = 0;
+        String cursor = null;
+        do {
+            ReviewPage page = api.getReviews(RESTAURANT_ID, cursor, BATCH_SIZE);
+            reviews += page.getReviews().size();
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return reviews;
+    }
+
+    @Benchmark
+    public int deltaRefresh() {
+        int changes = 0;
+        String token = syncToken;
+        ReviewDelta delta;
+        do {
+            delta = api.getReviewsSince(RESTAURANT_ID, token, BATCH_SIZE);
+            changes += delta.getInserted().size() + delta.getUpdated().size() + delta.getDeletedIds().size();
+            token = delta.getSyncToken();
+        } while (delta.hasMore());
+        return changes;
+    }
+}
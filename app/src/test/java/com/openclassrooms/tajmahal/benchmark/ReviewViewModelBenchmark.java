@@ -0,0 +1,87 @@
+package com.openclassrooms.tajmahal.benchmark;
+
+import androidx.arch.core.executor.ArchTaskExecutor;
+import androidx.arch.core.executor.TaskExecutor;
+
+import com.openclassrooms.tajmahal.data.repository.ReviewRepository;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.ui.Review.ReviewViewModel;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.StringPool;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ReviewViewModel#addReview(Review)}, from validation to the new snapshot being
+ * published, with a store already holding {@code reviewCount} reviews.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReviewViewModelBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int reviewCount;
+
+    private ReviewViewModel viewModel;
+    private final Review review = new Review("Benchmark", "https://example.com/avatar.jpg", "Service rapide", 4);
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // LiveData runs on the calling thread, as in the unit tests
+        ArchTaskExecutor.getInstance().setDelegate(new TaskExecutor() {
+            @Override
+            public void executeOnDiskIO(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public void postToMainThread(Runnable runnable) {
+                runnable.run();
+            }
+
+            @Override
+            public boolean isMainThread() {
+                return true;
+            }
+        });
+
+        MetricsRegistry metrics = new MetricsRegistry();
+        AppExecutors directExecutors = new AppExecutors(Runnable::run, Runnable::run, Runnable::run);
+        ReviewRepository repository = new ReviewRepository(new RestaurantFakeApi(),
+                new BenchmarkData.InMemoryReviewStore(BenchmarkData.reviews(reviewCount)),
+                BenchmarkData.snapshotStore(), directExecutors,
+                BenchmarkData.noUploads(), new StringPool(metrics), metrics);
+        viewModel = new ReviewViewModel(repository, directExecutors, metrics);
+        viewModel.setRestaurantId(RestaurantFakeApi.TAJ_MAHAL_PARIS_ID);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        ArchTaskExecutor.getInstance().setDelegate(null);
+    }
+
+    @Benchmark
+    public boolean addReview() {
+        return viewModel.addReview(review);
+    }
+}
@@ -0,0 +1,238 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the snapshots written by {@link ReviewSnapshotStore}, read back through a memory-mapped file.
+ */
+public class ReviewSnapshotStoreTest {
+
+    private static final String RESTAURANT_ID = "taj mahal/paris";
+    private static final int PAGE_SIZE = 4;
+
+    private File directory;
+    private ReviewSnapshotStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshots").toFile();
+        store = new ReviewSnapshotStore(directory);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void read_severalPages_shouldReturnEveryPageAsWritten() throws IOException {
+        // Given three pages of four reviews, the last one holding only two
+        List<ReviewPage> pages = pages(10);
+        store.write(RESTAURANT_ID, pages, PAGE_SIZE);
+
+        // When the snapshot is mapped
+        ReviewSnapshot snapshot = store.read(RESTAURANT_ID);
+
+        // Then each page is found from the next cursor of the previous one, as it was written
+        assertNotNull(snapshot);
+        assertEquals(PAGE_SIZE, snapshot.getPageSize());
+        assertEquals(10, snapshot.getReviewCount());
+        String cursor = null;
+        for (ReviewPage expected : pages) {
+            ReviewPage page = snapshot.findPage(cursor);
+            assertNotNull("Page " + cursor, page);
+            assertEquals(expected.getCursor(), page.getCursor());
+            assertEquals(expected.getReviews(), page.getReviews());
+            assertEquals(expected.getNextCursor(), page.getNextCursor());
+            cursor = page.getNextCursor();
+        }
+        assertEquals(2, snapshot.findPage(pages.get(1).getNextCursor()).getReviews().size());
+        assertNull(snapshot.findPage("unknown cursor"));
+    }
+
+    @Test
+    public void read_shouldKeepSnapshotMappedUntilReplaced() throws IOException {
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        ReviewSnapshot snapshot = store.read(RESTAURANT_ID);
+
+        assertSame(snapshot, store.read(RESTAURANT_ID));
+
+        store.write(RESTAURANT_ID, pages(3), PAGE_SIZE);
+        ReviewSnapshot replaced = store.read(RESTAURANT_ID);
+        assertEquals(3, replaced.getReviewCount());
+        assertFalse(replaced.findPage(null).hasNext());
+    }
+
+    @Test
+    public void read_noReview_shouldHaveNoPage() throws IOException {
+        store.write(RESTAURANT_ID, Collections.singletonList(
+                new ReviewPage(null, Collections.<Review>emptyList(), null)), PAGE_SIZE);
+
+        ReviewSnapshot snapshot = store.read(RESTAURANT_ID);
+
+        assertEquals(0, snapshot.getReviewCount());
+        assertTrue(snapshot.findPage(null).getReviews().isEmpty());
+    }
+
+    @Test
+    public void read_nullStrings_shouldStayDistinctFromEmptyOnes() throws IOException {
+        // Given reviews whose comment, username or picture is null, next to ones where they are empty
+        List<Review> reviews = Arrays.asList(
+                new Review("1", "Manon Garcia", "", null, 4, 1_700_000_000_000L),
+                new Review("2", null, null, "", 3, 1_700_000_000_001L),
+                new Review(null, "", "https://example.com/3.jpg", "Très bon", 5, 1_700_000_000_002L));
+        store.write(RESTAURANT_ID, Collections.singletonList(new ReviewPage(null, reviews, null)), PAGE_SIZE);
+
+        // When the snapshot is read back
+        ReviewPage page = store.read(RESTAURANT_ID).findPage(null);
+
+        // Then each string is null or empty as it was written, and the fields after it are intact
+        assertEquals(reviews, page.getReviews());
+        assertNull(page.getReviews().get(0).getComment());
+        assertEquals("", page.getReviews().get(1).getComment());
+        assertEquals(4, page.getReviews().get(0).getRate());
+        assertEquals("1", page.getReviews().get(0).getId());
+    }
+
+    @Test
+    public void read_noSnapshot_shouldBeNull() {
+        assertNull(store.read(RESTAURANT_ID));
+    }
+
+    @Test
+    public void read_truncatedFile_shouldDeleteIt() throws IOException {
+        // Given a snapshot cut in the middle of its indexes
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        File file = snapshotFile();
+        truncate(file, 48);
+
+        // Then it is ignored and deleted, so that pages are read from the store again
+        assertNull(store.read(RESTAURANT_ID));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void findPage_fileTruncatedInReviews_shouldFailWithIOException() throws IOException {
+        // Given a snapshot whose header is intact but whose last reviews are missing
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        File file = snapshotFile();
+        truncate(file, file.length() - 20);
+        ReviewSnapshot snapshot = store.read(RESTAURANT_ID);
+        assertNotNull(snapshot);
+        String lastCursor = pages(10).get(1).getNextCursor();
+
+        // Then the first page is still read, and the last one fails as corrupted rather than out of bounds
+        assertEquals(PAGE_SIZE, snapshot.findPage(null).getReviews().size());
+        try {
+            snapshot.findPage(lastCursor);
+            fail("The last page was read from a truncated snapshot");
+        } catch (IOException expected) {
+            // The repository deletes the snapshot and reads the page from the store
+        }
+    }
+
+    @Test
+    public void read_otherVersion_shouldDeleteIt() throws IOException {
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        File file = snapshotFile();
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(Integer.BYTES);
+            output.writeInt(ReviewSnapshot.VERSION - 1);
+        }
+
+        assertNull(store.read(RESTAURANT_ID));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void read_notASnapshot_shouldDeleteIt() throws IOException {
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        File file = snapshotFile();
+        Files.write(file.toPath(), "not a snapshot, but long enough for a header".getBytes("UTF-8"));
+
+        assertNull(store.read(RESTAURANT_ID));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void read_emptyFile_shouldDeleteIt() throws IOException {
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        File file = snapshotFile();
+        truncate(file, 0);
+
+        assertNull(store.read(RESTAURANT_ID));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void delete_shouldRemoveSnapshot() {
+        store.write(RESTAURANT_ID, pages(10), PAGE_SIZE);
+        store.read(RESTAURANT_ID);
+
+        store.delete(RESTAURANT_ID);
+
+        assertNull(store.read(RESTAURANT_ID));
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    /**
+     * Splits the given number of reviews into pages of {@link #PAGE_SIZE}, with the cursors a server
+     * would give them, some reviews without picture or id.
+     */
+    private static List<ReviewPage> pages(int reviewCount) {
+        List<ReviewPage> pages = new ArrayList<>();
+        String cursor = null;
+        for (int first = 0; first < reviewCount; first += PAGE_SIZE) {
+            List<Review> reviews = new ArrayList<>();
+            for (int i = first; i < Math.min(reviewCount, first + PAGE_SIZE); i++) {
+                reviews.add(new Review(i % 3 == 0 ? null : "review-" + i, "User " + (i % 2),
+                        i % 4 == 0 ? null : "https://example.com/" + i + ".jpg",
+                        "Commentaire n°" + i + " très épicé", 1 + i % 5, 1_700_000_000_000L - i));
+            }
+            String nextCursor = first + PAGE_SIZE < reviewCount ? "after-" + (first + PAGE_SIZE - 1) : null;
+            pages.add(new ReviewPage(cursor, reviews, nextCursor));
+            cursor = nextCursor;
+        }
+        return pages;
+    }
+
+    private File snapshotFile() {
+        File[] files = directory.listFiles();
+        assertEquals(Arrays.toString(files), 1, files.length);
+        return files[0];
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(length);
+        }
+    }
+}
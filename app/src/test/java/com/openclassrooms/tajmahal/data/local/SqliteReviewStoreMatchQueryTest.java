@@ -0,0 +1,71 @@
+package com.openclassrooms.tajmahal.data.local;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the FTS query built by {@link SqliteReviewStore#toMatchQuery(String)} from what the user types.
+ */
+public class SqliteReviewStoreMatchQueryTest {
+
+    @Test
+    public void toMatchQuery_shouldMatchEveryWordAsPrefix() {
+        assertEquals("naan* curry*", SqliteReviewStore.toMatchQuery("naan curry"));
+        assertEquals("cur*", SqliteReviewStore.toMatchQuery("cur"));
+    }
+
+    @Test
+    public void toMatchQuery_quotes_shouldNotStartPhrase() {
+        assertEquals("naan* curry*", SqliteReviewStore.toMatchQuery("\"naan curry\""));
+        assertEquals("naan*", SqliteReviewStore.toMatchQuery("\"naan"));
+    }
+
+    @Test
+    public void toMatchQuery_star_shouldNotBeDoubled() {
+        assertEquals("cur*", SqliteReviewStore.toMatchQuery("cur*"));
+        assertEquals("", SqliteReviewStore.toMatchQuery("*"));
+    }
+
+    @Test
+    public void toMatchQuery_minus_shouldNotExcludeWord() {
+        assertEquals("naan* curry*", SqliteReviewStore.toMatchQuery("naan -curry"));
+        assertEquals("sans* gluten*", SqliteReviewStore.toMatchQuery("sans-gluten"));
+    }
+
+    @Test
+    public void toMatchQuery_operatorKeywords_shouldBeSearchedAsWords() {
+        // FTS operators are upper case: lower-cased, they are plain words
+        assertEquals("naan* or* curry*", SqliteReviewStore.toMatchQuery("naan OR curry"));
+        assertEquals("naan* near* curry*", SqliteReviewStore.toMatchQuery("naan NEAR curry"));
+        assertEquals("naan* near* 2* curry*", SqliteReviewStore.toMatchQuery("naan NEAR/2 curry"));
+        assertEquals("not* and* bon*", SqliteReviewStore.toMatchQuery("NOT AND bon"));
+    }
+
+    @Test
+    public void toMatchQuery_syntaxCharacters_shouldSeparateWords() {
+        assertEquals("naan* curry*", SqliteReviewStore.toMatchQuery("naan (curry)"));
+        assertEquals("comment* bon*", SqliteReviewStore.toMatchQuery("comment:bon"));
+        assertEquals("l* accueil*", SqliteReviewStore.toMatchQuery("l'accueil"));
+        assertEquals("bon*", SqliteReviewStore.toMatchQuery("^bon"));
+    }
+
+    @Test
+    public void toMatchQuery_accents_shouldBeKeptForTheTokenizer() {
+        // Accents are removed by the tokenizer, on the query terms as on the indexed comments
+        assertEquals("délicieux*", SqliteReviewStore.toMatchQuery("Délicieux"));
+        assertEquals("épicé* très* bon*", SqliteReviewStore.toMatchQuery("ÉPICÉ, très bon!"));
+    }
+
+    @Test
+    public void toMatchQuery_digits_shouldBeWords() {
+        assertEquals("5* étoiles*", SqliteReviewStore.toMatchQuery("5 étoiles"));
+    }
+
+    @Test
+    public void toMatchQuery_noWord_shouldBeEmpty() {
+        assertEquals("", SqliteReviewStore.toMatchQuery(""));
+        assertEquals("", SqliteReviewStore.toMatchQuery("   "));
+        assertEquals("", SqliteReviewStore.toMatchQuery("\"-*()"));
+    }
+}
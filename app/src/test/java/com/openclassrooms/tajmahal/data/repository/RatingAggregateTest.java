@@ -0,0 +1,143 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.domain.model.RatingSummary;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RatingAggregateTest {
+
+    @Test
+    public void addAndRemove_shouldMatchRecountFromStore() {
+        // Given reviews added and removed one by one, as the store is written
+        Random random = new Random(42);
+        RatingAggregate incremental = new RatingAggregate();
+        List<Integer> stored = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (!stored.isEmpty() && random.nextInt(4) == 0) {
+                incremental.remove(stored.remove(random.nextInt(stored.size())));
+            } else {
+                int rating = random.nextInt(RatingSummary.MAX_RATING) + 1;
+                stored.add(rating);
+                incremental.add(rating);
+            }
+        }
+
+        // When the aggregate is recounted from the stored reviews
+        RatingAggregate recounted = new RatingAggregate();
+        recounted.reset(countByRating(stored));
+
+        // Then both give the same summary
+        RatingSummary expected = recounted.snapshot();
+        RatingSummary actual = incremental.snapshot();
+        assertEquals(stored.size(), actual.getCount());
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum());
+        assertEquals(expected.getAverage(), actual.getAverage(), 0);
+        for (int rating = 1; rating <= RatingSummary.MAX_RATING; rating++) {
+            assertEquals(expected.getCountForRating(rating), actual.getCountForRating(rating));
+        }
+    }
+
+    @Test
+    public void add_outOfRangeRating_shouldBeClamped() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.add(0);
+        aggregate.add(7);
+
+        RatingSummary summary = aggregate.snapshot();
+        assertEquals(1, summary.getCountForRating(1));
+        assertEquals(1, summary.getCountForRating(RatingSummary.MAX_RATING));
+        assertEquals(1 + RatingSummary.MAX_RATING, summary.getSum());
+    }
+
+    @Test
+    public void remove_ratingWithoutReview_shouldNotGoNegative() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.add(4);
+
+        aggregate.remove(2);
+
+        assertEquals(0, aggregate.snapshot().getCountForRating(2));
+        assertEquals(1, aggregate.snapshot().getCount());
+    }
+
+    @Test
+    public void snapshot_shouldGiveDistributionPercentages() {
+        // Given 10 reviews: four 5-star, three 4-star, two 3-star and one 1-star
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.reset(new long[]{1, 0, 2, 3, 4});
+
+        RatingSummary summary = aggregate.snapshot();
+
+        assertEquals(10, summary.getPercentForRating(1));
+        assertEquals(0, summary.getPercentForRating(2));
+        assertEquals(20, summary.getPercentForRating(3));
+        assertEquals(30, summary.getPercentForRating(4));
+        assertEquals(40, summary.getPercentForRating(5));
+        assertEquals(3.9F, summary.getAverage(), 0.001F);
+    }
+
+    @Test
+    public void snapshot_percentages_shouldBeRoundedDown() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.reset(new long[]{1, 1, 1, 0, 0});
+
+        RatingSummary summary = aggregate.snapshot();
+
+        assertEquals(33, summary.getPercentForRating(1));
+        assertEquals(33, summary.getPercentForRating(2));
+        assertEquals(33, summary.getPercentForRating(3));
+    }
+
+    @Test
+    public void snapshot_restaurantWithoutReview_shouldBeEmpty() {
+        RatingAggregate aggregate = new RatingAggregate();
+
+        RatingSummary summary = aggregate.snapshot();
+
+        assertEquals(0, summary.getCount());
+        assertEquals(0, summary.getSum());
+        assertEquals(0F, summary.getAverage(), 0);
+        for (int rating = 1; rating <= RatingSummary.MAX_RATING; rating++) {
+            assertEquals(0, summary.getPercentForRating(rating));
+        }
+    }
+
+    @Test
+    public void snapshot_shouldNotChangeWithLaterUpdates() {
+        RatingAggregate aggregate = new RatingAggregate();
+        aggregate.add(5);
+        RatingSummary before = aggregate.snapshot();
+
+        aggregate.add(1);
+
+        assertEquals(1, before.getCount());
+        assertArrayEquals(new long[]{0, 0, 0, 0, 1}, histogramOf(before));
+    }
+
+    /**
+     * Counts reviews per rating the way the store does, index 0 holding the 1-star reviews.
+     */
+    private static long[] countByRating(List<Integer> ratings) {
+        long[] counts = new long[RatingSummary.MAX_RATING];
+        for (int rating : ratings) {
+            counts[rating - 1]++;
+        }
+        return counts;
+    }
+
+    private static long[] histogramOf(RatingSummary summary) {
+        long[] histogram = new long[RatingSummary.MAX_RATING];
+        for (int rating = 1; rating <= RatingSummary.MAX_RATING; rating++) {
+            histogram[rating - 1] = summary.getCountForRating(rating);
+        }
+        return histogram;
+    }
+}
@@ -0,0 +1,174 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import com.openclassrooms.tajmahal.data.local.DailyRatings;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend;
+import com.openclassrooms.tajmahal.domain.model.RatingTrend.Window;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class RatingTrendAggregateTest {
+
+    private static final long DAY = DailyRatings.DAY_MILLIS;
+
+    // Noon of an arbitrary day, so that a few hours either way stay on the same day
+    private static final long TODAY = 20_000 * DAY + DAY / 2;
+
+    @Test
+    public void snapshot_shouldSumEachWindow() {
+        // Given reviews written on both sides of the limit of each window
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(5, TODAY);
+        aggregate.add(3, TODAY - 6 * DAY);
+        aggregate.add(4, TODAY - 7 * DAY);
+        aggregate.add(2, TODAY - 29 * DAY);
+        aggregate.add(1, TODAY - 30 * DAY);
+        aggregate.add(5, TODAY - 89 * DAY);
+        aggregate.add(1, TODAY - 90 * DAY);
+
+        // When the trend is computed today
+        RatingTrend trend = aggregate.snapshot(TODAY);
+
+        // Then each window counts the reviews of its last days, today included
+        assertTrend(trend, Window.LAST_7_DAYS, 2, 5 + 3);
+        assertTrend(trend, Window.LAST_30_DAYS, 4, 5 + 3 + 4 + 2);
+        assertTrend(trend, Window.LAST_90_DAYS, 6, 5 + 3 + 4 + 2 + 1 + 5);
+    }
+
+    @Test
+    public void snapshot_shouldRollOverAtMidnight() {
+        // Given a review written just before midnight, and another one just after
+        long midnight = DailyRatings.toEpochDay(TODAY) * DAY + DAY;
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(2, midnight - 1);
+        aggregate.add(4, midnight);
+
+        // Then the first one leaves the last 7 days one day before the second one
+        assertTrend(aggregate.snapshot(midnight - 1), Window.LAST_7_DAYS, 1, 2);
+        assertTrend(aggregate.snapshot(midnight), Window.LAST_7_DAYS, 2, 6);
+        assertTrend(aggregate.snapshot(midnight + 6 * DAY - 1), Window.LAST_7_DAYS, 2, 6);
+        assertTrend(aggregate.snapshot(midnight + 6 * DAY), Window.LAST_7_DAYS, 1, 4);
+        assertTrend(aggregate.snapshot(midnight + 7 * DAY - 1), Window.LAST_7_DAYS, 1, 4);
+        assertTrend(aggregate.snapshot(midnight + 7 * DAY), Window.LAST_7_DAYS, 0, 0);
+        assertTrend(aggregate.snapshot(midnight + 7 * DAY), Window.LAST_30_DAYS, 2, 6);
+    }
+
+    @Test
+    public void add_dayByDay_shouldKeepEveryDayOfTheRing() {
+        // Given one review per day for twice the length of the ring, rated 1 to 5 in turn
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        long first = TODAY - (2 * RatingTrendAggregate.DAYS - 1) * DAY;
+        for (int day = 0; day < 2 * RatingTrendAggregate.DAYS; day++) {
+            aggregate.add(1 + day % 5, first + day * DAY);
+        }
+
+        // Then only the reviews of the last days of each window are counted
+        RatingTrend trend = aggregate.snapshot(TODAY);
+        for (Window window : Window.values()) {
+            long sum = 0;
+            for (int day = 2 * RatingTrendAggregate.DAYS - window.getDays(); day < 2 * RatingTrendAggregate.DAYS; day++) {
+                sum += 1 + day % 5;
+            }
+            assertTrend(trend, window, window.getDays(), sum);
+        }
+    }
+
+    @Test
+    public void add_afterGapLongerThanRing_shouldResetStaleBucket() {
+        // Given reviews written long ago, in the bucket that a review written today reuses
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        long longAgo = TODAY - 3 * RatingTrendAggregate.DAYS * DAY;
+        aggregate.add(5, longAgo);
+        aggregate.add(5, longAgo);
+        aggregate.add(5, longAgo - DAY);
+
+        // When a review is written today, after a gap longer than the ring
+        aggregate.add(1, TODAY);
+
+        // Then the stale bucket was reset instead of adding to the old reviews
+        RatingTrend trend = aggregate.snapshot(TODAY);
+        for (Window window : Window.values()) {
+            assertTrend(trend, window, 1, 1);
+        }
+    }
+
+    @Test
+    public void snapshot_afterGapLongerThanRing_shouldBeEmpty() {
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(4, TODAY);
+
+        RatingTrend trend = aggregate.snapshot(TODAY + RatingTrendAggregate.DAYS * DAY);
+
+        for (Window window : Window.values()) {
+            assertTrend(trend, window, 0, 0);
+        }
+    }
+
+    @Test
+    public void add_olderThanRing_shouldBeIgnored() {
+        // Given a review written today
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(3, TODAY);
+
+        // When a review older than the ring, in the same bucket, is added later
+        aggregate.add(5, TODAY - RatingTrendAggregate.DAYS * DAY);
+
+        // Then it neither resets nor adds to the bucket of today
+        assertTrend(aggregate.snapshot(TODAY), Window.LAST_90_DAYS, 1, 3);
+    }
+
+    @Test
+    public void add_inTheFuture_shouldBeCountedOnceReached() {
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(4, TODAY + DAY);
+
+        assertTrend(aggregate.snapshot(TODAY), Window.LAST_7_DAYS, 0, 0);
+        assertTrend(aggregate.snapshot(TODAY + DAY), Window.LAST_7_DAYS, 1, 4);
+    }
+
+    @Test
+    public void add_outOfRangeRating_shouldBeClamped() {
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(0, TODAY);
+        aggregate.add(9, TODAY);
+
+        assertTrend(aggregate.snapshot(TODAY), Window.LAST_7_DAYS, 2, 1 + 5);
+    }
+
+    @Test
+    public void remove_shouldOnlyForgetReviewsOfTheRing() {
+        // Given reviews written today and three days ago
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(5, TODAY);
+        aggregate.add(2, TODAY - 3 * DAY);
+
+        // When one of them, and reviews never added or older than the ring, are removed
+        aggregate.remove(5, TODAY);
+        aggregate.remove(5, TODAY);
+        aggregate.remove(2, TODAY - 3 * DAY - RatingTrendAggregate.DAYS * DAY);
+
+        // Then only the review of the ring was forgotten
+        assertTrend(aggregate.snapshot(TODAY), Window.LAST_7_DAYS, 1, 2);
+    }
+
+    @Test
+    public void reset_shouldReplaceEveryBucket() {
+        RatingTrendAggregate aggregate = new RatingTrendAggregate();
+        aggregate.add(1, TODAY - DAY);
+
+        long today = DailyRatings.toEpochDay(TODAY);
+        aggregate.reset(Arrays.asList(new DailyRatings(today, 3, 12), new DailyRatings(today - 10, 2, 6)));
+
+        RatingTrend trend = aggregate.snapshot(TODAY);
+        assertTrend(trend, Window.LAST_7_DAYS, 3, 12);
+        assertTrend(trend, Window.LAST_30_DAYS, 5, 18);
+    }
+
+    private static void assertTrend(RatingTrend trend, Window window, long count, long sum) {
+        assertEquals(window + " count", count, trend.getCount(window));
+        assertEquals(window + " average", count == 0 ? 0.0F : (float) sum / count, trend.getAverage(window), 0.0001F);
+    }
+}
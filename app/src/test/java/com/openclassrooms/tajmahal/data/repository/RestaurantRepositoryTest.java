@@ -0,0 +1,181 @@
+package com.openclassrooms.tajmahal.data.repository;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+
+import com.openclassrooms.tajmahal.data.service.AsyncRestaurantApi;
+import com.openclassrooms.tajmahal.data.service.RestaurantFakeApi;
+import com.openclassrooms.tajmahal.domain.model.LoadState;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.openclassrooms.tajmahal.util.AppExecutors;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RestaurantRepositoryTest {
+
+    private static final String PARIS = RestaurantFakeApi.TAJ_MAHAL_PARIS_ID;
+    private static final String LYON = RestaurantFakeApi.TAJ_MAHAL_LYON_ID;
+    private static final long TTL_MILLIS = 60_000L;
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private CountingRestaurantApi api;
+    private final List<Runnable> backgroundTasks = new ArrayList<>();
+    private long nowMillis;
+    private RestaurantRepository repository;
+
+    @Before
+    public void setUp() {
+        api = new CountingRestaurantApi();
+        nowMillis = 1_000L;
+        // API calls wait for runBackgroundTasks, so that what is served before them can be checked
+        AppExecutors executors = new AppExecutors(Runnable::run, backgroundTasks::add, Runnable::run);
+        repository = new RestaurantRepository(new AsyncRestaurantApi(api, executors), TTL_MILLIS,
+                new MetricsRegistry(), () -> nowMillis);
+    }
+
+    @Test
+    public void getRestaurant_cachedAndFresh_shouldBeServedWithoutCall() {
+        // Given a restaurant fetched once
+        Restaurant fetched = fetch(PARIS);
+
+        // When it is requested again before the time to live has elapsed
+        nowMillis += TTL_MILLIS - 1;
+        LiveData<Restaurant> restaurant = repository.getRestaurant(PARIS);
+
+        // Then the cached copy is served immediately, without calling the API
+        assertSame(fetched, restaurant.getValue());
+        assertEquals(0, backgroundTasks.size());
+        assertEquals(1, api.calls);
+        assertEquals(1, repository.getCacheHitCount());
+    }
+
+    @Test
+    public void getRestaurant_cachedAndStale_shouldServeCopyThenRevalidate() {
+        // Given a restaurant fetched once, then changed on the server
+        Restaurant fetched = fetch(PARIS);
+        api.nameSuffix = " (renamed)";
+
+        // When it is requested once the time to live has elapsed
+        nowMillis += TTL_MILLIS;
+        LiveData<Restaurant> restaurant = repository.getRestaurant(PARIS);
+        List<Restaurant> emitted = observe(restaurant);
+
+        // Then the stale copy is served immediately
+        assertEquals(1, emitted.size());
+        assertSame(fetched, emitted.get(0));
+
+        // And replaced with the refreshed one once it is fetched again
+        runBackgroundTasks();
+        assertEquals(2, api.calls);
+        assertEquals(2, emitted.size());
+        assertEquals(fetched.getName() + " (renamed)", emitted.get(1).getName());
+
+        // And the refreshed copy is fresh again
+        repository.getRestaurant(PARIS);
+        assertEquals(0, backgroundTasks.size());
+    }
+
+    @Test
+    public void getRestaurant_staleButUnchanged_shouldNotEmitAgain() {
+        // Given a stale restaurant whose copy on the server did not change
+        Restaurant fetched = fetch(PARIS);
+        nowMillis += TTL_MILLIS;
+
+        // When it is requested and revalidated
+        LiveData<Restaurant> restaurant = repository.getRestaurant(PARIS);
+        List<Restaurant> emitted = observe(restaurant);
+        runBackgroundTasks();
+
+        // Then the API was called, but the LiveData still holds the copy it was created with
+        assertEquals(2, api.calls);
+        assertSame(fetched, restaurant.getValue());
+        assertEquals(1, emitted.size());
+    }
+
+    @Test
+    public void getRestaurant_failedRevalidation_shouldKeepStaleCopyWithoutError() {
+        Restaurant fetched = fetch(PARIS);
+        nowMillis += TTL_MILLIS;
+        api.failure = new RuntimeException("offline");
+
+        LiveData<Restaurant> restaurant = repository.getRestaurant(PARIS);
+        runBackgroundTasks();
+
+        assertSame(fetched, restaurant.getValue());
+        assertEquals(LoadState.Status.SUCCESS, repository.getLoadState(PARIS).getValue().getStatus());
+    }
+
+    @Test
+    public void getLoadState_shouldBeKeptPerRestaurant() {
+        // Given a restaurant that failed to load
+        api.failure = new RuntimeException("offline");
+        repository.getRestaurant(PARIS);
+        runBackgroundTasks();
+
+        // When another restaurant starts loading, then loads
+        api.failure = null;
+        repository.getRestaurant(LYON);
+        assertEquals(LoadState.Status.ERROR, repository.getLoadState(PARIS).getValue().getStatus());
+        assertEquals(LoadState.Status.LOADING, repository.getLoadState(LYON).getValue().getStatus());
+        runBackgroundTasks();
+
+        // Then each restaurant keeps the state of its own request
+        assertEquals(LoadState.Status.ERROR, repository.getLoadState(PARIS).getValue().getStatus());
+        assertEquals(LoadState.Status.SUCCESS, repository.getLoadState(LYON).getValue().getStatus());
+        assertNull(repository.getLoadState("unknown restaurant").getValue());
+    }
+
+    private Restaurant fetch(String restaurantId) {
+        LiveData<Restaurant> restaurant = repository.getRestaurant(restaurantId);
+        runBackgroundTasks();
+        return restaurant.getValue();
+    }
+
+    private void runBackgroundTasks() {
+        List<Runnable> tasks = new ArrayList<>(backgroundTasks);
+        backgroundTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+    }
+
+    private static <T> List<T> observe(LiveData<T> liveData) {
+        List<T> values = new ArrayList<>();
+        liveData.observeForever(values::add);
+        return values;
+    }
+
+    /**
+     * Counts the restaurant calls, and returns a new copy of the restaurant on each of them,
+     * optionally renamed, or fails them.
+     */
+    private static class CountingRestaurantApi extends RestaurantFakeApi {
+        int calls;
+        String nameSuffix = "";
+        RuntimeException failure;
+
+        @Override
+        public Restaurant getRestaurant(String restaurantId) {
+            calls++;
+            if (failure != null) {
+                throw failure;
+            }
+            Restaurant restaurant = super.getRestaurant(restaurantId);
+            return new Restaurant(restaurant.getId(), restaurant.getName() + nameSuffix, restaurant.getType(),
+                    restaurant.getHours(), restaurant.getAddress(), restaurant.getWebsite(), restaurant.getPhoneNumber(),
+                    restaurant.isDineIn(), restaurant.isTakeAway());
+        }
+    }
+}
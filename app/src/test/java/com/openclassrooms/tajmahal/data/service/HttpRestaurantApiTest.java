@@ -0,0 +1,179 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+import com.openclassrooms.tajmahal.domain.model.ReviewPage;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HttpRestaurantApiTest {
+
+    private static final String PARIS = RestaurantFakeApi.TAJ_MAHAL_PARIS_ID;
+
+    private RestaurantFakeApi serverApi;
+    private LocalRestaurantServer server;
+    private MetricsRegistry metrics;
+    private HttpRestaurantApi api;
+
+    @Before
+    public void setUp() throws Exception {
+        serverApi = new RestaurantFakeApi();
+        server = new LocalRestaurantServer(serverApi);
+        metrics = new MetricsRegistry();
+        api = new HttpRestaurantApi(server.getBaseUrl(), metrics);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void getRestaurant_shouldReturnServedRestaurant() {
+        assertEquals(serverApi.getRestaurant(PARIS), api.getRestaurant(PARIS));
+        assertEquals(serverApi.getRestaurant(RestaurantFakeApi.TAJ_MAHAL_LYON_ID), api.getRestaurant(RestaurantFakeApi.TAJ_MAHAL_LYON_ID));
+    }
+
+    @Test
+    public void getRestaurant_unknownId_shouldReturnNull() {
+        assertNull(api.getRestaurant("unknown restaurant"));
+    }
+
+    @Test
+    public void getReviews_unchanged_shouldBeAnsweredNotModified() {
+        // Given reviews already downloaded once
+        List<Review> first = api.getReviews(PARIS);
+
+        // When they are requested again without any change on the server
+        List<Review> second = api.getReviews(PARIS);
+
+        // Then the server answers 304 and the same reviews are returned
+        assertEquals(serverApi.getReviews(PARIS), second);
+        assertEquals(first, second);
+        assertEquals(1, server.getNotModifiedCount());
+        assertEquals(1, metrics.counter(HttpRestaurantApi.METRIC_NOT_MODIFIED).getCount());
+    }
+
+    @Test
+    public void getReviews_changed_shouldDownloadNewReviews() {
+        // Given reviews already downloaded once
+        api.getReviews(PARIS);
+
+        // When reviews are written on the server in the meantime
+        serverApi.simulateChanges(PARIS, 3, 0, 0);
+        List<Review> reviews = api.getReviews(PARIS);
+
+        // Then the new list is downloaded
+        assertEquals(serverApi.getReviews(PARIS), reviews);
+        assertEquals(0, server.getNotModifiedCount());
+    }
+
+    @Test
+    public void requests_shouldBeCompressedAndShareOneConnection() {
+        // When several resources are requested one after the other
+        api.getRestaurant(PARIS);
+        api.getReviews(PARIS);
+        api.getReviews(PARIS, null, 2);
+        api.getReviewsSince(PARIS, null, 0);
+
+        // Then every body is compressed, and the first connection is reused for the following requests
+        assertEquals(4, server.getRequestCount());
+        assertEquals(4, server.getGzippedCount());
+        assertEquals(1, server.getConnectionCount());
+    }
+
+    @Test
+    public void getReviews_withCursor_shouldPageThroughEveryReview() {
+        List<Review> reviews = new ArrayList<>();
+        ReviewPage page = api.getReviews(PARIS, null, 2);
+        assertNull(page.getCursor());
+        reviews.addAll(page.getReviews());
+        while (page.hasNext()) {
+            String cursor = page.getNextCursor();
+            page = api.getReviews(PARIS, cursor, 2);
+            assertEquals(cursor, page.getCursor());
+            reviews.addAll(page.getReviews());
+        }
+
+        assertEquals(serverApi.getReviews(PARIS), reviews);
+    }
+
+    @Test
+    public void getReviewsSince_shouldReturnEveryChangeThenNotModified() {
+        // Given reviews written on the server after the client got its token
+        String syncToken = api.getReviewsSince(PARIS, null, 0).getSyncToken();
+        serverApi.simulateChanges(PARIS, 250, 0, 0);
+
+        // When the changes are requested by batches of 100
+        List<String> insertedIds = new ArrayList<>();
+        ReviewDelta delta;
+        int calls = 0;
+        do {
+            delta = api.getReviewsSince(PARIS, syncToken, 100);
+            for (Review review : delta.getInserted()) {
+                insertedIds.add(review.getId());
+            }
+            syncToken = delta.getSyncToken();
+            calls++;
+        } while (delta.hasMore());
+
+        // Then every new review is returned once, oldest first
+        List<String> expectedIds = new ArrayList<>();
+        for (Review review : serverApi.getReviews(PARIS).subList(0, 250)) {
+            expectedIds.add(review.getId());
+        }
+        Collections.reverse(expectedIds);
+        assertEquals(expectedIds, insertedIds);
+        assertEquals(3, calls);
+
+        // And syncs finding nothing new cost a 304 once the empty delta is known
+        assertTrue(api.getReviewsSince(PARIS, syncToken, 100).isEmpty());
+        assertTrue(api.getReviewsSince(PARIS, syncToken, 100).isEmpty());
+        assertEquals(1, server.getNotModifiedCount());
+    }
+
+    @Test
+    public void submitReviews_shouldAddReviewsOnServer() {
+        List<Review> reviews = Arrays.asList(
+                new Review("John Doe", "https://example.com/john.jpg", "Great place!", 5, 1_000L),
+                new Review("Jane Roe", "https://example.com/jane.jpg", "Un peu bruyant, mais très bon.", 4, 2_000L));
+
+        api.submitReviews(PARIS, reviews);
+
+        List<Review> serverReviews = serverApi.getReviews(PARIS);
+        assertEquals("Jane Roe", serverReviews.get(0).getUsername());
+        assertEquals("Un peu bruyant, mais très bon.", serverReviews.get(0).getComment());
+        assertEquals(2_000L, serverReviews.get(0).getCreatedAt());
+        assertEquals("John Doe", serverReviews.get(1).getUsername());
+        assertEquals(5, serverReviews.get(1).getRate());
+    }
+
+    @Test
+    public void serverError_shouldThrowThenRecover() {
+        server.failWith(500);
+        try {
+            api.getReviews(PARIS);
+            fail("A 500 answer should fail the request");
+        } catch (UncheckedIOException expected) {
+            assertEquals(1, metrics.counter(HttpRestaurantApi.METRIC_ERRORS).getCount());
+        }
+
+        server.failWith(0);
+        assertFalse(api.getReviews(PARIS).isEmpty());
+    }
+}
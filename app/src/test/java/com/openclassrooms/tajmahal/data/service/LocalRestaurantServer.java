@@ -0,0 +1,200 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.openclassrooms.tajmahal.domain.model.Restaurant;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An in-process stand-in for the restaurant server, listening on the loopback interface, so that
+ * {@link HttpRestaurantApi} can be tested without any outside network.
+ * <p>
+ * It serves the resources described in {@link HttpRestaurantApi} from a {@link RestaurantFakeApi},
+ * tags every response with an ETag derived from its body, answers {@code 304 Not Modified} when
+ * the request carries the same one, and compresses bodies for clients accepting gzip. It counts
+ * the requests, the 304 answers, the compressed bodies and the connections it served.
+ * </p>
+ */
+class LocalRestaurantServer implements Closeable {
+
+    private final RestaurantFakeApi api;
+    private final HttpServer server;
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger notModifiedCount = new AtomicInteger();
+    private final AtomicInteger gzippedCount = new AtomicInteger();
+
+    // Remote address of each connection served: a reused connection keeps its address
+    private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+    // Status every request is answered with instead of its resource, or 0 to serve resources
+    private volatile int failureStatus;
+
+    /**
+     * Starts a server on a free port of the loopback interface.
+     *
+     * @param api the fake API the served resources are read from and the submitted reviews written to
+     */
+    LocalRestaurantServer(RestaurantFakeApi api) throws IOException {
+        this.api = api;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/restaurants/", this::handle);
+        server.start();
+    }
+
+    /** Returns the root URL to build an {@link HttpRestaurantApi} with. */
+    String getBaseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    int getRequestCount() {
+        return requestCount.get();
+    }
+
+    int getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    int getGzippedCount() {
+        return gzippedCount.get();
+    }
+
+    int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Answers every following request with a status, or serves resources again.
+     *
+     * @param status the status to answer with, or 0 to serve resources
+     */
+    void failWith(int status) {
+        failureStatus = status;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            requestCount.incrementAndGet();
+            connections.add(exchange.getRemoteAddress());
+            if (failureStatus != 0) {
+                exchange.sendResponseHeaders(failureStatus, -1);
+                return;
+            }
+
+            // /restaurants/{id}[/reviews[/changes]]
+            String[] segments = exchange.getRequestURI().getRawPath().substring("/restaurants/".length()).split("/");
+            String restaurantId = decode(segments[0]);
+            Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            String method = exchange.getRequestMethod();
+
+            if (segments.length == 1 && method.equals("GET")) {
+                Restaurant restaurant = api.getRestaurant(restaurantId);
+                if (restaurant == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    respond(exchange, writer -> RestaurantJson.writeRestaurant(writer, restaurant));
+                }
+            } else if (segments.length == 2 && segments[1].equals("reviews") && method.equals("GET")) {
+                if (parameters.containsKey("limit")) {
+                    int limit = Integer.parseInt(parameters.get("limit"));
+                    respond(exchange, writer -> RestaurantJson.writeReviewPage(writer,
+                            api.getReviews(restaurantId, parameters.get("cursor"), limit)));
+                } else {
+                    respond(exchange, writer -> RestaurantJson.writeReviews(writer, api.getReviews(restaurantId)));
+                }
+            } else if (segments.length == 2 && segments[1].equals("reviews") && method.equals("POST")) {
+                try (JsonReader reader = new JsonReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                    api.submitReviews(restaurantId, RestaurantJson.readReviews(reader));
+                }
+                exchange.sendResponseHeaders(204, -1);
+            } else if (segments.length == 3 && segments[1].equals("reviews") && segments[2].equals("changes")) {
+                int limit = Integer.parseInt(parameters.get("limit"));
+                respond(exchange, writer -> RestaurantJson.writeReviewDelta(writer,
+                        api.getReviewsSince(restaurantId, parameters.get("since"), limit)));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, DocumentWriter documentWriter) throws IOException {
+        ByteArrayOutputStream document = new ByteArrayOutputStream();
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(document, StandardCharsets.UTF_8))) {
+            documentWriter.write(writer);
+        }
+        byte[] body = document.toByteArray();
+
+        String etag = "\"" + Integer.toHexString(Arrays.hashCode(body)) + "-" + body.length + "\"";
+        exchange.getResponseHeaders().set("ETag", etag);
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedCount.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            body = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            gzippedCount.incrementAndGet();
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                int separator = parameter.indexOf('=');
+                parameters.put(decode(parameter.substring(0, separator)), decode(parameter.substring(separator + 1)));
+            }
+        }
+        return parameters;
+    }
+
+    private static String decode(String value) throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, "UTF-8");
+    }
+
+    /**
+     * Writes the JSON document of a response.
+     */
+    private interface DocumentWriter {
+        void write(JsonWriter writer) throws IOException;
+    }
+}
@@ -0,0 +1,148 @@
+package com.openclassrooms.tajmahal.data.service;
+
+import com.openclassrooms.tajmahal.domain.model.Review;
+import com.openclassrooms.tajmahal.domain.model.ReviewDelta;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests how {@link RestaurantFakeApi#getReviewsSince(String, String, int)} folds the change log of
+ * a restaurant into deltas.
+ */
+public class RestaurantFakeApiTest {
+
+    private static final String PARIS = RestaurantFakeApi.TAJ_MAHAL_PARIS_ID;
+    // A restaurant without hard-coded reviews, so that simulated updates and deletions pick the reviews of the test
+    private static final String EMPTY_RESTAURANT = "empty-restaurant";
+
+    private RestaurantFakeApi api;
+
+    @Before
+    public void setUp() {
+        api = new RestaurantFakeApi();
+    }
+
+    @Test
+    public void getReviewsSince_noToken_shouldOnlyReturnCurrentToken() {
+        api.simulateChanges(EMPTY_RESTAURANT, 3, 0, 0);
+
+        ReviewDelta delta = api.getReviewsSince(EMPTY_RESTAURANT, null, 10);
+
+        assertTrue(delta.isEmpty());
+        assertFalse(delta.hasMore());
+        assertTrue(api.getReviewsSince(EMPTY_RESTAURANT, delta.getSyncToken(), 10).isEmpty());
+    }
+
+    @Test
+    public void getReviewsSince_insertedThenDeleted_shouldNotBeReturned() {
+        // Given a review written then deleted since the last sync
+        String token = currentToken(EMPTY_RESTAURANT);
+        api.simulateChanges(EMPTY_RESTAURANT, 1, 0, 1);
+        assertTrue(api.getReviews(EMPTY_RESTAURANT).isEmpty());
+
+        // When the changes are fetched
+        ReviewDelta delta = api.getReviewsSince(EMPTY_RESTAURANT, token, 10);
+
+        // Then the review is neither inserted nor deleted, and the next sync starts after both changes
+        assertTrue(delta.isEmpty());
+        assertFalse(delta.hasMore());
+        assertEquals(currentToken(EMPTY_RESTAURANT), delta.getSyncToken());
+    }
+
+    @Test
+    public void getReviewsSince_insertedThenUpdated_shouldBeInsertedInLatestState() {
+        String token = currentToken(EMPTY_RESTAURANT);
+        api.simulateChanges(EMPTY_RESTAURANT, 1, 1, 0);
+
+        ReviewDelta delta = api.getReviewsSince(EMPTY_RESTAURANT, token, 10);
+
+        assertEquals(api.getReviews(EMPTY_RESTAURANT), delta.getInserted());
+        assertTrue(delta.getUpdated().isEmpty());
+        assertTrue(delta.getDeletedIds().isEmpty());
+    }
+
+    @Test
+    public void getReviewsSince_updatedThenDeleted_shouldOnlyBeDeleted() {
+        // Given a review seen by the last sync, then edited and deleted
+        api.simulateChanges(EMPTY_RESTAURANT, 1, 0, 0);
+        String reviewId = api.getReviews(EMPTY_RESTAURANT).get(0).getId();
+        String token = currentToken(EMPTY_RESTAURANT);
+        api.simulateChanges(EMPTY_RESTAURANT, 0, 1, 1);
+
+        ReviewDelta delta = api.getReviewsSince(EMPTY_RESTAURANT, token, 10);
+
+        assertTrue(delta.getInserted().isEmpty());
+        assertTrue(delta.getUpdated().isEmpty());
+        assertEquals(Collections.singletonList(reviewId), delta.getDeletedIds());
+    }
+
+    @Test
+    public void getReviewsSince_moreThanLimit_shouldBePagedInOrder() {
+        // Given five reviews submitted since the last sync
+        String token = currentToken(PARIS);
+        api.submitReviews(PARIS, reviews("A", "B", "C", "D", "E"));
+
+        // When the changes are fetched two reviews at a time
+        List<List<String>> batches = new ArrayList<>();
+        ReviewDelta delta;
+        do {
+            delta = api.getReviewsSince(PARIS, token, 2);
+            batches.add(usernames(delta.getInserted()));
+            token = delta.getSyncToken();
+        } while (delta.hasMore());
+
+        // Then they are returned once each, in the order they were submitted, and the last batch has no more
+        assertEquals(Arrays.asList(Arrays.asList("A", "B"), Arrays.asList("C", "D"), Collections.singletonList("E")), batches);
+        assertEquals(currentToken(PARIS), token);
+        assertTrue(api.getReviewsSince(PARIS, token, 2).isEmpty());
+    }
+
+    @Test
+    public void getReviewsSince_limit_shouldCountReviewsRatherThanChanges() {
+        // Given a review written and edited, then two more reviews
+        String token = currentToken(EMPTY_RESTAURANT);
+        api.simulateChanges(EMPTY_RESTAURANT, 1, 1, 0);
+        Review edited = api.getReviews(EMPTY_RESTAURANT).get(0);
+        api.submitReviews(EMPTY_RESTAURANT, reviews("B", "C"));
+
+        // When a single review is requested
+        ReviewDelta first = api.getReviewsSince(EMPTY_RESTAURANT, token, 1);
+
+        // Then both changes of the first review are folded into it, and the next batch starts with the second review
+        assertEquals(Collections.singletonList(edited), first.getInserted());
+        assertTrue(first.hasMore());
+        ReviewDelta second = api.getReviewsSince(EMPTY_RESTAURANT, first.getSyncToken(), 10);
+        assertEquals(Arrays.asList("B", "C"), usernames(second.getInserted()));
+        assertFalse(second.hasMore());
+    }
+
+    private String currentToken(String restaurantId) {
+        return api.getReviewsSince(restaurantId, null, 0).getSyncToken();
+    }
+
+    private static List<Review> reviews(String... usernames) {
+        List<Review> reviews = new ArrayList<>();
+        for (String username : usernames) {
+            reviews.add(new Review(username, "https://example.com/" + username + ".jpg", "Comment of " + username, 4));
+        }
+        return reviews;
+    }
+
+    private static List<String> usernames(List<Review> reviews) {
+        List<String> usernames = new ArrayList<>();
+        for (Review review : reviews) {
+            usernames.add(review.getUsername());
+        }
+        return usernames;
+    }
+}
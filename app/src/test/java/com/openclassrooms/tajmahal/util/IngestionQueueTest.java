@@ -0,0 +1,164 @@
+package com.openclassrooms.tajmahal.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IngestionQueueTest {
+
+    // Long enough for every offer of a test to fall within one interval after the first drain
+    private static final long INTERVAL_MILLIS = 60_000;
+
+    // Tasks posted to the main thread, run when the test decides to
+    private final List<Runnable> mainThreadTasks = new ArrayList<>();
+    // Tasks posted to the main thread after a delay, with their delays, run when the test decides to
+    private final List<Runnable> delayedTasks = new ArrayList<>();
+    private final List<Long> delays = new ArrayList<>();
+
+    private final List<List<String>> batches = new ArrayList<>();
+    private IngestionQueue<String> queue;
+
+    @Before
+    public void setUp() {
+        AppExecutors executors = new AppExecutors(Runnable::run, Runnable::run, mainThreadTasks::add,
+                (task, delayMillis) -> {
+                    delayedTasks.add(task);
+                    delays.add(delayMillis);
+                });
+        queue = new IngestionQueue<>(executors, INTERVAL_MILLIS, batches::add);
+    }
+
+    @Test
+    public void offer_first_shouldDrainWithoutDelay() {
+        queue.offer("a");
+
+        assertEquals(1, mainThreadTasks.size());
+        assertTrue(delayedTasks.isEmpty());
+        runTasks(mainThreadTasks);
+        assertEquals(Collections.singletonList(Collections.singletonList("a")), batches);
+    }
+
+    @Test
+    public void offer_withinOneInterval_shouldDrainOneBatchInOrder() {
+        // Given a first item, drained right away
+        queue.offer("a");
+        runTasks(mainThreadTasks);
+
+        // When more items are offered before the interval has elapsed
+        queue.offer("b");
+        queue.offer("c");
+        queue.offer("d");
+
+        // Then a single drain is scheduled once the interval has elapsed
+        assertTrue(mainThreadTasks.isEmpty());
+        assertEquals(1, delayedTasks.size());
+        assertTrue(delays.get(0) > 0 && delays.get(0) <= INTERVAL_MILLIS + 1);
+        assertEquals(1, batches.size());
+
+        // And it hands over every item in one batch, in the order they were offered
+        runTasks(delayedTasks);
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Arrays.asList("b", "c", "d")), batches);
+    }
+
+    @Test
+    public void offer_afterDelayedDrain_shouldBeDelayedAgain() {
+        queue.offer("a");
+        runTasks(mainThreadTasks);
+        queue.offer("b");
+        runTasks(delayedTasks);
+
+        queue.offer("c");
+
+        assertTrue(mainThreadTasks.isEmpty());
+        assertEquals(1, delayedTasks.size());
+        runTasks(delayedTasks);
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b"),
+                Collections.singletonList("c")), batches);
+    }
+
+    @Test
+    public void offer_fromConsumer_shouldScheduleNextDrainAfterInterval() {
+        // Given a consumer offering an item while it handles the first batch
+        AppExecutors executors = new AppExecutors(Runnable::run, Runnable::run, mainThreadTasks::add,
+                (task, delayMillis) -> delayedTasks.add(task));
+        AtomicReference<IngestionQueue<String>> reentrant = new AtomicReference<>();
+        reentrant.set(new IngestionQueue<>(executors, INTERVAL_MILLIS, batch -> {
+            batches.add(batch);
+            if (batches.size() == 1) {
+                reentrant.get().offer("b");
+            }
+        }));
+
+        // When the first item is drained
+        reentrant.get().offer("a");
+        runTasks(mainThreadTasks);
+
+        // Then the item offered during the drain waits for the interval in a batch of its own
+        assertTrue(mainThreadTasks.isEmpty());
+        assertEquals(1, delayedTasks.size());
+        runTasks(delayedTasks);
+        assertEquals(Arrays.asList(Collections.singletonList("a"), Collections.singletonList("b")), batches);
+    }
+
+    @Test
+    public void offer_fromConcurrentThreads_shouldKeepOrderOfEachThread() throws Exception {
+        // Given a first item, drained right away
+        queue.offer("start");
+        runTasks(mainThreadTasks);
+
+        // When several threads offer items at the same time, within one interval
+        int threadCount = 4;
+        int itemsPerThread = 500;
+        ExecutorService producers = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int thread = 0; thread < threadCount; thread++) {
+            String prefix = thread + ":";
+            producers.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < itemsPerThread; i++) {
+                    queue.offer(prefix + i);
+                }
+            });
+        }
+        start.countDown();
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Then one drain hands over every item, in the order each thread offered them
+        assertEquals(1, delayedTasks.size());
+        runTasks(delayedTasks);
+        assertEquals(2, batches.size());
+        List<String> batch = batches.get(1);
+        assertEquals(threadCount * itemsPerThread, batch.size());
+        int[] next = new int[threadCount];
+        for (String item : batch) {
+            int thread = Integer.parseInt(item.substring(0, item.indexOf(':')));
+            assertEquals(next[thread]++, Integer.parseInt(item.substring(item.indexOf(':') + 1)));
+        }
+    }
+
+    private static void runTasks(List<Runnable> tasks) {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        for (Runnable task : pending) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.openclassrooms.tajmahal.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentListTest {
+
+    @Test
+    public void appendAndPrepend_shouldKeepOrder() {
+        PersistentList<Integer> list = PersistentList.<Integer>empty()
+                .append(2)
+                .append(3)
+                .prepend(1)
+                .appendAll(Arrays.asList(4, 5))
+                .prependAll(Arrays.asList(-1, 0));
+
+        assertEquals(Arrays.asList(-1, 0, 1, 2, 3, 4, 5), list);
+        assertEquals(7, list.size());
+    }
+
+    @Test
+    public void append_afterFork_shouldLeaveOtherVersionsUnchanged() {
+        // Given a list and a version appended to it, sharing its array
+        PersistentList<String> base = PersistentList.copyOf(Arrays.asList("a", "b"));
+        PersistentList<String> first = base.append("c");
+
+        // When the base list is appended to again, the slot after it being already taken
+        PersistentList<String> second = base.append("x");
+
+        // Then every version keeps its own elements
+        assertEquals(Arrays.asList("a", "b"), base);
+        assertEquals(Arrays.asList("a", "b", "c"), first);
+        assertEquals(Arrays.asList("a", "b", "x"), second);
+    }
+
+    @Test
+    public void prepend_afterFork_shouldLeaveOtherVersionsUnchanged() {
+        PersistentList<String> base = PersistentList.copyOf(Arrays.asList("a", "b"));
+        PersistentList<String> first = base.prepend("z");
+
+        PersistentList<String> second = base.prepend("y");
+
+        assertEquals(Arrays.asList("a", "b"), base);
+        assertEquals(Arrays.asList("z", "a", "b"), first);
+        assertEquals(Arrays.asList("y", "a", "b"), second);
+    }
+
+    @Test
+    public void append_afterDropLast_shouldNotOverwriteDroppedSlot() {
+        // Given a version ending before the last written slot
+        PersistentList<String> full = PersistentList.copyOf(Arrays.asList("a", "b", "c"));
+        PersistentList<String> dropped = full.dropLast(1);
+
+        // When it is appended to
+        PersistentList<String> replaced = dropped.append("x");
+
+        // Then the version still holding the dropped element is unchanged
+        assertEquals(Arrays.asList("a", "b", "c"), full);
+        assertEquals(Arrays.asList("a", "b"), dropped);
+        assertEquals(Arrays.asList("a", "b", "x"), replaced);
+    }
+
+    @Test
+    public void prepend_afterDropFirst_shouldNotOverwriteDroppedSlot() {
+        PersistentList<String> full = PersistentList.copyOf(Arrays.asList("a", "b", "c"));
+        PersistentList<String> dropped = full.dropFirst(1);
+
+        PersistentList<String> replaced = dropped.prepend("x");
+
+        assertEquals(Arrays.asList("a", "b", "c"), full);
+        assertEquals(Arrays.asList("b", "c"), dropped);
+        assertEquals(Arrays.asList("x", "b", "c"), replaced);
+    }
+
+    @Test
+    public void growth_shouldKeepEveryVersionReadable() {
+        // Given versions kept while the list grows past several reallocations on both sides
+        List<PersistentList<Integer>> versions = new ArrayList<>();
+        PersistentList<Integer> list = PersistentList.empty();
+        for (int i = 0; i < 1_000; i++) {
+            list = (i % 2 == 0) ? list.append(i) : list.prepend(-i);
+            versions.add(list);
+        }
+
+        // Then each version holds the elements added up to it
+        for (int i = 0; i < versions.size(); i++) {
+            PersistentList<Integer> version = versions.get(i);
+            assertEquals(i + 1, version.size());
+            assertEquals(i % 2 == 0 ? Integer.valueOf(i) : Integer.valueOf(-i),
+                    i % 2 == 0 ? version.get(version.size() - 1) : version.get(0));
+        }
+    }
+
+    @Test
+    public void dropFirstAndDropLast_shouldClampCount() {
+        PersistentList<Integer> list = PersistentList.copyOf(Arrays.asList(1, 2, 3, 4));
+
+        assertEquals(Arrays.asList(3, 4), list.dropFirst(2));
+        assertEquals(Arrays.asList(1, 2, 3), list.dropLast(1));
+        assertEquals(list, list.dropFirst(0));
+        assertEquals(list, list.dropLast(-3));
+        assertTrue(list.dropFirst(10).isEmpty());
+        assertTrue(list.dropLast(10).isEmpty());
+        assertEquals(Arrays.asList(1, 2, 3, 4), list);
+    }
+
+    @Test
+    public void drop_slidingWindow_shouldKeepElementsInOrder() {
+        // Given a window of 3 pages of 10 elements slid forward then back, as the review list does
+        PersistentList<Integer> window = PersistentList.empty();
+        for (int page = 0; page < 50; page++) {
+            window = window.appendAll(range(page * 10, 10));
+            if (window.size() > 30) {
+                window = window.dropFirst(10);
+            }
+        }
+        assertEquals(range(470, 30), window);
+
+        for (int page = 46; page >= 40; page--) {
+            window = window.prependAll(range(page * 10, 10)).dropLast(10);
+        }
+
+        // Then the window holds the last pages loaded, in order
+        assertEquals(range(400, 30), window);
+    }
+
+    @Test
+    public void dropFirst_emptied_shouldAcceptNewElements() {
+        PersistentList<String> list = PersistentList.copyOf(Arrays.asList("a", "b"));
+
+        PersistentList<String> emptied = list.dropFirst(2);
+
+        assertTrue(emptied.isEmpty());
+        assertEquals(Collections.singletonList("c"), emptied.append("c"));
+        assertEquals(Collections.singletonList("c"), emptied.prepend("c"));
+        assertEquals(Arrays.asList("a", "b"), list);
+    }
+
+    @Test
+    public void get_outOfBounds_shouldThrow() {
+        PersistentList<String> list = PersistentList.copyOf(Arrays.asList("a", "b", "c")).dropFirst(1);
+
+        assertEquals("b", list.get(0));
+        assertEquals("c", list.get(1));
+        for (int index : new int[]{-1, 2}) {
+            try {
+                list.get(index);
+                fail("Index " + index + " should be out of bounds");
+            } catch (IndexOutOfBoundsException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void iterator_shouldVisitOnlyTheView() {
+        PersistentList<String> list = PersistentList.copyOf(Arrays.asList("a", "b", "c", "d")).dropFirst(1).dropLast(1);
+
+        Iterator<String> iterator = list.iterator();
+
+        assertEquals("b", iterator.next());
+        assertEquals("c", iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void mutators_shouldBeUnsupported() {
+        PersistentList<String> list = PersistentList.copyOf(Collections.singletonList("a"));
+        try {
+            list.add("b");
+            fail("The list should be immutable");
+        } catch (UnsupportedOperationException expected) {
+            assertEquals(Collections.singletonList("a"), list);
+        }
+    }
+
+    private static List<Integer> range(int from, int count) {
+        List<Integer> range = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            range.add(i);
+        }
+        return range;
+    }
+}
@@ -0,0 +1,126 @@
+package com.openclassrooms.tajmahal.util;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.openclassrooms.tajmahal.util.metrics.MetricsRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StringPoolTest {
+
+    private MetricsRegistry metrics;
+    private StringPool pool;
+
+    @Before
+    public void setUp() {
+        metrics = new MetricsRegistry();
+        pool = new StringPool(metrics);
+    }
+
+    @Test
+    public void intern_equalValues_shouldReturnFirstInstance() {
+        // Given a value interned once
+        String first = copyOf("https://example.com/picture.jpg");
+        assertSame(first, pool.intern(first));
+
+        // When equal but distinct values are interned
+        String second = copyOf(first);
+        String third = copyOf(first);
+
+        // Then the first instance is returned for each of them
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(third));
+        assertEquals(2, pool.getHitCount());
+    }
+
+    @Test
+    public void intern_sameInstance_shouldNotCountHit() {
+        String value = copyOf("Manon Garcia");
+        pool.intern(value);
+
+        assertSame(value, pool.intern(value));
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getSavedBytes());
+    }
+
+    @Test
+    public void intern_null_shouldBeNull() {
+        assertNull(pool.intern(null));
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void intern_beyondMaxSize_shouldEvictLeastRecentlyUsed() {
+        // Given a full pool, whose oldest value was used again recently
+        String[] values = new String[StringPool.MAX_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = copyOf("value " + i);
+            pool.intern(values[i]);
+        }
+        pool.intern(copyOf(values[0]));
+
+        // When one more value is interned
+        pool.intern(copyOf("value " + StringPool.MAX_SIZE));
+
+        // Then the least recently used value was evicted, so an equal value is pooled as a new instance
+        assertEquals(StringPool.MAX_SIZE, gauges().get("strings.pool.size").getAsInt());
+        String evicted = copyOf(values[1]);
+        assertSame(evicted, pool.intern(evicted));
+        // And the recently used one was kept
+        assertSame(values[0], pool.intern(copyOf(values[0])));
+        assertNotSame(values[1], pool.intern(copyOf(values[1])));
+    }
+
+    @Test
+    public void gauges_shouldFollowHitsAndSavedBytes() {
+        // Given an ASCII value and a non-ASCII one, each interned then replaced twice
+        String ascii = "Tres bon";
+        String accented = "Très bon";
+        pool.intern(copyOf(ascii));
+        pool.intern(copyOf(accented));
+        for (int i = 0; i < 2; i++) {
+            pool.intern(copyOf(ascii));
+            pool.intern(copyOf(accented));
+        }
+
+        // Then the four replaced copies are counted, with their estimated size
+        long savedBytes = 2 * StringPool.estimateSize(ascii) + 2 * StringPool.estimateSize(accented);
+        JsonObject gauges = gauges();
+        assertEquals(2, gauges.get("strings.pool.size").getAsLong());
+        assertEquals(4, gauges.get("strings.pool.hits").getAsLong());
+        assertEquals(savedBytes, gauges.get("strings.pool.savedBytes").getAsLong());
+        assertEquals(4, pool.getHitCount());
+        assertEquals(savedBytes, pool.getSavedBytes());
+    }
+
+    @Test
+    public void estimateSize_shouldFollowArtLayout() {
+        // 16-byte header, then one byte per ASCII character, rounded up to 8 bytes
+        assertEquals(16, StringPool.estimateSize(""));
+        assertEquals(24, StringPool.estimateSize("a"));
+        assertEquals(24, StringPool.estimateSize("12345678"));
+        assertEquals(32, StringPool.estimateSize("123456789"));
+        // Two bytes per character as soon as one of them is not ASCII
+        assertEquals(24, StringPool.estimateSize("é"));
+        assertEquals(32, StringPool.estimateSize("é2345"));
+    }
+
+    private JsonObject gauges() {
+        StringWriter json = new StringWriter();
+        metrics.dumpJson(new PrintWriter(json));
+        return JsonParser.parseString(json.toString()).getAsJsonObject().getAsJsonObject("gauges");
+    }
+
+    private static String copyOf(String value) {
+        return new String(value.toCharArray());
+    }
+}
@@ -0,0 +1,150 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    // Largest error of a recorded duration, relative to the duration
+    private static final double BUCKET_ERROR = 1.0 / LatencyHistogram.SUB_BUCKET_COUNT;
+
+    @Test
+    public void buckets_shouldSplitEachPowerOfTwoInEight() {
+        assertEquals(8, LatencyHistogram.SUB_BUCKET_COUNT);
+        for (int power = 3; power < 39; power++) {
+            long from = 1L << power;
+            long to = (1L << (power + 1)) - 1;
+            assertEquals("Buckets of 2^" + power, LatencyHistogram.SUB_BUCKET_COUNT,
+                    LatencyHistogram.indexOf(to) - LatencyHistogram.indexOf(from) + 1);
+            // Each bucket spans an eighth of the power of two
+            assertEquals(from + (from >> 3) - 1, LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(from)));
+        }
+    }
+
+    @Test
+    public void buckets_shortDurationsShouldBeExact() {
+        for (long micros = 0; micros < LatencyHistogram.SUB_BUCKET_COUNT; micros++) {
+            assertEquals(micros, LatencyHistogram.indexOf(micros));
+            assertEquals(micros, LatencyHistogram.upperBoundOf((int) micros));
+        }
+    }
+
+    @Test
+    public void buckets_shouldHoldDurationsWithinBucketError() {
+        Random random = new Random(42);
+        int previousIndex = -1;
+        for (long micros = 0; micros < 100_000; micros++) {
+            int index = LatencyHistogram.indexOf(micros);
+            long upperBound = LatencyHistogram.upperBoundOf(index);
+            assertTrue(index >= previousIndex);
+            assertTrue(upperBound >= micros);
+            assertTrue(upperBound - micros <= micros * BUCKET_ERROR);
+            previousIndex = index;
+        }
+        for (int i = 0; i < 100_000; i++) {
+            long micros = random.nextLong() & ((1L << 40) - 1);
+            long upperBound = LatencyHistogram.upperBoundOf(LatencyHistogram.indexOf(micros));
+            assertTrue(upperBound >= micros);
+            assertTrue(upperBound - micros <= micros * BUCKET_ERROR);
+        }
+    }
+
+    @Test
+    public void percentiles_uniformDistribution_shouldBeWithinBucketError() {
+        // Given durations of 1 to 10,000 microseconds, each recorded once, in random order
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] durations = new long[10_000];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = i + 1;
+        }
+        shuffle(durations, new Random(7));
+        for (long micros : durations) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(5_000, snapshot.getMeanMicros());
+        assertEquals(10_000, snapshot.getMaxMicros());
+        assertWithinBucketError(5_000, snapshot.getPercentileMicros(50));
+        assertWithinBucketError(9_000, snapshot.getPercentileMicros(90));
+        assertWithinBucketError(9_900, snapshot.getPercentileMicros(99));
+        assertEquals(10_000, snapshot.getPercentileMicros(100));
+    }
+
+    @Test
+    public void percentiles_longTail_shouldSeparateTailFromMedian() {
+        // Given 98 fast durations of 100 microseconds, and 2 slow ones of 50 milliseconds
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(50));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertWithinBucketError(100, snapshot.getPercentileMicros(50));
+        assertWithinBucketError(100, snapshot.getPercentileMicros(98));
+        // Reported as the maximum rather than the upper bound of its bucket
+        assertEquals(50_000, snapshot.getPercentileMicros(99));
+        assertEquals(50_000, snapshot.getMaxMicros());
+        assertEquals((98 * 100 + 2 * 50_000) / 100, snapshot.getMeanMicros());
+    }
+
+    @Test
+    public void snapshot_nothingRecorded_shouldBeZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMeanMicros());
+        assertEquals(0, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.getPercentileMicros(50));
+        assertEquals(0, snapshot.getPercentileMicros(99));
+    }
+
+    @Test
+    public void recordNanos_outOfRange_shouldBeClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-1_000);
+        histogram.recordNanos(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(0, snapshot.getPercentileMicros(50));
+        assertEquals((1L << 40) - 1, snapshot.getMaxMicros());
+        assertEquals((1L << 40) - 1, snapshot.getPercentileMicros(100));
+    }
+
+    @Test
+    public void recordSince_shouldRecordElapsedTime() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        histogram.recordSince(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(3));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertTrue(snapshot.getMaxMicros() >= 3_000);
+    }
+
+    private static void assertWithinBucketError(long expectedMicros, long actualMicros) {
+        assertTrue("Expected about " + expectedMicros + " us, got " + actualMicros,
+                actualMicros >= expectedMicros && actualMicros - expectedMicros <= expectedMicros * BUCKET_ERROR);
+    }
+
+    private static void shuffle(long[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+}
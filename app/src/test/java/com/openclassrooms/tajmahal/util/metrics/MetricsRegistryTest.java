@@ -0,0 +1,94 @@
+package com.openclassrooms.tajmahal.util.metrics;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void metrics_sameName_shouldBeShared() {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        assertSame(metrics.counter("reviews.added"), metrics.counter("reviews.added"));
+        assertSame(metrics.histogram("reviews.bind"), metrics.histogram("reviews.bind"));
+    }
+
+    @Test
+    public void dumpJson_shouldParseWithEveryMetric() {
+        // Given one metric of each kind
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("reviews.added").increment();
+        metrics.counter("reviews.added").increment();
+        metrics.gauge("strings.pooled", () -> 42);
+        LatencyHistogram bind = metrics.histogram("reviews.bind");
+        for (int micros = 1; micros <= 100; micros++) {
+            bind.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        // When they are dumped as JSON
+        JsonObject json = JsonParser.parseString(dumpJson(metrics)).getAsJsonObject();
+
+        // Then every metric is found with its value
+        assertEquals(2, json.getAsJsonObject("counters").get("reviews.added").getAsLong());
+        assertEquals(42, json.getAsJsonObject("gauges").get("strings.pooled").getAsLong());
+        JsonObject latency = json.getAsJsonObject("latenciesMicros").getAsJsonObject("reviews.bind");
+        LatencyHistogram.Snapshot snapshot = bind.snapshot();
+        assertEquals(100, latency.get("count").getAsLong());
+        assertEquals(snapshot.getMeanMicros(), latency.get("mean").getAsLong());
+        assertEquals(snapshot.getPercentileMicros(50), latency.get("p50").getAsLong());
+        assertEquals(snapshot.getPercentileMicros(90), latency.get("p90").getAsLong());
+        assertEquals(snapshot.getPercentileMicros(99), latency.get("p99").getAsLong());
+        assertEquals(100, latency.get("max").getAsLong());
+    }
+
+    @Test
+    public void dumpJson_empty_shouldParse() {
+        JsonObject json = JsonParser.parseString(dumpJson(new MetricsRegistry())).getAsJsonObject();
+
+        assertEquals(0, json.getAsJsonObject("counters").size());
+        assertEquals(0, json.getAsJsonObject("gauges").size());
+        assertEquals(0, json.getAsJsonObject("latenciesMicros").size());
+    }
+
+    @Test
+    public void dumpJson_namesWithSpecialCharacters_shouldBeEscaped() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        String name = "quote\" backslash\\ newline\n tab\t";
+        metrics.counter(name).increment();
+
+        JsonObject json = JsonParser.parseString(dumpJson(metrics)).getAsJsonObject();
+
+        assertEquals(1, json.getAsJsonObject("counters").get(name).getAsLong());
+    }
+
+    @Test
+    public void dumpText_shouldListMetricsSortedByName() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("b.counter").increment();
+        metrics.counter("a.counter").increment();
+        metrics.histogram("reviews.bind").recordNanos(TimeUnit.MICROSECONDS.toNanos(5));
+
+        StringWriter text = new StringWriter();
+        metrics.dumpText(new PrintWriter(text));
+
+        String dump = text.toString();
+        assertTrue(dump.indexOf("a.counter: 1") < dump.indexOf("b.counter: 1"));
+        assertTrue(dump.contains("reviews.bind: count=1 mean=5 p50=5 p90=5 p99=5 max=5"));
+    }
+
+    private static String dumpJson(MetricsRegistry metrics) {
+        StringWriter json = new StringWriter();
+        metrics.dumpJson(new PrintWriter(json));
+        return json.toString();
+    }
+}